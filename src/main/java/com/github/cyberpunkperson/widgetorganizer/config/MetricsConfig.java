@@ -0,0 +1,18 @@
+package com.github.cyberpunkperson.widgetorganizer.config;
+
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder widgetRepositorySize(WidgetRepository widgetRepository) {
+        return meterRegistry -> Gauge.builder("widget.repository.size", widgetRepository, WidgetRepository::count)
+                .description("Widgets on the board")
+                .register(meterRegistry);
+    }
+}
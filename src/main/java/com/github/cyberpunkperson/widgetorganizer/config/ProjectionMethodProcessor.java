@@ -1,29 +1,35 @@
 package com.github.cyberpunkperson.widgetorganizer.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.cyberpunkperson.widgetorganizer.annotation.Projection;
-import org.modelmapper.ModelMapper;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjectionMapper;
 import org.springframework.core.MethodParameter;
-import org.springframework.core.annotation.AnnotationConfigurationException;
-import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
-import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
 
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.Collections;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class ProjectionMethodProcessor extends RequestResponseBodyMethodProcessor {
+import static java.util.Objects.isNull;
 
-    private final ModelMapper modelMapper;
+/*
+ * Reads the body straight into the parameter and validates it. Only the properties of the projection the parameter is
+ * annotated with are bound, every projection and parameter type pair gets its own request mapper, built once
+ */
+public class ProjectionMethodProcessor implements HandlerMethodArgumentResolver {
 
-    public ProjectionMethodProcessor(ModelMapper modelMapper) {
-        super(Collections.singletonList(new MappingJackson2HttpMessageConverter()));
-        this.modelMapper = modelMapper;
+    private final ObjectMapper objectMapper;
+
+    private final Map<List<Class<?>>, RequestResponseBodyMethodProcessor> bodyProcessors = new ConcurrentHashMap<>();
+
+    public ProjectionMethodProcessor(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
     }
 
     @Override
@@ -33,18 +39,15 @@ public class ProjectionMethodProcessor extends RequestResponseBodyMethodProcesso
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
-        Object projection = super.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
-        return modelMapper.map(projection, parameter.getParameterType());
-    }
-
-    @Override
-    protected <T> Object readWithMessageConverters(NativeWebRequest webRequest, MethodParameter parameter, Type paramType) throws IOException, HttpMediaTypeNotSupportedException, HttpMessageNotReadableException {
-        Class<?> projectionType = Stream.of(parameter.getParameterAnnotations())
-                .filter(Projection.class::isInstance)
-                .map(annotation -> ((Projection) annotation).value())
-                .findFirst()
-                .orElseThrow(() -> new AnnotationConfigurationException(String.format("'%s' annotation was not found", Projection.class.getName())));
-
-        return super.readWithMessageConverters(webRequest, parameter, projectionType);
+        Class<?> projectionType = parameter.getParameterAnnotation(Projection.class).value();
+        RequestResponseBodyMethodProcessor bodyProcessor = bodyProcessors.computeIfAbsent(
+                List.of(projectionType, parameter.getParameterType()),
+                types -> new RequestResponseBodyMethodProcessor(Collections.singletonList(new MappingJackson2HttpMessageConverter(
+                        WidgetProjectionMapper.requestObjectMapper(objectMapper, types.get(0), types.get(1))))));
+
+        Object argument = bodyProcessor.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+        if (isNull(argument))
+            throw new IllegalArgumentException("Request body is missing");
+        return argument;
     }
 }
@@ -0,0 +1,64 @@
+package com.github.cyberpunkperson.widgetorganizer.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/*
+ * Times every call to the active WidgetRepository and records how many widgets list reads return,
+ * meters are looked up once per method name. The jdbc cache is left out, its misses reach the repository behind it
+ * and its hits are counted by the cache metrics.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class WidgetRepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary> resultSummaries = new ConcurrentHashMap<>();
+
+
+    @Around("execution(* com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository+.*(..)) " +
+            "&& !within(com.github.cyberpunkperson.widgetorganizer.repository.WidgetJdbcCachingRepository)")
+    public Object timeRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+
+        long startTime = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof Collection)
+                resultSummary(method).record(((Collection<?>) result).size());
+            return result;
+        } finally {
+            timer(method).record(System.nanoTime() - startTime, NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method) {
+        return timers.computeIfAbsent(method, name -> Timer.builder("widget.repository")
+                .description("Widget repository calls")
+                .tag("method", name)
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary resultSummary(String method) {
+        return resultSummaries.computeIfAbsent(method, name -> DistributionSummary.builder("widget.repository.result")
+                .description("Widgets returned by repository list reads")
+                .tag("method", name)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.cyberpunkperson.widgetorganizer.config;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/*
+ * Times every public method of a class annotated with @Timed under the annotation name,
+ * micrometer's TimedAspect only picks up annotated methods. Meters are looked up once per method and outcome.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class WidgetServiceMetricsAspect {
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+
+    @Around("@within(timed) && execution(public * *(..))")
+    public Object timeServiceCall(ProceedingJoinPoint joinPoint, Timed timed) throws Throwable {
+        String exception = NO_EXCEPTION;
+
+        long startTime = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(timed, joinPoint, exception).record(System.nanoTime() - startTime, NANOSECONDS);
+        }
+    }
+
+    private Timer timer(Timed timed, ProceedingJoinPoint joinPoint, String exception) {
+        String className = joinPoint.getSignature().getDeclaringTypeName();
+        String method = joinPoint.getSignature().getName();
+
+        return timers.computeIfAbsent(String.join("#", timed.value(), className, method, exception),
+                key -> Timer.builder(timed.value())
+                        .description(timed.description().isEmpty() ? null : timed.description())
+                        .tag("class", className)
+                        .tag("method", method)
+                        .tag("exception", exception)
+                        .register(meterRegistry));
+    }
+}
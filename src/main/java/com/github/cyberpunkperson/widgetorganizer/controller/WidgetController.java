@@ -1,30 +1,72 @@
 package com.github.cyberpunkperson.widgetorganizer.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.github.cyberpunkperson.widgetorganizer.annotation.Projection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetBatchProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetCursorProjection;
 import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjectionMapper;
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetBatch;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursor;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursorPage;
 import com.github.cyberpunkperson.widgetorganizer.service.WidgetService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/widgets")
 public class WidgetController {
 
+    public static final String BOARD_VERSION_HEADER = "X-Board-Version";
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int WIDGET_VERSION_BYTES = 16;
+
     private final WidgetService widgetService;
 
-    private final ModelMapper modelMapper;
+    private final ObjectMapper objectMapper;
+
+    private final WidgetResponseCache responseCache;
+
+    private final WidgetImporter widgetImporter;
+
+    /* ETags carry board versions, which start over with the application */
+    private final String boardEpoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
 
 
     /*
@@ -35,17 +77,22 @@ public class WidgetController {
     public WidgetProjection createWidget(@Projection(WidgetProjection.class) @Valid Widget widget) {
 
         Widget createdWidget = widgetService.create(widget);
-        return modelMapper.map(createdWidget, WidgetProjection.class);
+        return WidgetProjectionMapper.toProjection(createdWidget);
     }
 
     @PutMapping
-    public WidgetProjection updateWidget(@RequestBody @Valid WidgetProjection widgetProjection) {
+    public WidgetProjection updateWidget(@Projection(WidgetProjection.class) @Valid Widget widget) {
+
+        Widget updatedWidget = widgetService.update(widget);
+        return WidgetProjectionMapper.toProjection(updatedWidget);
+    }
+
+    @PostMapping("/batch")
+    public List<WidgetProjection> saveWidgets(@Projection(WidgetBatchProjection.class) @Valid WidgetBatch widgetBatch) {
 
-        return Optional.of(widgetProjection)
-                .map(this::convertProjectionToWidget)
-                .map(widgetService::update)
-                .map(this::convertWidgetToProjection)
-                .orElseThrow(() -> new RuntimeException("Failed to update widget"));
+        return widgetService.saveBatch(widgetBatch.getWidgets()).stream()
+                .map(WidgetProjectionMapper::toProjection)
+                .collect(toList());
     }
 
     @DeleteMapping("/{widgetId}")
@@ -53,36 +100,209 @@ public class WidgetController {
         widgetService.deleteById(widgetId);
     }
 
+    /*
+        The ETag is the board version followed by the widget version,
+        a widget is not modified while the board is not, otherwise its own version is compared.
+        Like every read, the widget is tagged with the snapshot version it was read at and can be pinned to one,
+        a pinned version is a part of the board tag, so a body read at another snapshot is never taken as unchanged.
+     */
     @GetMapping("/{widgetId}")
-    public WidgetProjection findWidget(@PathVariable UUID widgetId) {
+    public ResponseEntity<WidgetProjection> findWidget(@PathVariable UUID widgetId,
+                                                       @RequestParam(required = false) Long version,
+                                                       @RequestHeader(value = IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        long boardVersion = widgetService.boardVersion();
+        Optional<String> unchangedBoardETag = eTags(ifNoneMatch)
+                .filter(eTag -> eTag.startsWith(boardETagPrefix(boardVersion, version)))
+                .findFirst();
+        if (unchangedBoardETag.isPresent())
+            return ResponseEntity.status(NOT_MODIFIED).eTag(unchangedBoardETag.get()).build();
+
+        long snapshotVersion = nonNull(version) ? version : widgetService.currentVersion();
+        Widget foundWidget = widgetService.findById(widgetId, snapshotVersion);
+        String widgetVersion = widgetVersion(foundWidget);
+        String widgetETag = boardETagPrefix(boardVersion, version) + widgetVersion + '"';
+        if (eTags(ifNoneMatch).anyMatch(eTag -> eTag.endsWith('.' + widgetVersion + '"')))
+            return ResponseEntity.status(NOT_MODIFIED).eTag(widgetETag).build();
 
-        Widget foundWidget = widgetService.findById(widgetId);
-        return modelMapper.map(foundWidget, WidgetProjection.class);
+        return ResponseEntity.ok()
+                .eTag(widgetETag)
+                .header(BOARD_VERSION_HEADER, String.valueOf(snapshotVersion))
+                .body(WidgetProjectionMapper.toProjection(foundWidget));
     }
 
+    /*
+        Pages carry the board version they were read from,
+        passing it back as the version parameter keeps the next pages consistent with the first one.
+        Every listing is tagged with the board version and its pinned version, and is not modified while the board is not.
+        Encoded listings are cached for the board version and written out as they are.
+     */
     @GetMapping
-    public List<WidgetProjection> findAllWidgets(@RequestParam Integer page,
+    public ResponseEntity<byte[]> findAllWidgets(@RequestParam Integer page,
                                                  @RequestParam(defaultValue = "10") Integer size,
                                                  @RequestParam(required = false) Integer width,
-                                                 @RequestParam(required = false) Integer height) {
+                                                 @RequestParam(required = false) Integer height,
+                                                 @RequestParam(required = false) Long version,
+                                                 @RequestHeader(value = IF_NONE_MATCH, required = false) String ifNoneMatch) throws IOException {
+
+        long boardVersion = widgetService.boardVersion();
+        String boardETag = boardTag(boardVersion, version) + '"';
+        if (eTags(ifNoneMatch).anyMatch(boardETag::equals))
+            return ResponseEntity.status(NOT_MODIFIED).eTag(boardETag).build();
+
+        WidgetResponseCache.Key key = new WidgetResponseCache.Key(page, size, width, height, version);
+        WidgetResponseCache.Entry entry = responseCache.find(key, boardVersion).orElse(null);
+        if (isNull(entry)) {
+            entry = findAllWidgets(key, boardVersion);
+            responseCache.put(key, entry);
+        }
+
+        return ResponseEntity.ok()
+                .eTag(boardETag)
+                .header(BOARD_VERSION_HEADER, entry.getPageVersion())
+                .contentType(APPLICATION_JSON)
+                .body(entry.getBody());
+    }
+
+    private WidgetResponseCache.Entry findAllWidgets(WidgetResponseCache.Key key, long boardVersion) throws IOException {
+        PageRequest pageRequest = PageRequest.of(key.getPage(), key.getSize());
+
+        long version = nonNull(key.getVersion()) ? key.getVersion() : widgetService.currentVersion();
+        List<Widget> foundWidgets = nonNull(key.getWidth()) && nonNull(key.getHeight())
+                ? widgetService.findAllByArea(pageRequest, key.getWidth(), key.getHeight(), version)
+                : widgetService.findAllSortedByIndexZ(pageRequest, version);
+        String pageVersion = String.valueOf(version);
+
+        List<WidgetProjection> widgetProjections = foundWidgets.stream()
+                .map(WidgetProjectionMapper::toProjection)
+                .collect(toList());
+        return new WidgetResponseCache.Entry(boardVersion, pageVersion, objectMapper.writeValueAsBytes(widgetProjections));
+    }
+
+    /*
+        The whole board in indexZ order, every widget is encoded and written out as soon as it is read,
+        one JSON object per line or, with format=json, one JSON array sent in chunks
+     */
+    @GetMapping("/export")
+    public void exportWidgets(@RequestParam(defaultValue = "ndjson") String format,
+                              HttpServletResponse response) throws IOException {
+
+        boolean jsonArray = "json".equals(format);
+        if (!jsonArray && !"ndjson".equals(format))
+            throw new IllegalArgumentException(String.format("Export format '%s' is not supported", format));
+
+        /* the servlet output is flushed by its own buffer, not after every widget */
+        ObjectWriter widgetWriter = objectMapper.writerFor(WidgetProjection.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
-        List<Widget> foundWidgets;
-        if (nonNull(width) && nonNull(height)) {
-            foundWidgets = widgetService.findAllByArea(PageRequest.of(page, size), width, height);
-        } else {
-            foundWidgets = widgetService.findAllSortedByIndexZ(PageRequest.of(page, size));
+        response.setContentType(jsonArray ? APPLICATION_JSON_VALUE : APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            if (jsonArray)
+                generator.writeStartArray();
+
+            widgetService.forEachSortedByIndexZ(widget -> {
+                try {
+                    widgetWriter.writeValue(generator, WidgetProjectionMapper.toProjection(widget));
+                    if (!jsonArray)
+                        generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            if (jsonArray)
+                generator.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+    }
+
+    /*
+        Reads the NDJSON body a line at a time, widgets are saved as with the batch, but in chunks committed one by one.
+        With ids=drop every widget is created, so an export of another board can be imported.
+        The NDJSON response reports every rejected line and the totals after every chunk while the body is still read
+     */
+    @PostMapping("/import")
+    public void importWidgets(@RequestParam(required = false) Integer chunkSize,
+                              @RequestParam(defaultValue = "keep") String ids,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+
+        boolean keepIds = "keep".equals(ids);
+        if (!keepIds && !"drop".equals(ids))
+            throw new IllegalArgumentException(String.format("Import ids mode '%s' is not supported", ids));
+
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        widgetImporter.importWidgets(request.getInputStream(), response.getOutputStream(), chunkSize, keepIds);
+    }
+
+    @GetMapping("/cursor")
+    public ResponseEntity<WidgetCursorProjection> findWidgetsAfterCursor(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "10") Integer size,
+                                                                         @RequestParam(required = false) Long version) {
 
-        return foundWidgets.stream()
-                .map(this::convertWidgetToProjection)
+        long snapshotVersion = nonNull(version) ? version : widgetService.currentVersion();
+        WidgetCursor widgetCursor = nonNull(cursor) ? WidgetCursor.decode(cursor) : null;
+        WidgetCursorPage cursorPage = widgetService.findAllAfterCursor(widgetCursor, size, snapshotVersion);
+
+        List<WidgetProjection> widgets = cursorPage.getWidgets().stream()
+                .map(WidgetProjectionMapper::toProjection)
                 .collect(toList());
+        String nextCursor = nonNull(cursorPage.getNextCursor()) ? cursorPage.getNextCursor().encode() : null;
+        return ResponseEntity.ok()
+                .header(BOARD_VERSION_HEADER, String.valueOf(snapshotVersion))
+                .body(new WidgetCursorProjection(widgets, nextCursor));
     }
 
-    private Widget convertProjectionToWidget(WidgetProjection widgetProjection) {
-        return modelMapper.map(widgetProjection, Widget.class);
+    @GetMapping("/viewport")
+    public ResponseEntity<List<WidgetProjection>> findViewportWidgets(@RequestParam Integer page,
+                                                                      @RequestParam(defaultValue = "10") Integer size,
+                                                                      @RequestParam Integer x1,
+                                                                      @RequestParam Integer y1,
+                                                                      @RequestParam Integer x2,
+                                                                      @RequestParam Integer y2,
+                                                                      @RequestParam(defaultValue = "contains") String mode,
+                                                                      @RequestParam(required = false) Long version) {
+
+        long snapshotVersion = nonNull(version) ? version : widgetService.currentVersion();
+        Viewport viewport = new Viewport(x1, y1, x2, y2, Viewport.Mode.valueOf(mode.toUpperCase(Locale.ROOT)));
+
+        List<WidgetProjection> widgets = widgetService.findAllByViewport(PageRequest.of(page, size), viewport, snapshotVersion).stream()
+                .map(WidgetProjectionMapper::toProjection)
+                .collect(toList());
+        return ResponseEntity.ok()
+                .header(BOARD_VERSION_HEADER, String.valueOf(snapshotVersion))
+                .body(widgets);
+    }
+
+    private String boardETagPrefix(long boardVersion, @Nullable Long version) {
+        return boardTag(boardVersion, version) + '.';
+    }
+
+    /* Pinned reads are tagged with their version as well, an unpinned tag is never a prefix of a pinned one */
+    private String boardTag(long boardVersion, @Nullable Long version) {
+        return '"' + boardEpoch + '.' + boardVersion + (nonNull(version) ? "@" + version : "");
+    }
+
+    /*
+        The widget version is a SHA-256 of its modification stamp and its content,
+        so widgets modified within the same millisecond are told apart as well
+     */
+    private static String widgetVersion(Widget widget) {
+        String widgetState = Stream.of(widget.getId(), widget.getCoordinateX(), widget.getCoordinateY(), widget.getIndexZ(),
+                widget.getWidth(), widget.getHeight(), isNull(widget.getLastModifiedDate()) ? null : widget.getLastModifiedDate().toInstant())
+                .map(String::valueOf)
+                .collect(joining("|"));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(widgetState.getBytes(UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, WIDGET_VERSION_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
     }
 
-    private WidgetProjection convertWidgetToProjection(Widget widget) {
-        return modelMapper.map(widget, WidgetProjection.class);
+    private static Stream<String> eTags(String ifNoneMatch) {
+        return isNull(ifNoneMatch) ? Stream.empty() : Arrays.stream(ifNoneMatch.split(",")).map(String::trim);
     }
 }
@@ -0,0 +1,257 @@
+package com.github.cyberpunkperson.widgetorganizer.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetImportProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjectionMapper;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjection;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.joining;
+
+/*
+ * Reads NDJSON widgets from the body one line at a time and saves them through the service in chunks,
+ * every chunk is merged and committed on its own, so only the current chunk is kept in memory.
+ * Ids are kept, so a widget updates the one with its id, or dropped, so every widget is created anew,
+ * which is how an export is imported into another board.
+ * A too long, malformed, invalid or unknown widget is reported with its line and skipped, a chunk the service rejects
+ * is reported for every line in it. The report is NDJSON as well and is flushed after every chunk.
+ */
+@Component
+public class WidgetImporter {
+
+    private final WidgetService widgetService;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectReader widgetReader;
+
+    private final ObjectWriter reportWriter;
+
+    private final int maxChunkSize;
+
+    private final int maxLineLength;
+
+
+    public WidgetImporter(WidgetService widgetService, Validator validator, ObjectMapper objectMapper,
+                          @Value("${widget-organizer.import.chunk-size:1000}") int maxChunkSize,
+                          @Value("${widget-organizer.import.max-line-length:65536}") int maxLineLength) {
+        this.widgetService = widgetService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.widgetReader = WidgetProjectionMapper.requestObjectMapper(objectMapper, WidgetProjection.class, Widget.class).readerFor(Widget.class);
+        this.reportWriter = objectMapper.writerFor(WidgetImportProjection.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.maxChunkSize = maxChunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /*
+     * Requested chunk sizes are capped by the configured one, it bounds the memory an import takes
+     */
+    public void importWidgets(InputStream widgets, OutputStream report, Integer chunkSize, boolean keepIds) throws IOException {
+        new Import(report, nonNull(chunkSize) ? Math.max(1, Math.min(chunkSize, maxChunkSize)) : maxChunkSize, keepIds)
+                .run(new LineReader(new InputStreamReader(widgets, UTF_8), maxLineLength));
+    }
+
+
+    private final class Import {
+
+        private final JsonGenerator generator;
+
+        private final int chunkSize;
+
+        private final boolean keepIds;
+
+        private final List<Long> chunkLines = new ArrayList<>();
+
+        private final List<Widget> chunkWidgets = new ArrayList<>();
+
+        private long line;
+
+        private long imported;
+
+        private long failed;
+
+        private long reportedLine = -1;
+
+
+        private Import(OutputStream report, int chunkSize, boolean keepIds) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(report);
+            this.generator.setRootValueSeparator(null);
+            this.chunkSize = chunkSize;
+            this.keepIds = keepIds;
+        }
+
+        private void run(LineReader widgets) throws IOException {
+            try (generator) {
+                for (String widgetLine = widgets.next(); nonNull(widgetLine); widgetLine = widgets.next()) {
+                    line++;
+                    if (widgets.isTooLong()) {
+                        reject(line, String.format("Widget line is longer than %d characters", maxLineLength));
+                    } else if (!widgetLine.isBlank()) {
+                        read(widgetLine);
+                    }
+                    if (chunkWidgets.size() == chunkSize)
+                        commit();
+                }
+                if (!chunkWidgets.isEmpty())
+                    commit();
+                /* the last line of the report always has the totals */
+                if (reportedLine != line)
+                    progress();
+            }
+        }
+
+        private void read(String widgetLine) throws IOException {
+            Widget widget;
+            try {
+                widget = widgetReader.readValue(widgetLine);
+            } catch (JsonProcessingException e) {
+                reject(line, String.format("Widget is malformed: %s", e.getOriginalMessage()));
+                return;
+            }
+
+            String violations = validator.validate(widget).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .map(String::trim)
+                    .sorted()
+                    .collect(joining(", "));
+            if (!violations.isEmpty()) {
+                reject(line, violations);
+                return;
+            }
+
+            if (!keepIds)
+                widget.setId(null);
+            chunkLines.add(line);
+            chunkWidgets.add(widget);
+        }
+
+        /*
+         * Ids of the chunk are looked up once by the service, widgets with unknown ids are left out of the chunk
+         */
+        private void commit() throws IOException {
+            Set<Widget> unknownWidgets = Collections.newSetFromMap(new IdentityHashMap<>());
+            try {
+                widgetService.saveBatch(chunkWidgets, unknownWidgets::add);
+                imported += chunkWidgets.size() - unknownWidgets.size();
+                for (int index = 0; index < chunkWidgets.size(); index++) {
+                    Widget widget = chunkWidgets.get(index);
+                    if (unknownWidgets.contains(widget))
+                        reject(chunkLines.get(index), String.format("Widget with id:'%s' does not exist, " +
+                                "import with ids=drop to create it", widget.getId()));
+                }
+            } catch (RuntimeException e) {
+                failed += chunkWidgets.size();
+                for (Long chunkLine : chunkLines) {
+                    write(WidgetImportProjection.error(chunkLine, e.getMessage()));
+                }
+            }
+            chunkLines.clear();
+            chunkWidgets.clear();
+            progress();
+        }
+
+        private void progress() throws IOException {
+            write(WidgetImportProjection.progress(line, imported, failed));
+            generator.flush();
+            reportedLine = line;
+        }
+
+        private void reject(long rejectedLine, String error) throws IOException {
+            failed++;
+            write(WidgetImportProjection.error(rejectedLine, error));
+        }
+
+        private void write(WidgetImportProjection reportLine) throws IOException {
+            reportWriter.writeValue(generator, reportLine);
+            generator.writeRaw('\n');
+        }
+    }
+
+
+    /*
+     * Lines of at most maxLength characters, the rest of a longer line is skipped unread and the line is marked too long
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+
+        private final int maxLength;
+
+        private final char[] buffer = new char[8192];
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private int limit;
+
+        private boolean tooLong;
+
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /*
+         * The next line without its terminator, null at the end of the input
+         */
+        private String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+
+            boolean lineStarted = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(reader.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0)
+                        return lineStarted ? line.toString() : null;
+                }
+                lineStarted = true;
+
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    if (line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+                        line.setLength(line.length() - 1);
+                    return line.toString();
+                }
+            }
+        }
+
+        private boolean isTooLong() {
+            return tooLong;
+        }
+
+        private void append(int start, int end) {
+            int length = Math.min(end - start, maxLength - line.length());
+            if (length < end - start)
+                tooLong = true;
+            line.append(buffer, start, length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.cyberpunkperson.widgetorganizer.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+/*
+ * Encoded listing responses keyed by their query and stamped with the board version they were read at.
+ * Every committed write moves the board version, so an entry is served only while the board has not changed since.
+ * Entries are weighed by their bytes and the least recently used ones go first.
+ */
+@Component
+public class WidgetResponseCache {
+
+    private final Cache<Key, Entry> responses;
+
+
+    public WidgetResponseCache(MeterRegistry meterRegistry,
+                               @Value("${widget-organizer.response-cache.size:16MB}") DataSize size) {
+        this.responses = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumWeight(size.toBytes())
+                .<Key, Entry>weigher((key, entry) -> entry.getBody().length)
+                .recordStats()
+                .build(), "widget-responses");
+    }
+
+    public Optional<Entry> find(Key key, long boardVersion) {
+        return Optional.ofNullable(responses.getIfPresent(key))
+                .filter(entry -> entry.getBoardVersion() == boardVersion);
+    }
+
+    public void put(Key key, Entry entry) {
+        responses.put(key, entry);
+    }
+
+
+    @Data
+    @AllArgsConstructor
+    public static class Key {
+
+        private final Integer page;
+
+        private final Integer size;
+
+        private final Integer width;
+
+        private final Integer height;
+
+        private final Long version;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+
+        private final long boardVersion;
+
+        /* X-Board-Version the page was read at */
+        private final String pageVersion;
+
+        private final byte[] body;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.cyberpunkperson.widgetorganizer.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WidgetBatchProjection {
+
+    private List<WidgetProjection> widgets;
+}
@@ -0,0 +1,17 @@
+package com.github.cyberpunkperson.widgetorganizer.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WidgetCursorProjection {
+
+    private List<WidgetProjection> widgets;
+
+    private String nextCursor;
+}
@@ -0,0 +1,36 @@
+package com.github.cyberpunkperson.widgetorganizer.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/*
+ * One line of an import report, either a rejected line with its error
+ * or the progress after a chunk, with the totals up to the given line
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(NON_NULL)
+public class WidgetImportProjection {
+
+    private Long line;
+
+    private Long imported;
+
+    private Long failed;
+
+    private String error;
+
+
+    public static WidgetImportProjection error(long line, String error) {
+        return new WidgetImportProjection(line, null, null, error);
+    }
+
+    public static WidgetImportProjection progress(long line, long imported, long failed) {
+        return new WidgetImportProjection(line, imported, failed, null);
+    }
+}
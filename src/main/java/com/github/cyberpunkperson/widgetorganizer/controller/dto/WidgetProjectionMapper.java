@@ -0,0 +1,71 @@
+package com.github.cyberpunkperson.widgetorganizer.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/*
+ * Field by field copies of widgets into their projections, the same properties ModelMapper used to match by name.
+ * Requests are bound to widgets directly, bounds are left to the service, which calculates them from coordinates and sizes.
+ */
+public final class WidgetProjectionMapper {
+
+    private WidgetProjectionMapper() {
+    }
+
+    /*
+     * Request bodies are read straight into the target type by a copy of the application mapper, which binds only the
+     * properties the projection declares. The ignored properties are taken from both types, nested types are matched by
+     * property name, so the projection stays the only place that defines the request shape
+     */
+    public static ObjectMapper requestObjectMapper(ObjectMapper objectMapper, Class<?> projectionType, Class<?> targetType) {
+        ObjectMapper requestObjectMapper = objectMapper.copy();
+        bindProjection(requestObjectMapper, requestObjectMapper.constructType(projectionType), requestObjectMapper.constructType(targetType));
+        return requestObjectMapper;
+    }
+
+    public static WidgetProjection toProjection(Widget widget) {
+        return new WidgetProjection(widget.getId(), widget.getCoordinateX(), widget.getCoordinateY(), widget.getIndexZ(),
+                widget.getWidth(), widget.getHeight(), widget.getLastModifiedDate());
+    }
+
+    private static void bindProjection(ObjectMapper objectMapper, JavaType projectionType, JavaType targetType) {
+        if (projectionType.getRawClass().equals(targetType.getRawClass()) || ClassUtil.isJDKClass(targetType.getRawClass()))
+            return;
+
+        Map<String, BeanPropertyDefinition> projectionProperties = properties(objectMapper, projectionType).stream()
+                .collect(toMap(BeanPropertyDefinition::getName, identity()));
+        Set<String> ignoredProperties = new HashSet<>();
+        for (BeanPropertyDefinition targetProperty : properties(objectMapper, targetType)) {
+            BeanPropertyDefinition projectionProperty = projectionProperties.get(targetProperty.getName());
+            if (projectionProperty == null)
+                ignoredProperties.add(targetProperty.getName());
+            else
+                bindProjection(objectMapper, valueType(projectionProperty), valueType(targetProperty));
+        }
+
+        objectMapper.configOverride(targetType.getRawClass())
+                .setIgnorals(JsonIgnoreProperties.Value.forIgnoredProperties(ignoredProperties).withAllowGetters());
+    }
+
+    private static List<BeanPropertyDefinition> properties(ObjectMapper objectMapper, JavaType type) {
+        return objectMapper.getDeserializationConfig().introspect(type).findProperties();
+    }
+
+    /* Element types of collections, so a list of projections is matched against a list of widgets */
+    private static JavaType valueType(BeanPropertyDefinition property) {
+        JavaType type = property.getPrimaryType();
+        return type.isContainerType() ? type.getContentType() : type;
+    }
+}
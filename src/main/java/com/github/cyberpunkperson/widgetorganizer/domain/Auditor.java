@@ -15,7 +15,7 @@ import java.time.ZonedDateTime;
 import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @MappedSuperclass
 @NoArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
@@ -0,0 +1,30 @@
+package com.github.cyberpunkperson.widgetorganizer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Viewport {
+
+    private Integer minX;
+
+    private Integer minY;
+
+    private Integer maxX;
+
+    private Integer maxY;
+
+    private Mode mode;
+
+
+    public enum Mode {
+
+        CONTAINS,
+
+        INTERSECTS
+
+    }
+}
@@ -13,10 +13,13 @@ import java.util.UUID;
 
 @Data
 @Entity
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "widget")
+@Table(name = "widget", indexes = {
+        @Index(name = "widget_bounds_idx", columnList = "minCoordinateX, minCoordinateY, maxCoordinateX, maxCoordinateY"),
+        @Index(name = "widget_area_idx", columnList = "maxCoordinateX, maxCoordinateY, minCoordinateX, minCoordinateY")
+})
 public class Widget extends Auditor {
 
     @Id
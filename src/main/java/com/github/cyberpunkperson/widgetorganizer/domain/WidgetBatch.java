@@ -0,0 +1,20 @@
+package com.github.cyberpunkperson.widgetorganizer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WidgetBatch {
+
+    /* Widgets without id are created, the others are updated, in the given order */
+    @Valid
+    @NotEmpty(message = "{widget.batch.not-empty}")
+    private List<Widget> widgets;
+}
@@ -0,0 +1,42 @@
+package com.github.cyberpunkperson.widgetorganizer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Base64;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Keyset position: the stored indexZ and id of the last widget of the previous page.
+ * The next page starts after the indexZ, the id only breaks a tie, which a board with unique indexZ never has.
+ * Clients get it as an opaque url safe token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WidgetCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private Integer indexZ;
+
+    private UUID id;
+
+
+    public String encode() {
+        String cursor = indexZ + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(UTF_8));
+    }
+
+    public static WidgetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), UTF_8).split(SEPARATOR);
+            return new WidgetCursor(Integer.valueOf(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(String.format("Cursor '%s' is malformed", token));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.cyberpunkperson.widgetorganizer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class WidgetCursorPage {
+
+    private List<Widget> widgets;
+
+    /* Null when there are no more widgets after the page */
+    private WidgetCursor nextCursor;
+}
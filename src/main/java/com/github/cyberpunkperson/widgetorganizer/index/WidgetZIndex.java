@@ -0,0 +1,314 @@
+package com.github.cyberpunkperson.widgetorganizer.index;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+/*
+ * Order-statistic treap keyed by indexZ (ties are broken by id). Every node keeps the size of its subtree,
+ * so rank and page lookups cost O(log n + page size) instead of sorting the whole board.
+ * The treap is persistent: nodes are never changed, put and remove copy the O(log n) path they touch,
+ * so a snapshot is just the root and stays valid while the writer goes on.
+ * Widgets are indexed under the indexZ they had on put.
+ * Single writer, guarded by the owning repository, readers need no lock.
+ */
+public class WidgetZIndex {
+
+    private final Map<UUID, Node> nodes;
+    private volatile Node root;
+
+
+    public WidgetZIndex() {
+        this.nodes = new HashMap<>();
+    }
+
+    public void put(Widget widget) {
+        Node current = remove(root, widget.getId());
+
+        Node node = new Node(widget.getIndexZ(), widget.getId(), widget, ThreadLocalRandom.current().nextInt(), null, null);
+        Node[] parts = split(current, node.indexZ, node.id);
+        root = merge(merge(parts[0], node), parts[1]);
+        nodes.put(node.id, node);
+    }
+
+    public void remove(UUID widgetId) {
+        root = remove(root, widgetId);
+    }
+
+    public void clear() {
+        nodes.clear();
+        root = null;
+    }
+
+    /*
+     * Replaces the content with the given widgets: one sort and a linear Cartesian tree build
+     * over random priorities instead of a split and merge per widget
+     */
+    public void load(Collection<Widget> widgets) {
+        List<Widget> indexedWidgets = widgets.stream()
+                .filter(widget -> nonNull(widget.getIndexZ()))
+                .collect(toList());
+
+        /* primitive (indexZ, position) keys sort much faster than a comparator over widgets */
+        long[] keys = new long[indexedWidgets.size()];
+        for (int position = 0; position < keys.length; position++) {
+            keys[position] = ((long) indexedWidgets.get(position).getIndexZ() << 32) | position;
+        }
+        Arrays.sort(keys);
+
+        Widget[] sortedWidgets = new Widget[keys.length];
+        for (int index = 0; index < keys.length; index++) {
+            sortedWidgets[index] = indexedWidgets.get((int) keys[index]);
+        }
+        for (int start = 0, end; start < sortedWidgets.length; start = end) {
+            end = start + 1;
+            while (end < sortedWidgets.length && (int) (keys[end] >> 32) == (int) (keys[start] >> 32)) {
+                end++;
+            }
+            if (end - start > 1)
+                Arrays.sort(sortedWidgets, start, end, Comparator.comparing(Widget::getId));
+        }
+
+        int[] priorities = ThreadLocalRandom.current().ints(sortedWidgets.length).toArray();
+        int[] left = new int[sortedWidgets.length];
+        int[] right = new int[sortedWidgets.length];
+        int[] stack = new int[sortedWidgets.length];
+        int stackSize = 0;
+
+        for (int index = 0; index < sortedWidgets.length; index++) {
+            int lastPopped = -1;
+            while (stackSize > 0 && priorities[stack[stackSize - 1]] < priorities[index]) {
+                lastPopped = stack[--stackSize];
+            }
+            left[index] = lastPopped;
+            right[index] = -1;
+            if (stackSize > 0)
+                right[stack[stackSize - 1]] = index;
+            stack[stackSize++] = index;
+        }
+
+        nodes.clear();
+        root = stackSize == 0 ? null : build(stack[0], sortedWidgets, priorities, left, right);
+    }
+
+    private Node build(int index, Widget[] widgets, int[] priorities, int[] left, int[] right) {
+        Node leftNode = left[index] < 0 ? null : build(left[index], widgets, priorities, left, right);
+        Node rightNode = right[index] < 0 ? null : build(right[index], widgets, priorities, left, right);
+
+        Widget widget = widgets[index];
+        Node node = new Node(widget.getIndexZ(), widget.getId(), widget, priorities[index], leftNode, rightNode);
+        nodes.put(node.id, node);
+        return node;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(root);
+    }
+
+    public int size() {
+        return snapshot().size();
+    }
+
+    public long rank(int indexZ) {
+        return snapshot().rank(indexZ);
+    }
+
+    public List<Widget> range(long offset, int limit) {
+        return snapshot().range(offset, limit);
+    }
+
+    public List<Widget> rangeAfter(int indexZ, int limit) {
+        return snapshot().rangeAfter(indexZ, limit);
+    }
+
+    private Node remove(Node tree, UUID widgetId) {
+        Node node = nodes.remove(widgetId);
+        if (isNull(node))
+            return tree;
+
+        Node[] lower = split(tree, node.indexZ, node.id);
+        Node[] upper = splitAfter(lower[1], node.indexZ, node.id);
+        return merge(lower[0], upper[1]);
+    }
+
+    /*
+     * Splits the tree into nodes ordered strictly before (indexZ, id) and all others
+     */
+    private static Node[] split(Node node, int indexZ, UUID id) {
+        if (node == null)
+            return new Node[2];
+
+        if (compare(node, indexZ, id) < 0) {
+            Node[] parts = split(node.right, indexZ, id);
+            return new Node[]{node.with(node.left, parts[0]), parts[1]};
+        }
+
+        Node[] parts = split(node.left, indexZ, id);
+        return new Node[]{parts[0], node.with(parts[1], node.right)};
+    }
+
+    /*
+     * Splits the tree into nodes ordered before or equal to (indexZ, id) and all others
+     */
+    private static Node[] splitAfter(Node node, int indexZ, UUID id) {
+        if (node == null)
+            return new Node[2];
+
+        if (compare(node, indexZ, id) <= 0) {
+            Node[] parts = splitAfter(node.right, indexZ, id);
+            return new Node[]{node.with(node.left, parts[0]), parts[1]};
+        }
+
+        Node[] parts = splitAfter(node.left, indexZ, id);
+        return new Node[]{parts[0], node.with(parts[1], node.right)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority)
+            return left.with(left.left, merge(left.right, right));
+
+        return right.with(merge(left, right.left), right.right);
+    }
+
+    private static int compare(Node node, int indexZ, UUID id) {
+        int result = Integer.compare(node.indexZ, indexZ);
+        return result != 0 ? result : node.id.compareTo(id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+
+    /*
+     * Immutable view of the index at the moment it was taken
+     */
+    public static final class Snapshot {
+
+        private final Node root;
+
+        private Snapshot(Node root) {
+            this.root = root;
+        }
+
+        public int size() {
+            return WidgetZIndex.size(root);
+        }
+
+        /*
+         * Number of indexed widgets with indexZ strictly less than the given one
+         */
+        public long rank(int indexZ) {
+            long rank = 0;
+            Node node = root;
+            while (node != null) {
+                if (node.indexZ < indexZ) {
+                    rank += WidgetZIndex.size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return rank;
+        }
+
+        /*
+         * Widgets in indexZ order starting from the given position
+         */
+        public List<Widget> range(long offset, int limit) {
+            if (offset < 0 || offset >= size() || limit <= 0)
+                return new ArrayList<>();
+
+            List<Widget> widgets = new ArrayList<>(Math.min(limit, size()));
+            Deque<Node> path = new ArrayDeque<>();
+
+            Node node = root;
+            long skip = offset;
+            while (node != null) {
+                int leftSize = WidgetZIndex.size(node.left);
+                if (skip < leftSize) {
+                    path.push(node);
+                    node = node.left;
+                } else if (skip == leftSize) {
+                    path.push(node);
+                    break;
+                } else {
+                    skip -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+
+            while (!path.isEmpty() && widgets.size() < limit) {
+                Node current = path.pop();
+                widgets.add(current.widget);
+                for (Node next = current.right; next != null; next = next.left) {
+                    path.push(next);
+                }
+            }
+            return widgets;
+        }
+
+        /*
+         * Hands every widget to the consumer in indexZ order, the walk keeps only the path to the current node
+         */
+        public void forEach(Consumer<Widget> consumer) {
+            Deque<Node> path = new ArrayDeque<>();
+            for (Node node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            while (!path.isEmpty()) {
+                Node current = path.pop();
+                consumer.accept(current.widget);
+                for (Node next = current.right; next != null; next = next.left) {
+                    path.push(next);
+                }
+            }
+        }
+
+        /*
+         * Widgets in indexZ order with indexZ strictly greater than the given one
+         */
+        public List<Widget> rangeAfter(int indexZ, int limit) {
+            long offset = indexZ == Integer.MAX_VALUE ? size() : rank(indexZ + 1);
+            return range(offset, limit);
+        }
+    }
+
+    private static final class Node {
+
+        private final int indexZ;
+        private final UUID id;
+        private final Widget widget;
+        private final int priority;
+        private final int size;
+        private final Node left;
+        private final Node right;
+
+        private Node(int indexZ, UUID id, Widget widget, int priority, Node left, Node right) {
+            this.indexZ = indexZ;
+            this.id = id;
+            this.widget = widget;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        private Node with(Node left, Node right) {
+            if (left == this.left && right == this.right)
+                return this;
+            return new Node(indexZ, id, widget, priority, left, right);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/*
+ * Board lock of the in-memory repositories with its meters, registered once per repository:
+ * reads are optimistic and repeated under the read lock only if a writer got in the way,
+ * writers are timed while they wait for the write lock and while they hold it.
+ */
+final class WidgetBoardLock {
+
+    private final StampedLock stampedLock;
+    /* written and read only under the write lock */
+    private long writeLockedAt;
+
+    private final Timer lockWait;
+    private final Timer lockHold;
+    private final Counter readRetries;
+
+
+    WidgetBoardLock(MeterRegistry meterRegistry, String repositoryName) {
+        this.stampedLock = new StampedLock();
+
+        this.lockWait = Timer.builder("widget.repository.lock.wait")
+                .description("Time writers wait for the board write lock")
+                .tag("repository", repositoryName)
+                .register(meterRegistry);
+        this.lockHold = Timer.builder("widget.repository.lock.hold")
+                .description("Time writers hold the board write lock")
+                .tag("repository", repositoryName)
+                .register(meterRegistry);
+        this.readRetries = Counter.builder("widget.repository.read.retries")
+                .description("Optimistic reads repeated under the read lock")
+                .tag("repository", repositoryName)
+                .register(meterRegistry);
+    }
+
+    <T> T read(Supplier<T> reader) {
+        long stamp = stampedLock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (stampedLock.validate(stamp))
+                    return result;
+            } catch (RuntimeException e) {
+                /* torn read, retried under the lock */
+            }
+        }
+        readRetries.increment();
+
+        stamp = stampedLock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    /*
+     * For reads which fall back to something else than the read lock
+     */
+    long tryOptimisticRead() {
+        return stampedLock.tryOptimisticRead();
+    }
+
+    boolean validate(long stamp) {
+        return stampedLock.validate(stamp);
+    }
+
+    long writeLock() {
+        long requestedAt = System.nanoTime();
+        long stamp = stampedLock.writeLock();
+        writeLockedAt = System.nanoTime();
+        lockWait.record(writeLockedAt - requestedAt, NANOSECONDS);
+        return stamp;
+    }
+
+    void unlockWrite(long stamp) {
+        long heldNanos = System.nanoTime() - writeLockedAt;
+        stampedLock.unlockWrite(stamp);
+        lockHold.record(heldNanos, NANOSECONDS);
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Counts committed writes of the database profiles, the in-memory repositories version their own board.
+ * Writers move it once their transaction commits, so it never runs ahead of what readers can see.
+ */
+@Component
+public class WidgetBoardVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+
+    public long get() {
+        return version.get();
+    }
+
+    public long increment() {
+        return version.incrementAndGet();
+    }
+
+    public void incrementAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment();
+            }
+        });
+    }
+}
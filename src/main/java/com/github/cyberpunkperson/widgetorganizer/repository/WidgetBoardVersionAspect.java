@@ -0,0 +1,28 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/*
+ * Moves the WidgetBoardVersion after every write of the Spring Data repository, whoever called it.
+ * Several writes of one transaction move it once each, the board version only has to grow.
+ */
+@Aspect
+@Component
+@Profile("jdbc")
+@RequiredArgsConstructor
+class WidgetBoardVersionAspect {
+
+    private final WidgetBoardVersion boardVersion;
+
+
+    @AfterReturning("target(com.github.cyberpunkperson.widgetorganizer.repository.WidgetJDBCRepository) && " +
+            "(execution(* save*(..)) || execution(* delete*(..)) || execution(* shiftIndexZ(..)) || " +
+            "execution(* moveIndexZ(..)) || execution(* clearIndex*(..)))")
+    public void moveBoardVersion() {
+        boardVersion.incrementAfterCommit();
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+/*
+ * Lets the Spring Data repository report the shared WidgetBoardVersion
+ */
+public interface WidgetBoardVersionFragment {
+
+    long boardVersion();
+}
@@ -0,0 +1,15 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+class WidgetBoardVersionFragmentImpl implements WidgetBoardVersionFragment {
+
+    private final WidgetBoardVersion boardVersion;
+
+
+    @Override
+    public long boardVersion() {
+        return boardVersion.get();
+    }
+}
@@ -1,23 +1,41 @@
 package com.github.cyberpunkperson.widgetorganizer.repository;
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.index.WidgetZIndex;
+import com.github.cyberpunkperson.widgetorganizer.repository.index.WidgetRTree;
+import com.github.cyberpunkperson.widgetorganizer.repository.journal.WidgetJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.validation.Valid;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
 import static java.util.Comparator.comparing;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 
 @Repository
@@ -26,98 +44,323 @@ import static java.util.stream.Collectors.toMap;
 public class WidgetCashRepository implements WidgetRepository {
 
     private final Map<UUID, Widget> widgetCash;
-    private final ReentrantReadWriteLock readWriteLock;
+    private final WidgetZIndex widgetZIndex;
+    private final WidgetRTree widgetRTree;
+    private final WidgetBoardLock boardLock;
+
+    /*
+     * Every write publishes a new board version, the superseded ones stay readable for the retention window.
+     * Versions share the unchanged part of the z-index, so a write costs O(log n) and readers never block.
+     * Stored widgets are never changed in place, otherwise old versions would change with them:
+     * saved widgets are taken over as they are, mergers shift copies and point lookups hand out copies.
+     */
+    private final ConcurrentNavigableMap<Long, BoardVersion> retainedVersions;
+    private volatile BoardVersion boardVersion;
+    private final Duration snapshotRetention;
+
+    /*
+     * Present with widget-organizer.journal.enabled, every write is logged before the board changes
+     */
+    private final WidgetJournal widgetJournal;
 
 
     public WidgetCashRepository() {
-        this.widgetCash = new HashMap<>();
-        this.readWriteLock = new ReentrantReadWriteLock();
+        this(Duration.ofSeconds(30), null);
     }
 
-    @Override
-    public Optional<Widget> findById(UUID widgetId) {
-        readWriteLock.readLock().lock();
+    public WidgetCashRepository(Duration snapshotRetention, @Nullable WidgetJournal widgetJournal) {
+        this(snapshotRetention, widgetJournal, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetCashRepository(@Value("${widget-organizer.snapshot-retention:30s}") Duration snapshotRetention,
+                                @Nullable WidgetJournal widgetJournal, MeterRegistry meterRegistry) {
+        this.widgetCash = new ConcurrentHashMap<>();
+        this.widgetZIndex = new WidgetZIndex();
+        this.widgetRTree = new WidgetRTree();
+        this.boardLock = new WidgetBoardLock(meterRegistry, "cash");
+        this.retainedVersions = new ConcurrentSkipListMap<>();
+        this.boardVersion = new BoardVersion(0, widgetZIndex.snapshot());
+        this.snapshotRetention = snapshotRetention;
+        this.widgetJournal = widgetJournal;
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (isNull(widgetJournal))
+            return;
+
+        Map<UUID, Widget> recoveredWidgets = widgetJournal.recover();
+        long stamp = boardLock.writeLock();
         try {
-            return Optional.ofNullable(widgetCash.get(widgetId));
+            this.widgetCash.putAll(recoveredWidgets);
+            this.widgetZIndex.load(recoveredWidgets.values());
+            this.widgetRTree.load(recoveredWidgets.values());
+            publishVersion();
         } finally {
-            readWriteLock.readLock().unlock();
+            boardLock.unlockWrite(stamp);
         }
+        widgetJournal.scheduleSnapshots(this::checkpoint);
+    }
+
+    /*
+     * Snapshot on shutdown, so the next start has no log to replay
+     */
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        if (nonNull(widgetJournal))
+            widgetJournal.checkpoint();
+    }
+
+    /*
+     * Stored widgets are never changed in place, copying the references in a validated read is enough
+     */
+    private WidgetJournal.Checkpoint checkpoint() {
+        return boardLock.read(() -> new WidgetJournal.Checkpoint(widgetJournal.lastSequence(), new ArrayList<>(widgetCash.values())));
     }
 
+    /*
+     * Point lookups go to the concurrent map without any lock
+     */
+    @Override
+    public Optional<Widget> findById(UUID widgetId) {
+        return Optional.ofNullable(widgetCash.get(widgetId))
+                .map(widget -> widget.toBuilder().build());
+    }
+
+    @Override
+    public Set<UUID> findExistingIds(Collection<UUID> widgetIds) {
+        return widgetIds.stream()
+                .filter(widgetCash::containsKey)
+                .collect(toSet());
+    }
+
+    /*
+     * The current version is looked up in the map, a superseded one or one a writer got in the way of
+     * is walked in its snapshot, O(n)
+     */
+    @Override
+    public Optional<Widget> findById(UUID widgetId, long version) {
+        WidgetZIndex.Snapshot snapshot = snapshotOf(version);
+
+        long stamp = boardLock.tryOptimisticRead();
+        Widget currentWidget = widgetCash.get(widgetId);
+        if (boardVersion.version == version && boardLock.validate(stamp))
+            return Optional.ofNullable(currentWidget).map(widget -> widget.toBuilder().build());
+
+        List<Widget> foundWidgets = new ArrayList<>(1);
+        snapshot.forEach(widget -> {
+            if (widgetId.equals(widget.getId()))
+                foundWidgets.add(widget.toBuilder().build());
+        });
+        return foundWidgets.stream().findFirst();
+    }
+
+    /*
+     * Stored widgets are handed out as they are, they must not be changed
+     */
     @Override
     public List<Widget> findAll() {
-        readWriteLock.readLock().lock();
-        try {
-            return new ArrayList<>(widgetCash.values());
-        } finally {
-            readWriteLock.readLock().unlock();
-        }
+        return boardLock.read(() -> new ArrayList<>(widgetCash.values()));
     }
 
     @Override
     public Page<Widget> findAll(Pageable pageable) {
-        readWriteLock.readLock().lock();
-        try {
+        return boardLock.read(() -> {
             int startIndex = pageable.getPageNumber() * pageable.getPageSize();
             int endIndex = startIndex + pageable.getPageSize();
 
             return new PageImpl<>(new ArrayList<>(widgetCash.values()).subList(startIndex, endIndex));
-        } finally {
-            readWriteLock.readLock().unlock();
-        }
+        });
     }
 
     @Override
     public Page<Widget> findAllSortedByIndexZ(Pageable pageable) {
-        readWriteLock.readLock().lock();
-        try {
-            int startIndex = pageable.getPageNumber() * pageable.getPageSize();
+        return findAllSortedByIndexZ(pageable, boardVersion.snapshot);
+    }
 
-            List<Widget> sortedWidgets = widgetCash.values().stream()
-                    .sorted(Comparator.comparingInt(Widget::getIndexZ))
-                    .collect(toList());
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return findAllSortedByIndexZ(pageable, snapshotOf(version));
+    }
 
-            int pageLastIndex = (startIndex + pageable.getPageSize());
-            int endIndex = Math.min(pageLastIndex, sortedWidgets.size());
-            return new PageImpl<>(sortedWidgets.subList(startIndex, endIndex));
-        } finally {
-            readWriteLock.readLock().unlock();
-        }
+    private Page<Widget> findAllSortedByIndexZ(Pageable pageable, WidgetZIndex.Snapshot snapshot) {
+        List<Widget> pageWidgets = snapshot.range(pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(pageWidgets, pageable, snapshot.size());
+    }
+
+    @Override
+    public long currentVersion() {
+        return boardVersion.version;
+    }
+
+    @Override
+    public long boardVersion() {
+        return boardVersion.version;
+    }
+
+    private WidgetZIndex.Snapshot snapshotOf(long version) {
+        BoardVersion currentVersion = boardVersion;
+        if (currentVersion.version == version)
+            return currentVersion.snapshot;
+
+        BoardVersion retainedVersion = retainedVersions.get(version);
+        if (isNull(retainedVersion) || retainedVersion.isExpired(System.currentTimeMillis(), snapshotRetention))
+            throw new NoSuchElementException(String.format("Board version '%d' is not retained", version));
+        return retainedVersion.snapshot;
+    }
+
+    @Override
+    public List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit) {
+        return boardVersion.snapshot.rangeAfter(indexZ, limit);
+    }
+
+    @Override
+    public List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit, long version) {
+        return snapshotOf(version).rangeAfter(indexZ, limit);
+    }
+
+    /*
+     * Walks the snapshot current when the walk starts, writes published meanwhile are not seen
+     */
+    @Override
+    public void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        boardVersion.snapshot.forEach(consumer);
+    }
+
+    @Override
+    public long countByIndexZLessThan(Integer indexZ) {
+        return boardVersion.snapshot.rank(indexZ);
+    }
+
+    @Override
+    public long count() {
+        return widgetCash.size();
     }
 
     @Override
     public List<Widget> findAllSortedByWidthAndHeight() {
-        readWriteLock.readLock().lock();
-        try {
-            return widgetCash.values().stream()
-                    .sorted(comparing(Widget::getMaxCoordinateX)
-                            .thenComparing(Widget::getCoordinateY))
-                    .collect(toList());
-        } finally {
-            readWriteLock.readLock().unlock();
+        return boardLock.read(() -> widgetCash.values().stream()
+                .sorted(comparing(Widget::getMaxCoordinateX)
+                        .thenComparing(Widget::getCoordinateY))
+                .collect(toList()));
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height) {
+        List<Widget> foundWidgets = boardLock.read(() -> widgetRTree.findContained(0, 0, width, height));
+        foundWidgets.sort(Comparator.comparingInt(Widget::getIndexZ));
+        return foundWidgets;
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable) {
+        return findAllByViewport(new Viewport(0, 0, width, height, CONTAINS), pageable).getContent();
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable, long version) {
+        return findAllByViewport(new Viewport(0, 0, width, height, CONTAINS), pageable, version).getContent();
+    }
+
+    @Override
+    public Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable) {
+        List<Widget> foundWidgets = boardLock.read(() -> findInRTree(viewport));
+        foundWidgets.sort(Comparator.comparingInt(Widget::getIndexZ));
+        return page(foundWidgets, pageable);
+    }
+
+    /*
+     * The r-tree holds the current version only, a superseded one is filtered out of its snapshot, O(n)
+     */
+    @Override
+    public Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable, long version) {
+        WidgetZIndex.Snapshot snapshot = snapshotOf(version);
+        List<Widget> foundWidgets = boardLock.read(() -> boardVersion.version == version ? findInRTree(viewport) : null);
+        if (nonNull(foundWidgets)) {
+            foundWidgets.sort(Comparator.comparingInt(Widget::getIndexZ));
+        } else {
+            List<Widget> viewportWidgets = new ArrayList<>();
+            snapshot.forEach(widget -> {
+                if (isInViewport(widget, viewport))
+                    viewportWidgets.add(widget);
+            });
+            foundWidgets = viewportWidgets;
         }
+        return page(foundWidgets, pageable);
+    }
+
+    private List<Widget> findInRTree(Viewport viewport) {
+        return CONTAINS.equals(viewport.getMode())
+                ? widgetRTree.findContained(viewport.getMinX(), viewport.getMinY(), viewport.getMaxX(), viewport.getMaxY())
+                : widgetRTree.findIntersected(viewport.getMinX(), viewport.getMinY(), viewport.getMaxX(), viewport.getMaxY());
     }
 
+    /*
+     * Same bounds checks as the r-tree
+     */
+    private static boolean isInViewport(Widget widget, Viewport viewport) {
+        if (CONTAINS.equals(viewport.getMode()))
+            return viewport.getMinX() <= widget.getMinCoordinateX() && viewport.getMinY() <= widget.getMinCoordinateY()
+                    && widget.getMaxCoordinateX() <= viewport.getMaxX() && widget.getMaxCoordinateY() <= viewport.getMaxY();
+        return viewport.getMinX() <= widget.getMaxCoordinateX() && widget.getMinCoordinateX() <= viewport.getMaxX()
+                && viewport.getMinY() <= widget.getMaxCoordinateY() && widget.getMinCoordinateY() <= viewport.getMaxY();
+    }
+
+    private static Page<Widget> page(List<Widget> foundWidgets, Pageable pageable) {
+        int startIndex = (int) Math.min(pageable.getOffset(), foundWidgets.size());
+        int endIndex = Math.min(startIndex + pageable.getPageSize(), foundWidgets.size());
+        return new PageImpl<>(new ArrayList<>(foundWidgets.subList(startIndex, endIndex)), pageable, foundWidgets.size());
+    }
     @Override
     public List<Widget> saveWidgets(@Valid List<Widget> widgets) {
 
-        readWriteLock.writeLock().lock();
-
-        Map<UUID, Widget> preparedWidget = widgets.stream()
-                .peek(this::prepareWidget)
-                .collect(toMap(Widget::getId, widget -> widget));
+        long stamp = boardLock.writeLock();
         try {
+            Map<UUID, Widget> preparedWidget = widgets.stream()
+                    .peek(this::prepareWidget)
+                    .collect(toMap(Widget::getId, widget -> widget));
+            if (nonNull(widgetJournal))
+                widgetJournal.appendSave(preparedWidget.values());
+            try {
 
-            this.widgetCash.putAll(preparedWidget);
+                this.widgetCash.putAll(preparedWidget);
+                preparedWidget.values().forEach(this::indexWidget);
+                publishVersion();
 
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Widgets update failed: %s", e.getMessage()));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Widgets update failed: %s", e.getMessage()));
+            }
         } finally {
-            readWriteLock.writeLock().unlock();
+            boardLock.unlockWrite(stamp);
         }
         return widgets;
     }
 
+    private void publishVersion() {
+        long now = System.currentTimeMillis();
+
+        BoardVersion previousVersion = boardVersion;
+        previousVersion.supersededAt = now;
+        retainedVersions.put(previousVersion.version, previousVersion);
+        boardVersion = new BoardVersion(previousVersion.version + 1, widgetZIndex.snapshot());
+
+        for (Iterator<BoardVersion> versions = retainedVersions.values().iterator(); versions.hasNext(); ) {
+            if (!versions.next().isExpired(now, snapshotRetention))
+                break;
+            versions.remove();
+        }
+    }
+
+    private void indexWidget(Widget widget) {
+        if (isNull(widget.getIndexZ())) {
+            this.widgetZIndex.remove(widget.getId());
+        } else {
+            this.widgetZIndex.put(widget);
+        }
+        this.widgetRTree.put(widget);
+    }
+
     private void prepareWidget(Widget widget) {
         if (isNull(widget.getId())) {
             widget.setId(UUID.randomUUID());
@@ -134,11 +377,36 @@ public class WidgetCashRepository implements WidgetRepository {
     @Override
     @Transactional
     public void deleteById(UUID widgetId) {
-        readWriteLock.writeLock().lock();
+        long stamp = boardLock.writeLock();
         try {
+            if (!this.widgetCash.containsKey(widgetId))
+                return;
+
+            if (nonNull(widgetJournal))
+                widgetJournal.appendDelete(widgetId);
             this.widgetCash.remove(widgetId);
+            this.widgetZIndex.remove(widgetId);
+            this.widgetRTree.remove(widgetId);
+            publishVersion();
         } finally {
-            readWriteLock.writeLock().unlock();
+            boardLock.unlockWrite(stamp);
+        }
+    }
+
+
+    private static final class BoardVersion {
+
+        private final long version;
+        private final WidgetZIndex.Snapshot snapshot;
+        private volatile long supersededAt;
+
+        private BoardVersion(long version, WidgetZIndex.Snapshot snapshot) {
+            this.version = version;
+            this.snapshot = snapshot;
+        }
+
+        private boolean isExpired(long now, Duration retention) {
+            return supersededAt > 0 && now - supersededAt > retention.toMillis();
         }
     }
 }
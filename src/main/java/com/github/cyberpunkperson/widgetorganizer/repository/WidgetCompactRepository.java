@@ -0,0 +1,27 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetColumnStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.validation.annotation.Validated;
+
+/*
+ * Keeps the board in primitive columns on heap
+ */
+@Repository
+@Validated
+@Profile("compact")
+public class WidgetCompactRepository extends WidgetStoreRepository {
+
+    public WidgetCompactRepository() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetCompactRepository(MeterRegistry meterRegistry) {
+        super(new WidgetColumnStore(), meterRegistry, "compact");
+    }
+}
@@ -1,28 +1,47 @@
 package com.github.cyberpunkperson.widgetorganizer.repository;
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
 import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
 
 @Profile("jdbc")
-public interface WidgetJDBCRepository extends JpaRepository<Widget, UUID>, WidgetRepository {
+public interface WidgetJDBCRepository extends JpaRepository<Widget, UUID>, WidgetRepository, WidgetBoardVersionFragment {
 
     @Transactional(isolation = READ_COMMITTED, readOnly = true)
     Optional<Widget> findById(UUID widgetId);
 
+    @Override
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    @Query("select w.id from Widget w where w.id in :widgetIds")
+    Set<UUID> findExistingIds(@Param("widgetIds") Collection<UUID> widgetIds);
+
     @Transactional(isolation = READ_COMMITTED, readOnly = true)
     List<Widget> findAll();
 
@@ -37,10 +56,109 @@ public interface WidgetJDBCRepository extends JpaRepository<Widget, UUID>, Widge
         return findByOrderByIndexZ(pageable);
     }
 
+    /*
+     * Database reads are not versioned, pages are read from the committed state
+     */
+    @Override
+    default Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return findByOrderByIndexZ(pageable);
+    }
+
+    @Override
+    default long currentVersion() {
+        return 0;
+    }
+
+    /*
+     * Commits are counted in WidgetBoardVersion, WidgetBoardVersionAspect moves it after every write of this repository
+     */
+    @Override
+    long boardVersion();
+
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    List<Widget> findByIndexZGreaterThanOrderByIndexZ(Integer indexZ, Pageable pageable);
+
+    @Override
+    default List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit) {
+        return findByIndexZGreaterThanOrderByIndexZ(indexZ, PageRequest.of(0, limit));
+    }
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    Stream<Widget> streamByOrderByIndexZ();
+
+    /*
+     * Widgets come from a forward-only result set, which stays open for the surrounding transaction
+     */
+    @Override
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    default void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        try (Stream<Widget> widgets = streamByOrderByIndexZ()) {
+            widgets.forEach(consumer);
+        }
+    }
+
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    long countByIndexZLessThan(Integer indexZ);
+
     @Transactional(isolation = READ_COMMITTED, readOnly = true)
     @Query("select w from Widget w order by  w.maxCoordinateX asc, w.maxCoordinateY asc")
     List<Widget> findAllSortedByWidthAndHeight();
 
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    @Query("select w from Widget w " +
+            "where w.minCoordinateX >= 0 and w.minCoordinateY >= 0 and w.maxCoordinateX <= :maxX and w.maxCoordinateY <= :maxY " +
+            "order by w.indexZ")
+    List<Widget> findAllInsideArea(@Param("maxX") Float maxX, @Param("maxY") Float maxY);
+
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    @Query("select w from Widget w " +
+            "where w.minCoordinateX >= 0 and w.minCoordinateY >= 0 and w.maxCoordinateX <= :maxX and w.maxCoordinateY <= :maxY " +
+            "order by w.indexZ")
+    List<Widget> findAllInsideArea(@Param("maxX") Float maxX, @Param("maxY") Float maxY, Pageable pageable);
+
+    @Override
+    default List<Widget> findAllByArea(Integer width, Integer height) {
+        return findAllInsideArea(width.floatValue(), height.floatValue());
+    }
+
+    @Override
+    default List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable) {
+        return findAllInsideArea(width.floatValue(), height.floatValue(), pageable);
+    }
+
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    @Query("select w from Widget w " +
+            "where w.minCoordinateX >= :minX and w.minCoordinateY >= :minY and w.maxCoordinateX <= :maxX and w.maxCoordinateY <= :maxY " +
+            "order by w.indexZ")
+    Page<Widget> findAllContainedIn(@Param("minX") Float minX, @Param("minY") Float minY,
+                                    @Param("maxX") Float maxX, @Param("maxY") Float maxY, Pageable pageable);
+
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    @Query("select w from Widget w " +
+            "where w.minCoordinateX <= :maxX and w.maxCoordinateX >= :minX and w.minCoordinateY <= :maxY and w.maxCoordinateY >= :minY " +
+            "order by w.indexZ")
+    Page<Widget> findAllIntersecting(@Param("minX") Float minX, @Param("minY") Float minY,
+                                     @Param("maxX") Float maxX, @Param("maxY") Float maxY, Pageable pageable);
+
+    @Override
+    default Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable) {
+        Float minX = viewport.getMinX().floatValue();
+        Float minY = viewport.getMinY().floatValue();
+        Float maxX = viewport.getMaxX().floatValue();
+        Float maxY = viewport.getMaxY().floatValue();
+
+        return CONTAINS.equals(viewport.getMode())
+                ? findAllContainedIn(minX, minY, maxX, maxY, pageable)
+                : findAllIntersecting(minX, minY, maxX, maxY, pageable);
+    }
+
+    /*
+     * The unique indexZ is checked row by row and rows are updated in no particular order,
+     * so the stored widgets drop their indexZ first, a shifted run can't collide with itself then
+     */
     @Override
     @Transactional
     default List<Widget> saveWidgets(List<Widget> widgets) {
@@ -48,6 +166,9 @@ public interface WidgetJDBCRepository extends JpaRepository<Widget, UUID>, Widge
                 .filter(widget -> nonNull(widget.getId()))
                 .collect(toList());
 
+        if (existWidgets.size() > 1)
+            clearIndexesZ(existWidgets.stream().map(Widget::getId).collect(toList()));
+
         if (existWidgets.size() == widgets.size())
             return saveAll(existWidgets);
 
@@ -60,4 +181,72 @@ public interface WidgetJDBCRepository extends JpaRepository<Widget, UUID>, Widge
 
         return widgets;
     }
+
+    @Query("select max(w.indexZ) from Widget w")
+    Integer findMaxIndexZ();
+
+    @Query("select min(w.indexZ) from Widget w")
+    Integer findMinIndexZ();
+
+    boolean existsByIndexZ(Integer indexZ);
+
+    /*
+     * Walks the unique indexZ index up from the given indexZ and stops at the first widget without a neighbour above
+     */
+    @Query("select w.indexZ from Widget w " +
+            "where w.indexZ >= :indexZ and not exists (select n.id from Widget n where n.indexZ = w.indexZ + 1) " +
+            "order by w.indexZ")
+    List<Integer> findRunEnd(@Param("indexZ") Integer indexZ, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Widget w set w.indexZ = null where w.id = :widgetId")
+    void clearIndexZ(@Param("widgetId") UUID widgetId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Widget w set w.indexZ = null where w.id in :widgetIds")
+    void clearIndexesZ(@Param("widgetIds") Collection<UUID> widgetIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Widget w set w.indexZ = w.indexZ + :offset where w.indexZ between :fromIndexZ and :toIndexZ")
+    int moveIndexZ(@Param("fromIndexZ") Integer fromIndexZ, @Param("toIndexZ") Integer toIndexZ, @Param("offset") Integer offset);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Widget w set w.indexZ = w.indexZ + :offset, w.lastModifiedDate = :lastModifiedDate " +
+            "where w.indexZ between :fromIndexZ and :toIndexZ")
+    int moveIndexZ(@Param("fromIndexZ") Integer fromIndexZ, @Param("toIndexZ") Integer toIndexZ, @Param("offset") Integer offset,
+                   @Param("lastModifiedDate") ZonedDateTime lastModifiedDate);
+
+    /*
+     * Gives the widget its indexZ the same way the shift merger does, but the engaged run is shifted by two set-based updates,
+     * the widget itself is left to be saved. Returns the number of shifted widgets.
+     * The unique indexZ is checked row by row, so the run is parked past the board edge first and moved one above its place then.
+     * The stored widget drops its indexZ beforehand, so it neither stops the run nor collides with it.
+     */
+    @Transactional
+    default int shiftIndexZ(Widget widget) {
+        if (nonNull(widget.getId()))
+            clearIndexZ(widget.getId());
+
+        Integer maxIndexZ = findMaxIndexZ();
+        if (isNull(widget.getIndexZ())) {
+            widget.setIndexZ(isNull(maxIndexZ) ? 0 : maxIndexZ + 1);
+            return 0;
+        }
+        if (!existsByIndexZ(widget.getIndexZ()))
+            return 0;
+
+        int fromIndexZ = widget.getIndexZ();
+        int toIndexZ = findRunEnd(fromIndexZ, PageRequest.of(0, 1)).get(0);
+
+        long runLength = (long) toIndexZ - fromIndexZ + 1;
+        long aboveOffset = (long) maxIndexZ - fromIndexZ + 1;
+        long parkingOffset = maxIndexZ + runLength <= Integer.MAX_VALUE && aboveOffset < Integer.MAX_VALUE
+                ? aboveOffset
+                : (long) findMinIndexZ() - toIndexZ - 1;
+        if (fromIndexZ + parkingOffset < Integer.MIN_VALUE || parkingOffset <= Integer.MIN_VALUE + 1)
+            throw new IllegalStateException("There is no free indexZ range to shift the widgets through");
+
+        moveIndexZ(fromIndexZ, toIndexZ, (int) parkingOffset);
+        return moveIndexZ((int) (fromIndexZ + parkingOffset), (int) (toIndexZ + parkingOffset), (int) (1 - parkingOffset), ZonedDateTime.now());
+    }
 }
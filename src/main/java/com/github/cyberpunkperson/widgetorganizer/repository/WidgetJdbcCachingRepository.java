@@ -0,0 +1,241 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.transaction.annotation.Isolation.READ_COMMITTED;
+
+/*
+ * Read-through cache in front of the jdbc profile for widgets by id and for pages in indexZ order.
+ * Written and shifted widgets are evicted by id and every page is dropped once the writing transaction commits.
+ * A read that raced with a commit may have loaded the old state, so it is kept only if no eviction happened meanwhile.
+ * Reads inside a writing transaction go to the database, they have to see its own changes.
+ * The repository behind moves the shared WidgetBoardVersion once a write commits, ahead of the eviction,
+ * so a racing read is told about it by the version.
+ */
+@Primary
+@Repository
+@Profile("jdbc")
+public class WidgetJdbcCachingRepository implements WidgetRepository {
+
+    private final WidgetRepository widgetRepository;
+
+    private final EntityManager entityManager;
+
+    private final Cache<UUID, Widget> widgets;
+
+    private final Cache<Object, Page<Widget>> pages;
+
+    private final WidgetBoardVersion boardVersion;
+
+
+    public WidgetJdbcCachingRepository(WidgetJDBCRepository widgetJDBCRepository, EntityManager entityManager,
+                                       WidgetBoardVersion boardVersion, MeterRegistry meterRegistry,
+                                       @Value("${widget-organizer.cache.widgets:10000}") long widgetsSize,
+                                       @Value("${widget-organizer.cache.pages:1000}") long pagesSize) {
+        this.widgetRepository = widgetJDBCRepository;
+        this.entityManager = entityManager;
+        this.boardVersion = boardVersion;
+        this.widgets = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder().maximumSize(widgetsSize).recordStats().build(), "widgets");
+        this.pages = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder().maximumSize(pagesSize).recordStats().build(), "widget-pages");
+    }
+
+    @Override
+    public Optional<Widget> findById(UUID widgetId) {
+        return Optional.ofNullable(read(widgets, widgetId, () -> widgetRepository.findById(widgetId).orElse(null)))
+                .map(WidgetJdbcCachingRepository::copy);
+    }
+
+    @Override
+    public Set<UUID> findExistingIds(Collection<UUID> widgetIds) {
+        return widgetRepository.findExistingIds(widgetIds);
+    }
+
+    @Override
+    public List<Widget> findAll() {
+        return widgetRepository.findAll();
+    }
+
+    @Override
+    public Page<Widget> findAll(Pageable pageable) {
+        return widgetRepository.findAll(pageable);
+    }
+
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable) {
+        return read(pages, pageable, () -> widgetRepository.findAllSortedByIndexZ(pageable))
+                .map(WidgetJdbcCachingRepository::copy);
+    }
+
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return findAllSortedByIndexZ(pageable);
+    }
+
+    @Override
+    public long currentVersion() {
+        return widgetRepository.currentVersion();
+    }
+
+    @Override
+    public long boardVersion() {
+        return boardVersion.get();
+    }
+
+    @Override
+    public List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit) {
+        return read(pages, List.of(indexZ, limit), () -> new PageImpl<>(widgetRepository.findAllByIndexZGreaterThan(indexZ, limit)))
+                .map(WidgetJdbcCachingRepository::copy)
+                .getContent();
+    }
+
+    /*
+     * Walked widgets bypass the cache and are detached once the consumer is done with them,
+     * so the persistence context does not grow with the board
+     */
+    @Override
+    @Transactional(isolation = READ_COMMITTED, readOnly = true)
+    public void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        widgetRepository.forEachSortedByIndexZ(widget -> {
+            consumer.accept(widget);
+            entityManager.detach(widget);
+        });
+    }
+
+    @Override
+    public long countByIndexZLessThan(Integer indexZ) {
+        return widgetRepository.countByIndexZLessThan(indexZ);
+    }
+
+    @Override
+    public long count() {
+        return widgetRepository.count();
+    }
+
+    @Override
+    public List<Widget> findAllSortedByWidthAndHeight() {
+        return widgetRepository.findAllSortedByWidthAndHeight();
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height) {
+        return widgetRepository.findAllByArea(width, height);
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable) {
+        return widgetRepository.findAllByArea(width, height, pageable);
+    }
+
+    @Override
+    public Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable) {
+        return widgetRepository.findAllByViewport(viewport, pageable);
+    }
+
+    /*
+     * Shifted widgets are among the saved ones, the mergers hand over every widget they moved
+     */
+    @Override
+    public List<Widget> saveWidgets(List<Widget> widgets) {
+        List<Widget> savedWidgets = widgetRepository.saveWidgets(widgets);
+        List<UUID> widgetIds = savedWidgets.stream()
+                .map(Widget::getId)
+                .collect(toList());
+        evictAfterCommit(() -> this.widgets.invalidateAll(widgetIds));
+        return savedWidgets;
+    }
+
+    @Override
+    public void deleteById(UUID widgetId) {
+        widgetRepository.deleteById(widgetId);
+        evictAfterCommit(() -> widgets.invalidate(widgetId));
+    }
+
+    /*
+     * For shifts done in the database, which move the run of shiftedCount widgets starting at the widget's indexZ
+     * without telling their ids, the run is found among the cached widgets by their indexZ before the shift
+     */
+    public void evictShifted(Widget widget, int shiftedCount) {
+        UUID widgetId = widget.getId();
+        long fromIndexZ = widget.getIndexZ();
+        long toIndexZ = fromIndexZ + shiftedCount;
+        evictAfterCommit(() -> {
+            if (nonNull(widgetId))
+                widgets.invalidate(widgetId);
+            if (shiftedCount > 0)
+                widgets.asMap().values().removeIf(cachedWidget -> cachedWidget.getIndexZ() >= fromIndexZ && cachedWidget.getIndexZ() < toIndexZ);
+        });
+    }
+
+    private <K, V> V read(Cache<K, V> cache, K key, Supplier<V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return loader.get();
+
+        V value = cache.getIfPresent(key);
+        if (nonNull(value))
+            return value;
+
+        long loadVersion = boardVersion.get();
+        value = loader.get();
+        if (isNull(value))
+            return null;
+        cache.put(key, value);
+        /* Either the eviction runs after the put and removes it, or it ran before and the board version tells */
+        if (loadVersion != boardVersion.get())
+            cache.invalidate(key);
+        return value;
+    }
+
+    private void evictAfterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(eviction);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(eviction);
+            }
+        });
+    }
+
+    private void evict(Runnable eviction) {
+        eviction.run();
+        pages.invalidateAll();
+    }
+
+    /*
+     * Cached widgets are shared between readers, each of them gets its own copy
+     */
+    private static Widget copy(Widget widget) {
+        return widget.toBuilder().build();
+    }
+}
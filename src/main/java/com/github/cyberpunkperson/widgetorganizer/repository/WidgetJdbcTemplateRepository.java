@@ -0,0 +1,297 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
+
+import javax.sql.DataSource;
+import javax.validation.Valid;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
+import static java.util.Objects.isNull;
+
+/*
+ * Same board as in the jdbc profile, but widgets are read and written with plain SQL:
+ * rows are mapped by hand straight from the result set, there is no persistence context to snapshot and dirty check,
+ * and saves are JDBC batches. The schema comes from db/schema.sql instead of Hibernate.
+ */
+@Repository
+@Validated
+@Profile("jdbc-template")
+public class WidgetJdbcTemplateRepository implements WidgetRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String COLUMNS = "id, created_date, last_modified_date, coordinatex, coordinatey, indexz, width, height, " +
+            "max_coordinatex, min_coordinatex, max_coordinatey, min_coordinatey";
+
+    private static final String INSERT = "insert into widget (" + COLUMNS + ") values (:id, :createdDate, :lastModifiedDate, " +
+            ":coordinateX, :coordinateY, :indexZ, :width, :height, :maxCoordinateX, :minCoordinateX, :maxCoordinateY, :minCoordinateY)";
+
+    private static final String UPDATE = "update widget set created_date = :createdDate, last_modified_date = :lastModifiedDate, " +
+            "coordinatex = :coordinateX, coordinatey = :coordinateY, indexz = :indexZ, width = :width, height = :height, " +
+            "max_coordinatex = :maxCoordinateX, min_coordinatex = :minCoordinateX, " +
+            "max_coordinatey = :maxCoordinateY, min_coordinatey = :minCoordinateY where id = :id";
+
+    private static final String CLEAR_INDEX_Z = "update widget set indexz = null where id = :id";
+
+    private static final String INSIDE_AREA = "min_coordinatex >= 0 and min_coordinatey >= 0 " +
+            "and max_coordinatex <= :maxX and max_coordinatey <= :maxY";
+
+    private static final String CONTAINED_IN = "min_coordinatex >= :minX and min_coordinatey >= :minY " +
+            "and max_coordinatex <= :maxX and max_coordinatey <= :maxY";
+
+    private static final String INTERSECTING = "min_coordinatex <= :maxX and max_coordinatex >= :minX " +
+            "and min_coordinatey <= :maxY and max_coordinatey >= :minY";
+
+    private static final RowMapper<Widget> WIDGET_MAPPER = WidgetJdbcTemplateRepository::mapWidget;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final WidgetBoardVersion boardVersion;
+
+
+    public WidgetJdbcTemplateRepository(DataSource dataSource, WidgetBoardVersion boardVersion) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(FETCH_SIZE);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.boardVersion = boardVersion;
+    }
+
+    @Override
+    public Optional<Widget> findById(UUID widgetId) {
+        return jdbcTemplate.query("select " + COLUMNS + " from widget where id = :id", Map.of("id", widgetId), WIDGET_MAPPER)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Set<UUID> findExistingIds(Collection<UUID> widgetIds) {
+        if (widgetIds.isEmpty())
+            return Set.of();
+        return new HashSet<>(jdbcTemplate.query("select id from widget where id in (:ids)", Map.of("ids", widgetIds),
+                (resultSet, row) -> resultSet.getObject(1, UUID.class)));
+    }
+
+    @Override
+    public List<Widget> findAll() {
+        return jdbcTemplate.query("select " + COLUMNS + " from widget", WIDGET_MAPPER);
+    }
+
+    @Override
+    public Page<Widget> findAll(Pageable pageable) {
+        return findAllSortedByIndexZ(pageable);
+    }
+
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable) {
+        List<Widget> widgets = jdbcTemplate.query("select " + COLUMNS + " from widget order by indexz limit :limit offset :offset",
+                pageParameters(pageable), WIDGET_MAPPER);
+        return PageableExecutionUtils.getPage(widgets, pageable, this::count);
+    }
+
+    /*
+     * Database reads are not versioned, pages are read from the committed state
+     */
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return findAllSortedByIndexZ(pageable);
+    }
+
+    @Override
+    public long currentVersion() {
+        return 0;
+    }
+
+    @Override
+    public long boardVersion() {
+        return boardVersion.get();
+    }
+
+    @Override
+    public List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit) {
+        return jdbcTemplate.query("select " + COLUMNS + " from widget where indexz > :indexZ order by indexz limit :limit",
+                Map.of("indexZ", indexZ, "limit", limit), WIDGET_MAPPER);
+    }
+
+    /*
+     * Rows are mapped one by one while the forward-only result set is fetched, FETCH_SIZE rows at a time
+     */
+    @Override
+    public void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        jdbcTemplate.query("select " + COLUMNS + " from widget order by indexz",
+                (RowCallbackHandler) resultSet -> consumer.accept(mapWidget(resultSet, resultSet.getRow())));
+    }
+
+    @Override
+    public long countByIndexZLessThan(Integer indexZ) {
+        return jdbcTemplate.queryForObject("select count(*) from widget where indexz < :indexZ", Map.of("indexZ", indexZ), Long.class);
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.getJdbcTemplate().queryForObject("select count(*) from widget", Long.class);
+    }
+
+    @Override
+    public List<Widget> findAllSortedByWidthAndHeight() {
+        return jdbcTemplate.query("select " + COLUMNS + " from widget order by max_coordinatex, max_coordinatey", WIDGET_MAPPER);
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height) {
+        return jdbcTemplate.query("select " + COLUMNS + " from widget where " + INSIDE_AREA + " order by indexz",
+                Map.of("maxX", width.floatValue(), "maxY", height.floatValue()), WIDGET_MAPPER);
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable) {
+        MapSqlParameterSource parameters = pageParameters(pageable)
+                .addValue("maxX", width.floatValue())
+                .addValue("maxY", height.floatValue());
+        return jdbcTemplate.query("select " + COLUMNS + " from widget where " + INSIDE_AREA +
+                " order by indexz limit :limit offset :offset", parameters, WIDGET_MAPPER);
+    }
+
+    @Override
+    public Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable) {
+        String condition = CONTAINS.equals(viewport.getMode()) ? CONTAINED_IN : INTERSECTING;
+        MapSqlParameterSource parameters = pageParameters(pageable)
+                .addValue("minX", viewport.getMinX().floatValue())
+                .addValue("minY", viewport.getMinY().floatValue())
+                .addValue("maxX", viewport.getMaxX().floatValue())
+                .addValue("maxY", viewport.getMaxY().floatValue());
+
+        List<Widget> widgets = jdbcTemplate.query("select " + COLUMNS + " from widget where " + condition +
+                " order by indexz limit :limit offset :offset", parameters, WIDGET_MAPPER);
+        return PageableExecutionUtils.getPage(widgets, pageable,
+                () -> jdbcTemplate.queryForObject("select count(*) from widget where " + condition, parameters, Long.class));
+    }
+
+    /*
+     * indexZ is unique and checked row by row, so when several stored widgets move they let their indexZ go first.
+     * New widgets are inserted last, after every widget they could collide with has moved.
+     */
+    @Override
+    @Transactional
+    public List<Widget> saveWidgets(@Valid List<Widget> widgets) {
+        ZonedDateTime now = now();
+        List<Widget> existWidgets = new ArrayList<>();
+        List<Widget> newWidgets = new ArrayList<>();
+        for (Widget widget : widgets) {
+            widget.setLastModifiedDate(now);
+            if (isNull(widget.getId())) {
+                widget.setId(UUID.randomUUID());
+                widget.setCreatedDate(now);
+                newWidgets.add(widget);
+            } else {
+                existWidgets.add(widget);
+            }
+        }
+
+        if (existWidgets.size() > 1) {
+            SqlParameterSource[] ids = existWidgets.stream()
+                    .map(widget -> new MapSqlParameterSource("id", widget.getId()))
+                    .toArray(SqlParameterSource[]::new);
+            jdbcTemplate.batchUpdate(CLEAR_INDEX_Z, ids);
+        }
+        if (!existWidgets.isEmpty()) {
+            int[] updatedRows = jdbcTemplate.batchUpdate(UPDATE, widgetParameters(existWidgets));
+            for (int index = 0; index < updatedRows.length; index++) {
+                if (updatedRows[index] == 0)
+                    throw new NoSuchElementException(String.format("Widget with id:'%s' does not exist", existWidgets.get(index).getId()));
+            }
+        }
+        if (!newWidgets.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, widgetParameters(newWidgets));
+        }
+        boardVersion.incrementAfterCommit();
+        return widgets;
+    }
+
+    @Override
+    public void deleteById(UUID widgetId) {
+        jdbcTemplate.update("delete from widget where id = :id", Map.of("id", widgetId));
+        boardVersion.incrementAfterCommit();
+    }
+
+    private static MapSqlParameterSource pageParameters(Pageable pageable) {
+        return new MapSqlParameterSource()
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+    }
+
+    private static SqlParameterSource[] widgetParameters(List<Widget> widgets) {
+        SqlParameterSource[] parameters = new SqlParameterSource[widgets.size()];
+        for (int index = 0; index < parameters.length; index++) {
+            Widget widget = widgets.get(index);
+            parameters[index] = new MapSqlParameterSource()
+                    .addValue("id", widget.getId())
+                    .addValue("createdDate", toTimestamp(widget.getCreatedDate()), Types.TIMESTAMP)
+                    .addValue("lastModifiedDate", toTimestamp(widget.getLastModifiedDate()), Types.TIMESTAMP)
+                    .addValue("coordinateX", widget.getCoordinateX(), Types.INTEGER)
+                    .addValue("coordinateY", widget.getCoordinateY(), Types.INTEGER)
+                    .addValue("indexZ", widget.getIndexZ(), Types.INTEGER)
+                    .addValue("width", widget.getWidth(), Types.INTEGER)
+                    .addValue("height", widget.getHeight(), Types.INTEGER)
+                    .addValue("maxCoordinateX", widget.getMaxCoordinateX(), Types.REAL)
+                    .addValue("minCoordinateX", widget.getMinCoordinateX(), Types.REAL)
+                    .addValue("maxCoordinateY", widget.getMaxCoordinateY(), Types.REAL)
+                    .addValue("minCoordinateY", widget.getMinCoordinateY(), Types.REAL);
+        }
+        return parameters;
+    }
+
+    private static Widget mapWidget(ResultSet resultSet, int rowNumber) throws SQLException {
+        return Widget.builder()
+                .id(resultSet.getObject(1, UUID.class))
+                .createdDate(toDate(resultSet.getTimestamp(2)))
+                .lastModifiedDate(toDate(resultSet.getTimestamp(3)))
+                .coordinateX(resultSet.getObject(4, Integer.class))
+                .coordinateY(resultSet.getObject(5, Integer.class))
+                .indexZ(resultSet.getObject(6, Integer.class))
+                .width(resultSet.getObject(7, Integer.class))
+                .height(resultSet.getObject(8, Integer.class))
+                .maxCoordinateX(resultSet.getObject(9, Float.class))
+                .minCoordinateX(resultSet.getObject(10, Float.class))
+                .maxCoordinateY(resultSet.getObject(11, Float.class))
+                .minCoordinateY(resultSet.getObject(12, Float.class))
+                .build();
+    }
+
+    private static Timestamp toTimestamp(ZonedDateTime date) {
+        return isNull(date) ? null : Timestamp.from(date.toInstant());
+    }
+
+    private static ZonedDateTime toDate(Timestamp timestamp) {
+        return isNull(timestamp) ? null : ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
+    }
+
+    /*
+     * Saved widgets get the same dates they are read back with
+     */
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
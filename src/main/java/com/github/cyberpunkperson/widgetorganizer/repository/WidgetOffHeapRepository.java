@@ -0,0 +1,28 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetOffHeapStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.validation.annotation.Validated;
+
+/*
+ * Keeps the board in direct memory outside of the heap, so very large boards add almost nothing to GC work.
+ * Size direct memory with -XX:MaxDirectMemorySize, about 72 bytes per widget plus 16 for the indexes.
+ */
+@Repository
+@Validated
+@Profile("offheap")
+public class WidgetOffHeapRepository extends WidgetStoreRepository {
+
+    public WidgetOffHeapRepository() {
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetOffHeapRepository(MeterRegistry meterRegistry) {
+        super(new WidgetOffHeapStore(), meterRegistry, "offheap");
+    }
+}
@@ -1,26 +1,93 @@
 package com.github.cyberpunkperson.widgetorganizer.repository;
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import javax.validation.Valid;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface WidgetRepository {
 
     Optional<Widget> findById(UUID widgetId);
 
+    /*
+     * Versioned reads answer as the board looked at the given version,
+     * repositories which keep no superseded versions answer from the current board
+     */
+    default Optional<Widget> findById(UUID widgetId, long version) {
+        return findById(widgetId);
+    }
+
+    /*
+     * Ids of the given ones which are on the board, one lookup for the whole collection
+     */
+    Set<UUID> findExistingIds(Collection<UUID> widgetIds);
+
     List<Widget> findAll();
 
     Page<Widget> findAll(Pageable pageable);
 
     Page<Widget> findAllSortedByIndexZ(Pageable pageable);
 
+    /*
+     * Same page as the board looked at the given version
+     */
+    Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version);
+
+    /*
+     * The newest version the board can be read at, versioned reads take it. Repositories which keep no superseded
+     * versions answer 0 and read the current board at any version
+     */
+    long currentVersion();
+
+    /*
+     * Grows with every committed write, whichever way the write reached the board, and never runs ahead of the commit.
+     * It only tells whether the board changed, unlike currentVersion the board is not promised to be readable at it.
+     * Repositories which version their board answer the same number for both
+     */
+    long boardVersion();
+
+    List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit);
+
+    default List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit, long version) {
+        return findAllByIndexZGreaterThan(indexZ, limit);
+    }
+
+    /*
+     * Hands every widget to the consumer in indexZ order without collecting the board, the consumer must not change them
+     */
+    void forEachSortedByIndexZ(Consumer<Widget> consumer);
+
+    long countByIndexZLessThan(Integer indexZ);
+
+    long count();
+
     List<Widget> findAllSortedByWidthAndHeight();
 
+    List<Widget> findAllByArea(Integer width, Integer height);
+
+    /*
+     * One page of the widgets inside the area in indexZ order, without counting the rest
+     */
+    List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable);
+
+    default List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable, long version) {
+        return findAllByArea(width, height, pageable);
+    }
+
+    Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable);
+
+    default Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable, long version) {
+        return findAllByViewport(viewport, pageable);
+    }
+
     List<Widget> saveWidgets(@Valid List<Widget> widgets);
 
     void deleteById(UUID widgetId);
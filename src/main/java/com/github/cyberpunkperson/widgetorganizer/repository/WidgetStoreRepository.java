@@ -0,0 +1,272 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import javax.validation.Valid;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
+import static java.util.Comparator.comparing;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/*
+ * Keeps the board in a widget store instead of Widget objects, widgets are materialized only when they are read.
+ * Area and viewport queries scan the bounds of every store row, O(n) per query without a spatial index such as the
+ * R-tree of the cash profile: the store profiles trade query time for memory. Board versions are not retained,
+ * every version reads the current board as in the jdbc profile.
+ */
+public abstract class WidgetStoreRepository implements WidgetRepository {
+
+    /* stores keep a null indexZ as Integer.MIN_VALUE and leave such rows out of the z-order */
+    private static final int NULL_INDEX_Z = Integer.MIN_VALUE;
+
+    private static final int EXPORT_CHUNK_SIZE = 1000;
+
+    private final WidgetStore widgetStore;
+    private final WidgetBoardLock boardLock;
+    /* written under the write lock */
+    private volatile long boardVersion;
+
+
+    protected WidgetStoreRepository(WidgetStore widgetStore, MeterRegistry meterRegistry, String repositoryName) {
+        this.widgetStore = widgetStore;
+        this.boardLock = new WidgetBoardLock(meterRegistry, repositoryName);
+    }
+
+    @Override
+    public Optional<Widget> findById(UUID widgetId) {
+        return boardLock.read(() -> {
+            int row = widgetStore.find(widgetId);
+            return row < 0 ? Optional.empty() : Optional.of(widgetStore.get(row));
+        });
+    }
+
+    @Override
+    public Set<UUID> findExistingIds(Collection<UUID> widgetIds) {
+        return boardLock.read(() -> widgetIds.stream()
+                .filter(widgetId -> widgetStore.find(widgetId) >= 0)
+                .collect(toSet()));
+    }
+
+    @Override
+    public List<Widget> findAll() {
+        return boardLock.read(() -> {
+            List<Widget> widgets = new ArrayList<>(widgetStore.size());
+            for (int row = 0; row < widgetStore.size(); row++) {
+                widgets.add(widgetStore.get(row));
+            }
+            return widgets;
+        });
+    }
+
+    @Override
+    public Page<Widget> findAll(Pageable pageable) {
+        return boardLock.read(() -> {
+            int startIndex = (int) Math.min(pageable.getOffset(), widgetStore.size());
+            int endIndex = Math.min(startIndex + pageable.getPageSize(), widgetStore.size());
+
+            List<Widget> widgets = new ArrayList<>(endIndex - startIndex);
+            for (int row = startIndex; row < endIndex; row++) {
+                widgets.add(widgetStore.get(row));
+            }
+            return new PageImpl<>(widgets, pageable, widgetStore.size());
+        });
+    }
+
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable) {
+        return boardLock.read(() -> {
+            int startIndex = (int) Math.min(pageable.getOffset(), widgetStore.zOrderSize());
+            int endIndex = Math.min(startIndex + pageable.getPageSize(), widgetStore.zOrderSize());
+            return new PageImpl<>(zOrderRange(startIndex, endIndex), pageable, widgetStore.zOrderSize());
+        });
+    }
+
+    @Override
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return findAllSortedByIndexZ(pageable);
+    }
+
+    @Override
+    public long currentVersion() {
+        return 0;
+    }
+
+    @Override
+    public long boardVersion() {
+        return boardVersion;
+    }
+
+    @Override
+    public List<Widget> findAllByIndexZGreaterThan(Integer indexZ, int limit) {
+        return boardLock.read(() -> {
+            int startIndex = indexZ == Integer.MAX_VALUE ? widgetStore.zOrderSize() : widgetStore.rank(indexZ + 1);
+            int endIndex = Math.min(startIndex + Math.max(limit, 0), widgetStore.zOrderSize());
+            return zOrderRange(startIndex, endIndex);
+        });
+    }
+
+    /*
+     * Rows are materialized a chunk at a time and writers are kept out only while a chunk is read.
+     * The walk is weakly consistent: the next chunk resumes at the last (indexZ, position among equal indexZ)
+     * of the previous one, a widget moved behind the walk meanwhile is met again and skipped by its id,
+     * a widget moved ahead of it is missed. The ids handed over are kept until the walk ends.
+     */
+    @Override
+    public void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        Set<UUID> handedOverIds = new HashSet<>();
+        Integer lastIndexZ = null;
+        int lastIndexZCount = 0;
+
+        while (true) {
+            List<Widget> chunk = zOrderChunk(lastIndexZ, lastIndexZCount);
+            if (chunk.isEmpty())
+                return;
+
+            for (Widget widget : chunk) {
+                if (handedOverIds.add(widget.getId()))
+                    consumer.accept(widget);
+
+                if (widget.getIndexZ().equals(lastIndexZ)) {
+                    lastIndexZCount++;
+                } else {
+                    lastIndexZ = widget.getIndexZ();
+                    lastIndexZCount = 1;
+                }
+            }
+        }
+    }
+
+    private List<Widget> zOrderChunk(Integer lastIndexZ, int lastIndexZCount) {
+        return boardLock.read(() -> {
+            int startIndex = isNull(lastIndexZ) ? 0 : Math.min(widgetStore.rank(lastIndexZ) + lastIndexZCount, widgetStore.zOrderSize());
+            int endIndex = Math.min(startIndex + EXPORT_CHUNK_SIZE, widgetStore.zOrderSize());
+            return zOrderRange(startIndex, endIndex);
+        });
+    }
+
+    @Override
+    public long countByIndexZLessThan(Integer indexZ) {
+        return boardLock.read(() -> widgetStore.rank(indexZ));
+    }
+
+    @Override
+    public long count() {
+        return widgetStore.size();
+    }
+
+    @Override
+    public List<Widget> findAllSortedByWidthAndHeight() {
+        return findAll().stream()
+                .sorted(comparing(Widget::getMaxCoordinateX)
+                        .thenComparing(Widget::getCoordinateY))
+                .collect(toList());
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height) {
+        List<Widget> foundWidgets = boardLock.read(() -> scan(0, 0, width, height, true));
+        foundWidgets.sort(Comparator.comparingInt(Widget::getIndexZ));
+        return foundWidgets;
+    }
+
+    @Override
+    public List<Widget> findAllByArea(Integer width, Integer height, Pageable pageable) {
+        return findAllByViewport(new Viewport(0, 0, width, height, CONTAINS), pageable).getContent();
+    }
+
+    @Override
+    public Page<Widget> findAllByViewport(Viewport viewport, Pageable pageable) {
+        List<Widget> foundWidgets = boardLock.read(() -> scan(viewport.getMinX(), viewport.getMinY(), viewport.getMaxX(), viewport.getMaxY(),
+                CONTAINS.equals(viewport.getMode())));
+        foundWidgets.sort(Comparator.comparingInt(Widget::getIndexZ));
+
+        int startIndex = (int) Math.min(pageable.getOffset(), foundWidgets.size());
+        int endIndex = Math.min(startIndex + pageable.getPageSize(), foundWidgets.size());
+        return new PageImpl<>(new ArrayList<>(foundWidgets.subList(startIndex, endIndex)), pageable, foundWidgets.size());
+    }
+
+    private List<Widget> scan(float minX, float minY, float maxX, float maxY, boolean contained) {
+        List<Widget> widgets = new ArrayList<>();
+        for (int row = 0; row < widgetStore.size(); row++) {
+            if (contained ? widgetStore.isContained(row, minX, minY, maxX, maxY) : widgetStore.isIntersected(row, minX, minY, maxX, maxY))
+                widgets.add(widgetStore.get(row));
+        }
+        return widgets;
+    }
+
+    private List<Widget> zOrderRange(int startIndex, int endIndex) {
+        List<Widget> widgets = new ArrayList<>(Math.max(endIndex - startIndex, 0));
+        for (int position = startIndex; position < endIndex; position++) {
+            widgets.add(widgetStore.get(widgetStore.zOrderRow(position)));
+        }
+        return widgets;
+    }
+
+    @Override
+    public List<Widget> saveWidgets(@Valid List<Widget> widgets) {
+
+        widgets.forEach(WidgetStoreRepository::checkIndexZ);
+
+        long stamp = boardLock.writeLock();
+        try {
+            widgets.forEach(this::prepareWidget);
+            widgetStore.putAll(widgets);
+            boardVersion++;
+        } finally {
+            boardLock.unlockWrite(stamp);
+        }
+        return widgets;
+    }
+
+    /*
+     * A widget without indexZ would be left out of the z-order, so every ordered read would miss it
+     */
+    private static void checkIndexZ(Widget widget) {
+        if (isNull(widget.getIndexZ()) || widget.getIndexZ() == NULL_INDEX_Z)
+            throw new IllegalArgumentException(String.format("Widget indexZ should be specified and greater than %d", NULL_INDEX_Z));
+    }
+
+    private void prepareWidget(Widget widget) {
+        if (isNull(widget.getId())) {
+            widget.setId(UUID.randomUUID());
+            widget.setCreatedDate(now());
+            widget.setLastModifiedDate(now());
+
+        } else if (widgetStore.find(widget.getId()) >= 0) {
+            widget.setLastModifiedDate(now());
+        } else {
+            throw new NoSuchElementException(String.format("Widget with is: '%s' was not found", widget.getId()));
+        }
+    }
+
+    /*
+     * Stores keep epoch millis, saved widgets get the same dates they are read back with
+     */
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    @Override
+    public void deleteById(UUID widgetId) {
+        long stamp = boardLock.writeLock();
+        try {
+            widgetStore.remove(widgetId);
+            boardVersion++;
+        } finally {
+            boardLock.unlockWrite(stamp);
+        }
+    }
+
+}
@@ -0,0 +1,367 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.index;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.*;
+
+import static java.util.Objects.isNull;
+
+/*
+ * R-tree over widget min/max coordinate bounds (Guttman, quadratic split).
+ * Widgets are indexed with the bounds they had on put, widgets without calculated bounds are not indexed.
+ * Not thread safe, guarded by the owning repository. Nodes only link to lower levels,
+ * so a reader racing a writer may fail or see a torn tree, but never loops.
+ */
+public class WidgetRTree {
+
+    private static final int MAX_CHILDREN = 16;
+    private static final int MIN_CHILDREN = 6;
+
+    private final Map<UUID, Entry> entries;
+    private Node root;
+
+
+    public WidgetRTree() {
+        this.entries = new HashMap<>();
+        this.root = new Node(true);
+    }
+
+    public void put(Widget widget) {
+        remove(widget.getId());
+
+        if (isNull(widget.getMinCoordinateX()) || isNull(widget.getMinCoordinateY())
+                || isNull(widget.getMaxCoordinateX()) || isNull(widget.getMaxCoordinateY()))
+            return;
+
+        Entry entry = new Entry(widget);
+        entries.put(widget.getId(), entry);
+        insert(entry);
+    }
+
+    public void remove(UUID widgetId) {
+        Entry entry = entries.remove(widgetId);
+        if (isNull(entry))
+            return;
+
+        Node leaf = entry.parent;
+        leaf.children.remove(entry);
+        condense(leaf);
+    }
+
+    public void clear() {
+        entries.clear();
+        root = new Node(true);
+    }
+
+    /*
+     * Replaces the content with the given widgets packed bottom-up (sort-tile-recursive):
+     * boxes are sorted into vertical slices by center x, every slice by center y and cut into full nodes
+     */
+    public void load(Collection<Widget> widgets) {
+        entries.clear();
+
+        List<Box> boxes = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            if (isNull(widget.getMinCoordinateX()) || isNull(widget.getMinCoordinateY())
+                    || isNull(widget.getMaxCoordinateX()) || isNull(widget.getMaxCoordinateY()))
+                continue;
+
+            Entry entry = new Entry(widget);
+            entries.put(widget.getId(), entry);
+            boxes.add(entry);
+        }
+
+        boolean leaf = true;
+        do {
+            boxes = pack(boxes, leaf);
+            leaf = false;
+        } while (boxes.size() > 1);
+
+        root = (Node) boxes.get(0);
+        root.parent = null;
+    }
+
+    private static List<Box> pack(List<Box> boxes, boolean leaf) {
+        int nodesCount = Math.max((boxes.size() + MAX_CHILDREN - 1) / MAX_CHILDREN, 1);
+        int sliceSize = (int) Math.ceil(Math.sqrt(nodesCount)) * MAX_CHILDREN;
+
+        boxes.sort(Comparator.comparingDouble(box -> box.minX + box.maxX));
+        List<Box> nodes = new ArrayList<>(nodesCount);
+        for (int sliceStart = 0; sliceStart < boxes.size() || nodes.isEmpty(); sliceStart += sliceSize) {
+            List<Box> slice = boxes.subList(sliceStart, Math.min(sliceStart + sliceSize, boxes.size()));
+            slice.sort(Comparator.comparingDouble(box -> box.minY + box.maxY));
+
+            for (int nodeStart = 0; nodeStart < slice.size() || nodes.isEmpty(); nodeStart += MAX_CHILDREN) {
+                Node node = new Node(leaf);
+                slice.subList(nodeStart, Math.min(nodeStart + MAX_CHILDREN, slice.size())).forEach(node::add);
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /*
+     * Widgets which bounds are fully inside of the given rectangle
+     */
+    public List<Widget> findContained(float minX, float minY, float maxX, float maxY) {
+        return search(new Box(minX, minY, maxX, maxY), true);
+    }
+
+    /*
+     * Widgets which bounds have at least one common point with the given rectangle
+     */
+    public List<Widget> findIntersected(float minX, float minY, float maxX, float maxY) {
+        return search(new Box(minX, minY, maxX, maxY), false);
+    }
+
+    private List<Widget> search(Box area, boolean contained) {
+        List<Widget> widgets = new ArrayList<>();
+
+        Deque<Node> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            for (Box child : node.children) {
+                if (!area.intersects(child))
+                    continue;
+
+                if (!node.leaf) {
+                    nodes.push((Node) child);
+                } else if (!contained || area.contains(child)) {
+                    widgets.add(((Entry) child).widget);
+                }
+            }
+        }
+        return widgets;
+    }
+
+    private void insert(Entry entry) {
+        Node node = root;
+        while (!node.leaf) {
+            node = chooseSubtree(node, entry);
+        }
+        node.add(entry);
+        adjustUpwards(node);
+    }
+
+    private static Node chooseSubtree(Node node, Box box) {
+        Node bestChild = null;
+        float bestEnlargement = Float.POSITIVE_INFINITY;
+        float bestArea = Float.POSITIVE_INFINITY;
+
+        for (Box child : node.children) {
+            float area = child.area();
+            float enlargement = child.unionArea(box) - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                bestChild = (Node) child;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return bestChild;
+    }
+
+    private void adjustUpwards(Node node) {
+        while (node != null) {
+            if (node.children.size() > MAX_CHILDREN) {
+                Node sibling = split(node);
+                if (node == root) {
+                    root = new Node(false);
+                    root.add(node);
+                    root.add(sibling);
+                    return;
+                }
+                node.parent.add(sibling);
+            }
+            node.recalculateBounds();
+            node = node.parent;
+        }
+    }
+
+    private void condense(Node leaf) {
+        List<Entry> orphans = new ArrayList<>();
+
+        Node node = leaf;
+        while (node != root) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_CHILDREN) {
+                parent.children.remove(node);
+                collectEntries(node, orphans);
+            } else {
+                node.recalculateBounds();
+            }
+            node = parent;
+        }
+        root.recalculateBounds();
+
+        while (!root.leaf && root.children.size() == 1) {
+            root = (Node) root.children.get(0);
+            root.parent = null;
+        }
+        if (!root.leaf && root.children.isEmpty()) {
+            root = new Node(true);
+        }
+
+        orphans.forEach(this::insert);
+    }
+
+    private static void collectEntries(Node node, List<Entry> orphans) {
+        for (Box child : node.children) {
+            if (node.leaf) {
+                orphans.add((Entry) child);
+            } else {
+                collectEntries((Node) child, orphans);
+            }
+        }
+    }
+
+    /*
+     * Quadratic split, the node keeps the first group and the second one is returned as a new sibling
+     */
+    private static Node split(Node node) {
+        List<Box> boxes = new ArrayList<>(node.children);
+        node.children.clear();
+        node.recalculateBounds();
+        Node sibling = new Node(node.leaf);
+
+        int firstSeed = 0;
+        int secondSeed = 1;
+        float worstWaste = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < boxes.size(); i++) {
+            for (int j = i + 1; j < boxes.size(); j++) {
+                Box first = boxes.get(i);
+                Box second = boxes.get(j);
+                float waste = first.unionArea(second) - first.area() - second.area();
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    firstSeed = i;
+                    secondSeed = j;
+                }
+            }
+        }
+
+        node.add(boxes.get(firstSeed));
+        sibling.add(boxes.get(secondSeed));
+        boxes.remove(secondSeed);
+        boxes.remove(firstSeed);
+
+        while (!boxes.isEmpty()) {
+            if (node.children.size() + boxes.size() == MIN_CHILDREN) {
+                boxes.forEach(node::add);
+                break;
+            }
+            if (sibling.children.size() + boxes.size() == MIN_CHILDREN) {
+                boxes.forEach(sibling::add);
+                break;
+            }
+
+            int nextIndex = 0;
+            float maxPreference = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < boxes.size(); i++) {
+                Box box = boxes.get(i);
+                float preference = Math.abs((node.unionArea(box) - node.area()) - (sibling.unionArea(box) - sibling.area()));
+                if (preference > maxPreference) {
+                    maxPreference = preference;
+                    nextIndex = i;
+                }
+            }
+
+            Box next = boxes.remove(nextIndex);
+            float nodeEnlargement = node.unionArea(next) - node.area();
+            float siblingEnlargement = sibling.unionArea(next) - sibling.area();
+            if (nodeEnlargement < siblingEnlargement
+                    || (nodeEnlargement == siblingEnlargement && node.children.size() <= sibling.children.size())) {
+                node.add(next);
+            } else {
+                sibling.add(next);
+            }
+        }
+        return sibling;
+    }
+
+
+    private static class Box {
+
+        protected float minX;
+        protected float minY;
+        protected float maxX;
+        protected float maxY;
+
+        private Box(float minX, float minY, float maxX, float maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        protected boolean contains(Box box) {
+            return minX <= box.minX && minY <= box.minY && box.maxX <= maxX && box.maxY <= maxY;
+        }
+
+        protected boolean intersects(Box box) {
+            return minX <= box.maxX && box.minX <= maxX && minY <= box.maxY && box.minY <= maxY;
+        }
+
+        protected float area() {
+            return (maxX - minX) * (maxY - minY);
+        }
+
+        protected float unionArea(Box box) {
+            return (Math.max(maxX, box.maxX) - Math.min(minX, box.minX)) * (Math.max(maxY, box.maxY) - Math.min(minY, box.minY));
+        }
+    }
+
+    private static final class Entry extends Box {
+
+        private final Widget widget;
+        private Node parent;
+
+        private Entry(Widget widget) {
+            super(widget.getMinCoordinateX(), widget.getMinCoordinateY(), widget.getMaxCoordinateX(), widget.getMaxCoordinateY());
+            this.widget = widget;
+        }
+    }
+
+    private static final class Node extends Box {
+
+        private final boolean leaf;
+        private final List<Box> children;
+        private Node parent;
+
+        private Node(boolean leaf) {
+            super(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+            this.leaf = leaf;
+            this.children = new ArrayList<>(MAX_CHILDREN + 1);
+        }
+
+        private void add(Box child) {
+            children.add(child);
+            if (leaf) {
+                ((Entry) child).parent = this;
+            } else {
+                ((Node) child).parent = this;
+            }
+            minX = Math.min(minX, child.minX);
+            minY = Math.min(minY, child.minY);
+            maxX = Math.max(maxX, child.maxX);
+            maxY = Math.max(maxY, child.maxY);
+        }
+
+        private void recalculateBounds() {
+            minX = Float.POSITIVE_INFINITY;
+            minY = Float.POSITIVE_INFINITY;
+            maxX = Float.NEGATIVE_INFINITY;
+            maxY = Float.NEGATIVE_INFINITY;
+            for (Box child : children) {
+                minX = Math.min(minX, child.minX);
+                minY = Math.min(minY, child.minY);
+                maxX = Math.max(maxX, child.maxX);
+                maxY = Math.max(maxY, child.maxY);
+            }
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.journal;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+/*
+ * Write-ahead log of the cash board. Every save and delete is appended as one checksummed record
+ * to a memory-mapped segment before the board changes:
+ * | length 4 | crc32 of the payload 4 | sequence 8 | type 1 | count 4 | count widget records or ids |
+ * Appends only copy into the mapping, the page cache keeps them across a process crash. Mappings are forced
+ * to disk every sync interval for all appends at once, a zero interval forces every append before it returns.
+ * Snapshots keep the whole board at a sequence, older segments are dropped once a snapshot covers them,
+ * so recovery reads the latest snapshot and replays only the log tail. Replay of a segment stops at the first
+ * record with a bad checksum, that is a torn write the crash interrupted. Every start appends to a new segment.
+ */
+@Component
+@Profile("cash")
+@ConditionalOnProperty(name = "widget-organizer.journal.enabled", havingValue = "true")
+public class WidgetJournal {
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int PAYLOAD_HEADER_BYTES = 13;
+
+    private static final int SNAPSHOT_MAGIC = 0x57534E50;
+    private static final int SNAPSHOT_HEADER_BYTES = 16;
+    private static final int SNAPSHOT_BUFFER_BYTES = 1 << 20;
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration syncInterval;
+    private final Duration snapshotInterval;
+
+    private final CRC32 appendChecksum = new CRC32();
+    private final ScheduledExecutorService scheduler;
+    private final Object snapshotLock = new Object();
+
+    /* appends, rolls and the fields below are guarded by this */
+    private MappedByteBuffer segment;
+    private long lastSequence;
+    private boolean unsynced;
+
+    private volatile long snapshotSequence;
+
+    private final Timer appendTimer;
+    private final Timer syncTimer;
+    private final Timer snapshotTimer;
+    private Supplier<Checkpoint> checkpoints;
+
+
+    public WidgetJournal(String directory, DataSize segmentSize, Duration syncInterval, Duration snapshotInterval) {
+        this(directory, segmentSize, syncInterval, snapshotInterval, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetJournal(@Value("${widget-organizer.journal.directory:journal}") String directory,
+                         @Value("${widget-organizer.journal.segment-size:64MB}") DataSize segmentSize,
+                         @Value("${widget-organizer.journal.sync-interval:10ms}") Duration syncInterval,
+                         @Value("${widget-organizer.journal.snapshot-interval:5m}") Duration snapshotInterval,
+                         MeterRegistry meterRegistry) {
+        this.directory = Paths.get(directory);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.syncInterval = syncInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "widget-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.appendTimer = Timer.builder("widget.journal.append")
+                .description("Time to append a record to the mapped log")
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("widget.journal.sync")
+                .description("Time to force the mapped log to disk")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("widget.journal.snapshot")
+                .description("Time to write a board snapshot")
+                .register(meterRegistry);
+    }
+
+    /*
+     * Board of the latest snapshot with the log tail replayed on top, appending continues after it
+     */
+    public synchronized Map<UUID, Widget> recover() {
+        try {
+            Files.createDirectories(directory);
+
+            Map<UUID, Widget> widgets = new HashMap<>();
+            long appliedSequence = 0;
+
+            List<Path> snapshots = files(SNAPSHOT_SUFFIX);
+            if (!snapshots.isEmpty())
+                appliedSequence = readSnapshot(snapshots.get(snapshots.size() - 1), widgets);
+            snapshotSequence = appliedSequence;
+
+            for (Path segmentFile : files(SEGMENT_SUFFIX)) {
+                appliedSequence = replaySegment(segmentFile, appliedSequence, widgets);
+            }
+
+            lastSequence = appliedSequence;
+            openSegment(segmentSize);
+
+            if (!syncInterval.isZero())
+                scheduler.scheduleWithFixedDelay(this::sync, syncInterval.toMillis(), syncInterval.toMillis(), MILLISECONDS);
+            return widgets;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Widget journal recovery failed", e);
+        }
+    }
+
+    /*
+     * Snapshots are taken from the given checkpoints every snapshot interval if the board has changed
+     */
+    public void scheduleSnapshots(Supplier<Checkpoint> checkpoints) {
+        this.checkpoints = checkpoints;
+        scheduler.scheduleWithFixedDelay(this::checkpoint, snapshotInterval.toMillis(), snapshotInterval.toMillis(), MILLISECONDS);
+    }
+
+    public void appendSave(Collection<Widget> widgets) {
+        append(SAVE, widgets.size(), widgets.size() * WidgetRecords.WIDGET_BYTES,
+                buffer -> widgets.forEach(widget -> WidgetRecords.writeWidget(buffer, widget)));
+    }
+
+    public void appendDelete(UUID widgetId) {
+        append(DELETE, 1, WidgetRecords.ID_BYTES, buffer -> WidgetRecords.writeId(buffer, widgetId));
+    }
+
+    /*
+     * Sequence of the last appended record, a checkpoint must pair it with the board it belongs to
+     */
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    private synchronized void append(byte type, int count, int bodyBytes, Consumer<ByteBuffer> body) {
+        long startTime = System.nanoTime();
+
+        int recordBytes = RECORD_HEADER_BYTES + PAYLOAD_HEADER_BYTES + bodyBytes;
+        if (segment.remaining() < recordBytes)
+            rollSegment(recordBytes);
+
+        int start = segment.position();
+        segment.position(start + RECORD_HEADER_BYTES);
+        segment.putLong(lastSequence + 1).put(type).putInt(count);
+        body.accept(segment);
+
+        appendChecksum.reset();
+        appendChecksum.update(segment.duplicate().position(start + RECORD_HEADER_BYTES).limit(segment.position()));
+        segment.putInt(start + 4, (int) appendChecksum.getValue());
+        segment.putInt(start, recordBytes - RECORD_HEADER_BYTES);
+
+        lastSequence++;
+        if (syncInterval.isZero()) {
+            segment.force();
+        } else {
+            unsynced = true;
+        }
+        appendTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+    }
+
+    private void sync() {
+        MappedByteBuffer unsyncedSegment;
+        synchronized (this) {
+            if (!unsynced)
+                return;
+            unsyncedSegment = segment;
+            unsynced = false;
+        }
+        syncTimer.record(unsyncedSegment::force);
+    }
+
+    private void rollSegment(int recordBytes) {
+        segment.force();
+        unsynced = false;
+        openSegment(Math.max(segmentSize, recordBytes));
+    }
+
+    private void openSegment(int capacity) {
+        /* a segment left by a start without appends has no records after lastSequence and is reused */
+        Path segmentPath = directory.resolve(fileName(lastSequence + 1, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(segmentPath, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Widget journal segment can not be created", e);
+        }
+    }
+
+    private long replaySegment(Path segmentFile, long appliedSequence, Map<UUID, Widget> widgets) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile, READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 checksum = new CRC32();
+
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < PAYLOAD_HEADER_BYTES || length > buffer.remaining() - RECORD_HEADER_BYTES)
+                    break;
+
+                ByteBuffer payload = buffer.duplicate().position(start + RECORD_HEADER_BYTES).limit(start + RECORD_HEADER_BYTES + length);
+                checksum.reset();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != buffer.getInt(start + 4))
+                    break;
+
+                long sequence = payload.getLong();
+                byte type = payload.get();
+                int count = payload.getInt();
+                if (sequence > appliedSequence) {
+                    for (int index = 0; index < count; index++) {
+                        if (type == SAVE) {
+                            Widget widget = WidgetRecords.readWidget(payload);
+                            widgets.put(widget.getId(), widget);
+                        } else {
+                            widgets.remove(WidgetRecords.readId(payload));
+                        }
+                    }
+                    appliedSequence = sequence;
+                }
+                buffer.position(start + RECORD_HEADER_BYTES + length);
+            }
+        }
+        return appliedSequence;
+    }
+
+    /*
+     * Writes a snapshot from the registered checkpoints if anything was appended since the last one
+     */
+    public void checkpoint() {
+        if (Objects.isNull(checkpoints) || lastSequence() == snapshotSequence)
+            return;
+        snapshot(checkpoints.get());
+    }
+
+    /*
+     * Writes the board to a temporary file and moves it in place, then drops older snapshots and covered segments
+     */
+    public void snapshot(Checkpoint checkpoint) {
+        synchronized (snapshotLock) {
+            if (checkpoint.sequence > snapshotSequence)
+                snapshotTimer.record(() -> replaceSnapshot(checkpoint));
+        }
+    }
+
+    private void replaceSnapshot(Checkpoint checkpoint) {
+        Path snapshotPath = directory.resolve(fileName(checkpoint.sequence, SNAPSHOT_SUFFIX));
+        Path temporaryPath = directory.resolve(snapshotPath.getFileName() + ".tmp");
+        try {
+            writeSnapshot(temporaryPath, checkpoint);
+            Files.move(temporaryPath, snapshotPath, ATOMIC_MOVE);
+            snapshotSequence = checkpoint.sequence;
+
+            for (Path snapshotFile : files(SNAPSHOT_SUFFIX)) {
+                if (!snapshotFile.equals(snapshotPath))
+                    Files.delete(snapshotFile);
+            }
+            List<Path> segmentFiles = files(SEGMENT_SUFFIX);
+            /* the last segment is the one appended to */
+            for (int index = 0; index < segmentFiles.size() - 1; index++) {
+                if (firstSequence(segmentFiles.get(index + 1)) <= checkpoint.sequence + 1)
+                    Files.delete(segmentFiles.get(index));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Widget journal snapshot failed", e);
+        }
+    }
+
+    private static void writeSnapshot(Path snapshotPath, Checkpoint checkpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotPath, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_BYTES);
+            CRC32 checksum = new CRC32();
+
+            buffer.putInt(SNAPSHOT_MAGIC).putLong(checkpoint.sequence).putInt(checkpoint.widgets.size());
+            for (Widget widget : checkpoint.widgets) {
+                if (buffer.remaining() < WidgetRecords.WIDGET_BYTES)
+                    flush(channel, buffer, checksum);
+                WidgetRecords.writeWidget(buffer, widget);
+            }
+            flush(channel, buffer, checksum);
+
+            buffer.putInt((int) checksum.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long readSnapshot(Path snapshotPath, Map<UUID, Widget> widgets) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotPath, READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().limit(buffer.capacity() - Integer.BYTES));
+            if (buffer.capacity() < SNAPSHOT_HEADER_BYTES + Integer.BYTES || buffer.getInt(0) != SNAPSHOT_MAGIC
+                    || (int) checksum.getValue() != buffer.getInt(buffer.capacity() - Integer.BYTES))
+                throw new IllegalStateException(String.format("Widget journal snapshot '%s' is corrupted", snapshotPath));
+
+            buffer.position(Integer.BYTES);
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            for (int index = 0; index < count; index++) {
+                Widget widget = WidgetRecords.readWidget(buffer);
+                widgets.put(widget.getId(), widget);
+            }
+            return sequence;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            if (Objects.nonNull(segment))
+                segment.force();
+        }
+    }
+
+    /*
+     * Files of the given kind ordered by their first sequence
+     */
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .sorted(Comparator.comparingLong(WidgetJournal::firstSequence))
+                    .collect(toList());
+        }
+    }
+
+    private static String fileName(long sequence, String suffix) {
+        return String.format("widgets-%020d%s", sequence, suffix);
+    }
+
+    private static long firstSequence(Path file) {
+        String fileName = file.getFileName().toString();
+        return Long.parseLong(fileName.substring("widgets-".length(), fileName.indexOf('.')));
+    }
+
+
+    /*
+     * Board as it was right after the record with the given sequence
+     */
+    public static final class Checkpoint {
+
+        private final long sequence;
+        private final Collection<Widget> widgets;
+
+        public Checkpoint(long sequence, Collection<Widget> widgets) {
+            this.sequence = sequence;
+            this.widgets = widgets;
+        }
+    }
+}
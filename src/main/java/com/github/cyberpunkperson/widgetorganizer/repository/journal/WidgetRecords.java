@@ -0,0 +1,105 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.journal;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static java.util.Objects.isNull;
+
+/*
+ * Fixed 80 byte binary form of a widget shared by the log and snapshots:
+ * | idMostBits 8 | idLeastBits 8 | createdSeconds 8 | modifiedSeconds 8 | createdNanos 4 | modifiedNanos 4 |
+ * | coordinateX 4 | coordinateY 4 | indexZ 4 | width 4 | height 4 | maxX 4 | minX 4 | maxY 4 | minY 4 | padding 4 |
+ * Null ints are Integer.MIN_VALUE, null floats NaN, null dates have -1 nanos. Dates keep nanos and get the system zone back.
+ */
+final class WidgetRecords {
+
+    static final int WIDGET_BYTES = 80;
+
+    static final int ID_BYTES = 16;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final int NULL_NANOS = -1;
+
+
+    private WidgetRecords() {
+    }
+
+    static void writeWidget(ByteBuffer buffer, Widget widget) {
+        writeId(buffer, widget.getId());
+        ZonedDateTime createdDate = widget.getCreatedDate();
+        ZonedDateTime lastModifiedDate = widget.getLastModifiedDate();
+        buffer.putLong(isNull(createdDate) ? 0 : createdDate.toEpochSecond())
+                .putLong(isNull(lastModifiedDate) ? 0 : lastModifiedDate.toEpochSecond())
+                .putInt(isNull(createdDate) ? NULL_NANOS : createdDate.getNano())
+                .putInt(isNull(lastModifiedDate) ? NULL_NANOS : lastModifiedDate.getNano())
+                .putInt(toInt(widget.getCoordinateX()))
+                .putInt(toInt(widget.getCoordinateY()))
+                .putInt(toInt(widget.getIndexZ()))
+                .putInt(toInt(widget.getWidth()))
+                .putInt(toInt(widget.getHeight()))
+                .putFloat(toFloat(widget.getMaxCoordinateX()))
+                .putFloat(toFloat(widget.getMinCoordinateX()))
+                .putFloat(toFloat(widget.getMaxCoordinateY()))
+                .putFloat(toFloat(widget.getMinCoordinateY()))
+                .putInt(0);
+    }
+
+    static Widget readWidget(ByteBuffer buffer) {
+        UUID id = readId(buffer);
+        long createdSeconds = buffer.getLong();
+        long modifiedSeconds = buffer.getLong();
+        int createdNanos = buffer.getInt();
+        int modifiedNanos = buffer.getInt();
+
+        Widget widget = Widget.builder()
+                .id(id)
+                .coordinateX(toInteger(buffer.getInt()))
+                .coordinateY(toInteger(buffer.getInt()))
+                .indexZ(toInteger(buffer.getInt()))
+                .width(toInteger(buffer.getInt()))
+                .height(toInteger(buffer.getInt()))
+                .maxCoordinateX(toFloat(buffer.getFloat()))
+                .minCoordinateX(toFloat(buffer.getFloat()))
+                .maxCoordinateY(toFloat(buffer.getFloat()))
+                .minCoordinateY(toFloat(buffer.getFloat()))
+                .createdDate(toDate(createdSeconds, createdNanos))
+                .lastModifiedDate(toDate(modifiedSeconds, modifiedNanos))
+                .build();
+        buffer.getInt();
+        return widget;
+    }
+
+    static void writeId(ByteBuffer buffer, UUID widgetId) {
+        buffer.putLong(widgetId.getMostSignificantBits())
+                .putLong(widgetId.getLeastSignificantBits());
+    }
+
+    static UUID readId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static int toInt(Integer value) {
+        return isNull(value) ? NULL_INT : value;
+    }
+
+    private static Integer toInteger(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static float toFloat(Float value) {
+        return isNull(value) ? Float.NaN : value;
+    }
+
+    private static Float toFloat(float value) {
+        return Float.isNaN(value) ? null : value;
+    }
+
+    private static ZonedDateTime toDate(long seconds, int nanos) {
+        return nanos == NULL_NANOS ? null : ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), ZoneId.systemDefault());
+    }
+}
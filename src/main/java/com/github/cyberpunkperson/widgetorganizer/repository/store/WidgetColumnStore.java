@@ -0,0 +1,221 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static java.util.Objects.isNull;
+
+/*
+ * Widget rows kept as parallel primitive arrays on heap, one array per field.
+ */
+public class WidgetColumnStore extends WidgetStore {
+
+    private long[] idMostBits;
+    private long[] idLeastBits;
+    private int[] coordinateX;
+    private int[] coordinateY;
+    private int[] indexZ;
+    private int[] width;
+    private int[] height;
+    private float[] maxCoordinateX;
+    private float[] minCoordinateX;
+    private float[] maxCoordinateY;
+    private float[] minCoordinateY;
+    private long[] createdDate;
+    private long[] lastModifiedDate;
+
+    private int[] slots;
+
+    private long[] zOrder;
+
+
+    public WidgetColumnStore() {
+        clear();
+    }
+
+    @Override
+    public Widget get(int row) {
+        return Widget.builder()
+                .id(new UUID(idMostBits[row], idLeastBits[row]))
+                .coordinateX(toInteger(coordinateX[row]))
+                .coordinateY(toInteger(coordinateY[row]))
+                .indexZ(toInteger(indexZ[row]))
+                .width(toInteger(width[row]))
+                .height(toInteger(height[row]))
+                .maxCoordinateX(toFloat(maxCoordinateX[row]))
+                .minCoordinateX(toFloat(minCoordinateX[row]))
+                .maxCoordinateY(toFloat(maxCoordinateY[row]))
+                .minCoordinateY(toFloat(minCoordinateY[row]))
+                .createdDate(toDate(createdDate[row]))
+                .lastModifiedDate(toDate(lastModifiedDate[row]))
+                .build();
+    }
+
+    @Override
+    public int indexZ(int row) {
+        return indexZ[row];
+    }
+
+    @Override
+    protected long idMostBits(int row) {
+        return idMostBits[row];
+    }
+
+    @Override
+    protected long idLeastBits(int row) {
+        return idLeastBits[row];
+    }
+
+    @Override
+    protected float maxCoordinateX(int row) {
+        return maxCoordinateX[row];
+    }
+
+    @Override
+    protected float minCoordinateX(int row) {
+        return minCoordinateX[row];
+    }
+
+    @Override
+    protected float maxCoordinateY(int row) {
+        return maxCoordinateY[row];
+    }
+
+    @Override
+    protected float minCoordinateY(int row) {
+        return minCoordinateY[row];
+    }
+
+    @Override
+    protected void writeRow(int row, Widget widget) {
+        coordinateX[row] = toInt(widget.getCoordinateX());
+        coordinateY[row] = toInt(widget.getCoordinateY());
+        indexZ[row] = toInt(widget.getIndexZ());
+        width[row] = toInt(widget.getWidth());
+        height[row] = toInt(widget.getHeight());
+        maxCoordinateX[row] = toFloat(widget.getMaxCoordinateX());
+        minCoordinateX[row] = toFloat(widget.getMinCoordinateX());
+        maxCoordinateY[row] = toFloat(widget.getMaxCoordinateY());
+        minCoordinateY[row] = toFloat(widget.getMinCoordinateY());
+        createdDate[row] = toMillis(widget.getCreatedDate());
+        lastModifiedDate[row] = toMillis(widget.getLastModifiedDate());
+    }
+
+    @Override
+    protected void writeId(int row, long mostBits, long leastBits) {
+        idMostBits[row] = mostBits;
+        idLeastBits[row] = leastBits;
+    }
+
+    @Override
+    protected void copyRow(int fromRow, int toRow) {
+        idMostBits[toRow] = idMostBits[fromRow];
+        idLeastBits[toRow] = idLeastBits[fromRow];
+        coordinateX[toRow] = coordinateX[fromRow];
+        coordinateY[toRow] = coordinateY[fromRow];
+        indexZ[toRow] = indexZ[fromRow];
+        width[toRow] = width[fromRow];
+        height[toRow] = height[fromRow];
+        maxCoordinateX[toRow] = maxCoordinateX[fromRow];
+        minCoordinateX[toRow] = minCoordinateX[fromRow];
+        maxCoordinateY[toRow] = maxCoordinateY[fromRow];
+        minCoordinateY[toRow] = minCoordinateY[fromRow];
+        createdDate[toRow] = createdDate[fromRow];
+        lastModifiedDate[toRow] = lastModifiedDate[fromRow];
+    }
+
+    @Override
+    protected int rowCapacity() {
+        return idMostBits.length;
+    }
+
+    @Override
+    protected void allocate(int capacity) {
+        idMostBits = copy(idMostBits, capacity);
+        idLeastBits = copy(idLeastBits, capacity);
+        coordinateX = copy(coordinateX, capacity);
+        coordinateY = copy(coordinateY, capacity);
+        indexZ = copy(indexZ, capacity);
+        width = copy(width, capacity);
+        height = copy(height, capacity);
+        maxCoordinateX = copy(maxCoordinateX, capacity);
+        minCoordinateX = copy(minCoordinateX, capacity);
+        maxCoordinateY = copy(maxCoordinateY, capacity);
+        minCoordinateY = copy(minCoordinateY, capacity);
+        createdDate = copy(createdDate, capacity);
+        lastModifiedDate = copy(lastModifiedDate, capacity);
+    }
+
+    @Override
+    protected int slotsLength() {
+        return slots.length;
+    }
+
+    @Override
+    protected int slot(int slot) {
+        return slots[slot];
+    }
+
+    @Override
+    protected void setSlot(int slot, int value) {
+        slots[slot] = value;
+    }
+
+    @Override
+    protected void resetSlots(int capacity) {
+        slots = new int[capacity];
+    }
+
+    @Override
+    protected int zOrderCapacity() {
+        return zOrder.length;
+    }
+
+    @Override
+    protected void growZOrder(int capacity) {
+        zOrder = isNull(zOrder) ? new long[capacity] : Arrays.copyOf(zOrder, capacity);
+    }
+
+    @Override
+    protected long zOrderKey(int position) {
+        return zOrder[position];
+    }
+
+    @Override
+    protected void setZOrderKey(int position, long key) {
+        zOrder[position] = key;
+    }
+
+    @Override
+    protected void moveZOrder(int fromPosition, int toPosition, int length) {
+        System.arraycopy(zOrder, fromPosition, zOrder, toPosition, length);
+    }
+
+    @Override
+    protected void sortZOrder(int length) {
+        Arrays.sort(zOrder, 0, length);
+    }
+
+    private long[] copy(long[] array, int capacity) {
+        long[] copy = new long[capacity];
+        if (size > 0)
+            System.arraycopy(array, 0, copy, 0, size);
+        return copy;
+    }
+
+    private int[] copy(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        if (size > 0)
+            System.arraycopy(array, 0, copy, 0, size);
+        return copy;
+    }
+
+    private float[] copy(float[] array, int capacity) {
+        float[] copy = new float[capacity];
+        if (size > 0)
+            System.arraycopy(array, 0, copy, 0, size);
+        return copy;
+    }
+}
@@ -0,0 +1,244 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.UUID;
+
+import static java.util.Objects.nonNull;
+
+/*
+ * Widget rows kept outside of the heap in a direct buffer, one fixed 72 byte record per row:
+ * | idMostBits 8 | idLeastBits 8 | createdDate 8 | lastModifiedDate 8 | coordinateX 4 | coordinateY 4 | indexZ 4 |
+ * | width 4 | height 4 | maxCoordinateX 4 | minCoordinateX 4 | maxCoordinateY 4 | minCoordinateY 4 | padding 4 |
+ * Longs come first and the record is padded, so every long stays 8 byte aligned.
+ * Slots and the z-order keys are direct buffers as well, so the heap holds a handful of objects whatever the board size,
+ * only the z-order block directory grows with it, by a few ints per Z_ORDER_BLOCK keys. Lookups and scans allocate
+ * nothing, index maintenance only when the directory grows. Widgets are materialized only by get.
+ * Direct memory is bounded by -XX:MaxDirectMemorySize, a single buffer limits the board to about 29 million rows.
+ */
+public class WidgetOffHeapStore extends WidgetStore {
+
+    private static final int ID_MOST_BITS = 0;
+    private static final int ID_LEAST_BITS = 8;
+    private static final int CREATED_DATE = 16;
+    private static final int LAST_MODIFIED_DATE = 24;
+    private static final int COORDINATE_X = 32;
+    private static final int COORDINATE_Y = 36;
+    private static final int INDEX_Z = 40;
+    private static final int WIDTH = 44;
+    private static final int HEIGHT = 48;
+    private static final int MAX_COORDINATE_X = 52;
+    private static final int MIN_COORDINATE_X = 56;
+    private static final int MAX_COORDINATE_Y = 60;
+    private static final int MIN_COORDINATE_Y = 64;
+    private static final int ROW_BYTES = 72;
+
+    private ByteBuffer rows;
+    private int rowCapacity;
+
+    private IntBuffer slots;
+
+    private LongBuffer zOrder;
+
+
+    public WidgetOffHeapStore() {
+        clear();
+    }
+
+    @Override
+    public Widget get(int row) {
+        int offset = row * ROW_BYTES;
+        return Widget.builder()
+                .id(new UUID(rows.getLong(offset + ID_MOST_BITS), rows.getLong(offset + ID_LEAST_BITS)))
+                .coordinateX(toInteger(rows.getInt(offset + COORDINATE_X)))
+                .coordinateY(toInteger(rows.getInt(offset + COORDINATE_Y)))
+                .indexZ(toInteger(rows.getInt(offset + INDEX_Z)))
+                .width(toInteger(rows.getInt(offset + WIDTH)))
+                .height(toInteger(rows.getInt(offset + HEIGHT)))
+                .maxCoordinateX(toFloat(rows.getFloat(offset + MAX_COORDINATE_X)))
+                .minCoordinateX(toFloat(rows.getFloat(offset + MIN_COORDINATE_X)))
+                .maxCoordinateY(toFloat(rows.getFloat(offset + MAX_COORDINATE_Y)))
+                .minCoordinateY(toFloat(rows.getFloat(offset + MIN_COORDINATE_Y)))
+                .createdDate(toDate(rows.getLong(offset + CREATED_DATE)))
+                .lastModifiedDate(toDate(rows.getLong(offset + LAST_MODIFIED_DATE)))
+                .build();
+    }
+
+    @Override
+    public int indexZ(int row) {
+        return rows.getInt(row * ROW_BYTES + INDEX_Z);
+    }
+
+    @Override
+    protected long idMostBits(int row) {
+        return rows.getLong(row * ROW_BYTES + ID_MOST_BITS);
+    }
+
+    @Override
+    protected long idLeastBits(int row) {
+        return rows.getLong(row * ROW_BYTES + ID_LEAST_BITS);
+    }
+
+    @Override
+    protected float maxCoordinateX(int row) {
+        return rows.getFloat(row * ROW_BYTES + MAX_COORDINATE_X);
+    }
+
+    @Override
+    protected float minCoordinateX(int row) {
+        return rows.getFloat(row * ROW_BYTES + MIN_COORDINATE_X);
+    }
+
+    @Override
+    protected float maxCoordinateY(int row) {
+        return rows.getFloat(row * ROW_BYTES + MAX_COORDINATE_Y);
+    }
+
+    @Override
+    protected float minCoordinateY(int row) {
+        return rows.getFloat(row * ROW_BYTES + MIN_COORDINATE_Y);
+    }
+
+    @Override
+    protected void writeRow(int row, Widget widget) {
+        int offset = row * ROW_BYTES;
+        rows.putInt(offset + COORDINATE_X, toInt(widget.getCoordinateX()));
+        rows.putInt(offset + COORDINATE_Y, toInt(widget.getCoordinateY()));
+        rows.putInt(offset + INDEX_Z, toInt(widget.getIndexZ()));
+        rows.putInt(offset + WIDTH, toInt(widget.getWidth()));
+        rows.putInt(offset + HEIGHT, toInt(widget.getHeight()));
+        rows.putFloat(offset + MAX_COORDINATE_X, toFloat(widget.getMaxCoordinateX()));
+        rows.putFloat(offset + MIN_COORDINATE_X, toFloat(widget.getMinCoordinateX()));
+        rows.putFloat(offset + MAX_COORDINATE_Y, toFloat(widget.getMaxCoordinateY()));
+        rows.putFloat(offset + MIN_COORDINATE_Y, toFloat(widget.getMinCoordinateY()));
+        rows.putLong(offset + CREATED_DATE, toMillis(widget.getCreatedDate()));
+        rows.putLong(offset + LAST_MODIFIED_DATE, toMillis(widget.getLastModifiedDate()));
+    }
+
+    @Override
+    protected void writeId(int row, long mostBits, long leastBits) {
+        rows.putLong(row * ROW_BYTES + ID_MOST_BITS, mostBits);
+        rows.putLong(row * ROW_BYTES + ID_LEAST_BITS, leastBits);
+    }
+
+    @Override
+    protected void copyRow(int fromRow, int toRow) {
+        int fromOffset = fromRow * ROW_BYTES;
+        int toOffset = toRow * ROW_BYTES;
+        for (int field = 0; field < ROW_BYTES; field += Long.BYTES) {
+            rows.putLong(toOffset + field, rows.getLong(fromOffset + field));
+        }
+    }
+
+    @Override
+    protected int rowCapacity() {
+        return rowCapacity;
+    }
+
+    @Override
+    protected void allocate(int capacity) {
+        ByteBuffer newRows = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, ROW_BYTES)).order(ByteOrder.nativeOrder());
+        if (size > 0) {
+            ByteBuffer source = rows.duplicate();
+            source.position(0).limit(size * ROW_BYTES);
+            newRows.put(source).clear();
+        }
+        rows = newRows;
+        rowCapacity = capacity;
+    }
+
+    @Override
+    protected int slotsLength() {
+        return slots.capacity();
+    }
+
+    @Override
+    protected int slot(int slot) {
+        return slots.get(slot);
+    }
+
+    @Override
+    protected void setSlot(int slot, int value) {
+        slots.put(slot, value);
+    }
+
+    @Override
+    protected void resetSlots(int capacity) {
+        slots = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Integer.BYTES)).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    @Override
+    protected int zOrderCapacity() {
+        return zOrder.capacity();
+    }
+
+    @Override
+    protected void growZOrder(int capacity) {
+        LongBuffer newZOrder = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, Long.BYTES)).order(ByteOrder.nativeOrder()).asLongBuffer();
+        if (nonNull(zOrder)) {
+            LongBuffer source = zOrder.duplicate();
+            source.position(0).limit(Math.min(zOrder.capacity(), capacity));
+            newZOrder.put(source).clear();
+        }
+        zOrder = newZOrder;
+    }
+
+    @Override
+    protected long zOrderKey(int position) {
+        return zOrder.get(position);
+    }
+
+    @Override
+    protected void setZOrderKey(int position, long key) {
+        zOrder.put(position, key);
+    }
+
+    /*
+     * Copies from the far end when moving forward so overlapping keys are read before they are overwritten
+     */
+    @Override
+    protected void moveZOrder(int fromPosition, int toPosition, int length) {
+        if (toPosition > fromPosition) {
+            for (int index = length - 1; index >= 0; index--) {
+                zOrder.put(toPosition + index, zOrder.get(fromPosition + index));
+            }
+        } else {
+            for (int index = 0; index < length; index++) {
+                zOrder.put(toPosition + index, zOrder.get(fromPosition + index));
+            }
+        }
+    }
+
+    /*
+     * In place heapsort, keeps the sort off the heap
+     */
+    @Override
+    protected void sortZOrder(int length) {
+        for (int parent = length / 2 - 1; parent >= 0; parent--) {
+            siftDown(parent, length);
+        }
+        for (int end = length - 1; end > 0; end--) {
+            long maxKey = zOrder.get(0);
+            zOrder.put(0, zOrder.get(end));
+            zOrder.put(end, maxKey);
+            siftDown(0, end);
+        }
+    }
+
+    private void siftDown(int parent, int length) {
+        long key = zOrder.get(parent);
+        for (int child = 2 * parent + 1; child < length; child = 2 * parent + 1) {
+            if (child + 1 < length && zOrder.get(child + 1) > zOrder.get(child))
+                child++;
+            if (zOrder.get(child) <= key)
+                break;
+            zOrder.put(parent, zOrder.get(child));
+            parent = child;
+        }
+        zOrder.put(parent, key);
+    }
+}
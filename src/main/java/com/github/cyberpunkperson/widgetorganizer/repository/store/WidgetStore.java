@@ -0,0 +1,543 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+import static java.util.Objects.isNull;
+
+/*
+ * Widgets kept as fixed-layout primitive rows, rows stay dense: a removed row is filled with the last one.
+ * Ids are two longs looked up through an open-addressing table of row numbers (linear probing, backward shift delete),
+ * dates are epoch millis. Null ints are stored as Integer.MIN_VALUE, null floats and dates as NaN and Long.MIN_VALUE.
+ * Rows with indexZ are also kept in the z-order as (indexZ << 32 | row) keys sorted ascending, in blocks of up to
+ * Z_ORDER_BLOCK keys: a two level B+ tree whose leaves live with the keys and whose directory, the blocks in key order,
+ * their sizes and a Fenwick tree over the sizes, is a few heap ints per block. A key is placed by a binary search over
+ * the first keys of the blocks and one inside its block, positions and ranks go through the Fenwick tree, so a change
+ * moves at most a block of keys instead of the tail of the whole z-order. Full blocks are split in halves,
+ * neighbours which fit into half a block are joined, both rebuild the directory, which is n / Z_ORDER_BLOCK long.
+ * Subclasses only decide where rows, slots and z-order keys live.
+ * Not thread safe, guarded by the owning repository. Storage is only replaced, never shrunk,
+ * so a racing reader may see a torn row or fail, but never loops.
+ */
+public abstract class WidgetStore {
+
+    protected static final int NULL_INT = Integer.MIN_VALUE;
+    protected static final long NULL_DATE = Long.MIN_VALUE;
+    protected static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Above this number of changed rows the z-order is sorted again instead of being patched row by row
+     */
+    private static final int Z_ORDER_REBUILD_THRESHOLD = 64;
+
+    /*
+     * Keys per z-order block, a block is a run of positions in the z-order storage
+     */
+    protected static final int Z_ORDER_BLOCK = 512;
+
+    protected int size;
+
+    private int zOrderSize;
+
+    /* storage block of every z-order block, in key order */
+    private int[] zOrderBlocks;
+    private int[] zOrderBlockSizes;
+    /* Fenwick tree over zOrderBlockSizes, one based */
+    private int[] zOrderBlockTree;
+    private int zOrderBlockCount;
+
+    /* storage blocks handed out so far and the ones given back by joins */
+    private int zOrderUsedBlocks;
+    private int[] zOrderFreeBlocks;
+    private int zOrderFreeBlockCount;
+
+
+    public void clear() {
+        size = 0;
+        allocate(INITIAL_CAPACITY);
+        resetSlots(INITIAL_CAPACITY * 2);
+        growZOrder(Z_ORDER_BLOCK);
+        resetZOrderBlocks(1);
+        zOrderFreeBlocks = new int[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Row of the widget or -1
+     */
+    public int find(UUID widgetId) {
+        long mostBits = widgetId.getMostSignificantBits();
+        long leastBits = widgetId.getLeastSignificantBits();
+
+        int mask = slotsLength() - 1;
+        for (int slot = hash(mostBits, leastBits) & mask; slot(slot) != 0; slot = (slot + 1) & mask) {
+            int row = slot(slot) - 1;
+            if (idMostBits(row) == mostBits && idLeastBits(row) == leastBits)
+                return row;
+        }
+        return -1;
+    }
+
+    /*
+     * Writes the widget into its row, a new row is added for an unknown id
+     */
+    public void put(Widget widget) {
+        int row = find(widget.getId());
+        if (row < 0) {
+            row = addRow(widget.getId());
+        } else if (indexZ(row) != NULL_INT) {
+            removeZOrder(indexZ(row), row);
+        }
+
+        writeRow(row, widget);
+        if (indexZ(row) != NULL_INT)
+            insertZOrder(indexZ(row), row);
+    }
+
+    /*
+     * Same as put for every widget, the z-order is sorted once when many rows change
+     */
+    public void putAll(Collection<Widget> widgets) {
+        if (widgets.size() <= Z_ORDER_REBUILD_THRESHOLD) {
+            widgets.forEach(this::put);
+            return;
+        }
+
+        for (Widget widget : widgets) {
+            int row = find(widget.getId());
+            writeRow(row < 0 ? addRow(widget.getId()) : row, widget);
+        }
+        rebuildZOrder();
+    }
+
+    public boolean remove(UUID widgetId) {
+        int row = find(widgetId);
+        if (row < 0)
+            return false;
+
+        if (indexZ(row) != NULL_INT)
+            removeZOrder(indexZ(row), row);
+        removeSlot(row);
+
+        int lastRow = size - 1;
+        if (row != lastRow) {
+            if (indexZ(lastRow) != NULL_INT)
+                removeZOrder(indexZ(lastRow), lastRow);
+            removeSlot(lastRow);
+            copyRow(lastRow, row);
+            insertSlot(row);
+            if (indexZ(row) != NULL_INT)
+                insertZOrder(indexZ(row), row);
+        }
+        size--;
+        return true;
+    }
+
+    /*
+     * Bounds of the row are fully inside of the given rectangle, rows without bounds never match
+     */
+    public boolean isContained(int row, float minX, float minY, float maxX, float maxY) {
+        return minX <= minCoordinateX(row) && minY <= minCoordinateY(row)
+                && maxCoordinateX(row) <= maxX && maxCoordinateY(row) <= maxY;
+    }
+
+    /*
+     * Bounds of the row have at least one common point with the given rectangle, rows without bounds never match
+     */
+    public boolean isIntersected(int row, float minX, float minY, float maxX, float maxY) {
+        return minCoordinateX(row) <= maxX && minX <= maxCoordinateX(row)
+                && minCoordinateY(row) <= maxY && minY <= maxCoordinateY(row);
+    }
+
+    /*
+     * Number of rows in the z-order
+     */
+    public int zOrderSize() {
+        return zOrderSize;
+    }
+
+    /*
+     * Row at the given position of the z-order
+     */
+    public int zOrderRow(int position) {
+        int block = 0;
+        int offset = position;
+        for (int step = Integer.highestOneBit(zOrderBlockCount); step > 0; step >>= 1) {
+            int next = block + step;
+            if (next <= zOrderBlockCount && zOrderBlockTree[next] <= offset) {
+                block = next;
+                offset -= zOrderBlockTree[next];
+            }
+        }
+        return (int) zOrderKey(blockStart(block) + offset);
+    }
+
+    /*
+     * Number of rows with indexZ strictly less than the given one
+     */
+    public int rank(int indexZ) {
+        return lowerBound((long) indexZ << 32);
+    }
+
+    public abstract Widget get(int row);
+
+    public abstract int indexZ(int row);
+
+    protected abstract long idMostBits(int row);
+
+    protected abstract long idLeastBits(int row);
+
+    protected abstract float maxCoordinateX(int row);
+
+    protected abstract float minCoordinateX(int row);
+
+    protected abstract float maxCoordinateY(int row);
+
+    protected abstract float minCoordinateY(int row);
+
+    /*
+     * Writes every field except the id
+     */
+    protected abstract void writeRow(int row, Widget widget);
+
+    protected abstract void writeId(int row, long mostBits, long leastBits);
+
+    protected abstract void copyRow(int fromRow, int toRow);
+
+    protected abstract int rowCapacity();
+
+    /*
+     * New row storage of the given capacity, the first size rows are copied
+     */
+    protected abstract void allocate(int capacity);
+
+    protected abstract int slotsLength();
+
+    protected abstract int slot(int slot);
+
+    protected abstract void setSlot(int slot, int value);
+
+    /*
+     * New empty slots of the given capacity, always a power of two
+     */
+    protected abstract void resetSlots(int capacity);
+
+    protected abstract int zOrderCapacity();
+
+    /*
+     * New z-order storage of the given capacity, the keys stored so far are copied
+     */
+    protected abstract void growZOrder(int capacity);
+
+    protected abstract long zOrderKey(int position);
+
+    protected abstract void setZOrderKey(int position, long key);
+
+    /*
+     * Moves length keys, ranges may overlap
+     */
+    protected abstract void moveZOrder(int fromPosition, int toPosition, int length);
+
+    protected abstract void sortZOrder(int length);
+
+    private int addRow(UUID widgetId) {
+        if (size == rowCapacity())
+            allocate(size + (size >> 1));
+        if ((size + 1) * 2 > slotsLength())
+            rehash(slotsLength() * 2);
+
+        int row = size++;
+        writeId(row, widgetId.getMostSignificantBits(), widgetId.getLeastSignificantBits());
+        insertSlot(row);
+        return row;
+    }
+
+    private void insertSlot(int row) {
+        int mask = slotsLength() - 1;
+        int slot = hash(idMostBits(row), idLeastBits(row)) & mask;
+        while (slot(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        setSlot(slot, row + 1);
+    }
+
+    /*
+     * Backward shift deletion, entries after the freed slot are moved back so probing never needs tombstones
+     */
+    private void removeSlot(int row) {
+        int mask = slotsLength() - 1;
+        int slot = hash(idMostBits(row), idLeastBits(row)) & mask;
+        while (slot(slot) != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+
+        int freeSlot = slot;
+        for (int next = (freeSlot + 1) & mask; slot(next) != 0; next = (next + 1) & mask) {
+            int nextRow = slot(next) - 1;
+            int home = hash(idMostBits(nextRow), idLeastBits(nextRow)) & mask;
+            if (((next - home) & mask) >= ((next - freeSlot) & mask)) {
+                setSlot(freeSlot, slot(next));
+                freeSlot = next;
+            }
+        }
+        setSlot(freeSlot, 0);
+    }
+
+    private void rehash(int capacity) {
+        resetSlots(capacity);
+        for (int row = 0; row < size; row++) {
+            insertSlot(row);
+        }
+    }
+
+    private void insertZOrder(int rowIndexZ, int row) {
+        long key = zOrderKey(rowIndexZ, row);
+
+        int block = findBlock(key);
+        if (zOrderBlockSizes[block] == Z_ORDER_BLOCK) {
+            splitBlock(block);
+            if (zOrderKey(blockStart(block + 1)) <= key)
+                block++;
+        }
+
+        int start = blockStart(block);
+        int blockSize = zOrderBlockSizes[block];
+        int offset = lowerBound(start, blockSize, key);
+        moveZOrder(start + offset, start + offset + 1, blockSize - offset);
+        setZOrderKey(start + offset, key);
+        resizeBlock(block, 1);
+    }
+
+    private void removeZOrder(int rowIndexZ, int row) {
+        long key = zOrderKey(rowIndexZ, row);
+
+        int block = findBlock(key);
+        int start = blockStart(block);
+        int blockSize = zOrderBlockSizes[block];
+        int offset = lowerBound(start, blockSize, key);
+        moveZOrder(start + offset + 1, start + offset, blockSize - offset - 1);
+        resizeBlock(block, -1);
+
+        if (zOrderBlockCount == 1)
+            return;
+        if (zOrderBlockSizes[block] == 0) {
+            removeBlock(block);
+        } else if (block + 1 < zOrderBlockCount && zOrderBlockSizes[block] + zOrderBlockSizes[block + 1] <= Z_ORDER_BLOCK / 2) {
+            joinBlocks(block);
+        } else if (block > 0 && zOrderBlockSizes[block - 1] + zOrderBlockSizes[block] <= Z_ORDER_BLOCK / 2) {
+            joinBlocks(block - 1);
+        }
+    }
+
+    /*
+     * Keys are written out and sorted in one run, which is cut into full blocks
+     */
+    private void rebuildZOrder() {
+        int blockCount = Math.max((size + Z_ORDER_BLOCK - 1) / Z_ORDER_BLOCK, 1);
+        if (zOrderCapacity() < blockCount * Z_ORDER_BLOCK)
+            growZOrder(blockCount * Z_ORDER_BLOCK);
+
+        int position = 0;
+        for (int row = 0; row < size; row++) {
+            if (indexZ(row) != NULL_INT)
+                setZOrderKey(position++, zOrderKey(indexZ(row), row));
+        }
+        sortZOrder(position);
+
+        blockCount = Math.max((position + Z_ORDER_BLOCK - 1) / Z_ORDER_BLOCK, 1);
+        resetZOrderBlocks(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            zOrderBlocks[block] = block;
+            zOrderBlockSizes[block] = Math.min(position - block * Z_ORDER_BLOCK, Z_ORDER_BLOCK);
+        }
+        zOrderBlockCount = blockCount;
+        zOrderUsedBlocks = blockCount;
+        zOrderFreeBlockCount = 0;
+        zOrderSize = position;
+        rebuildBlockTree();
+    }
+
+    /*
+     * First key of the z-order which is not less than the given one
+     */
+    private int lowerBound(long key) {
+        int block = findBlock(key);
+        int blockSize = zOrderBlockSizes[block];
+        int offset = lowerBound(blockStart(block), blockSize, key);
+        return blockPosition(block) + offset;
+    }
+
+    private int lowerBound(int start, int length, long key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (zOrderKey(start + middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Last block whose first key is not greater than the given one, the first block for smaller keys.
+     * Only a single block is ever empty, so every first key looked at exists
+     */
+    private int findBlock(long key) {
+        int low = 0;
+        int high = zOrderBlockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (zOrderKey(blockStart(middle)) <= key) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int blockStart(int block) {
+        return zOrderBlocks[block] * Z_ORDER_BLOCK;
+    }
+
+    /*
+     * Position of the first key of the block in the z-order
+     */
+    private int blockPosition(int block) {
+        int position = 0;
+        for (int node = block; node > 0; node -= node & -node) {
+            position += zOrderBlockTree[node];
+        }
+        return position;
+    }
+
+    private void resizeBlock(int block, int delta) {
+        zOrderBlockSizes[block] += delta;
+        for (int node = block + 1; node <= zOrderBlockCount; node += node & -node) {
+            zOrderBlockTree[node] += delta;
+        }
+        zOrderSize += delta;
+    }
+
+    /*
+     * The upper half of the full block goes to a new block right after it
+     */
+    private void splitBlock(int block) {
+        int newStorageBlock = allocateBlock();
+        int half = Z_ORDER_BLOCK / 2;
+        moveZOrder(blockStart(block) + half, newStorageBlock * Z_ORDER_BLOCK, Z_ORDER_BLOCK - half);
+
+        if (zOrderBlockCount == zOrderBlocks.length)
+            growZOrderBlocks();
+        System.arraycopy(zOrderBlocks, block + 1, zOrderBlocks, block + 2, zOrderBlockCount - block - 1);
+        System.arraycopy(zOrderBlockSizes, block + 1, zOrderBlockSizes, block + 2, zOrderBlockCount - block - 1);
+        zOrderBlocks[block + 1] = newStorageBlock;
+        zOrderBlockSizes[block + 1] = Z_ORDER_BLOCK - half;
+        zOrderBlockSizes[block] = half;
+        zOrderBlockCount++;
+        rebuildBlockTree();
+    }
+
+    /*
+     * Keys of the next block are appended to the given one
+     */
+    private void joinBlocks(int block) {
+        moveZOrder(blockStart(block + 1), blockStart(block) + zOrderBlockSizes[block], zOrderBlockSizes[block + 1]);
+        zOrderBlockSizes[block] += zOrderBlockSizes[block + 1];
+        zOrderBlockSizes[block + 1] = 0;
+        removeBlock(block + 1);
+    }
+
+    private void removeBlock(int block) {
+        if (zOrderFreeBlockCount == zOrderFreeBlocks.length)
+            zOrderFreeBlocks = Arrays.copyOf(zOrderFreeBlocks, zOrderFreeBlockCount * 2);
+        zOrderFreeBlocks[zOrderFreeBlockCount++] = zOrderBlocks[block];
+
+        System.arraycopy(zOrderBlocks, block + 1, zOrderBlocks, block, zOrderBlockCount - block - 1);
+        System.arraycopy(zOrderBlockSizes, block + 1, zOrderBlockSizes, block, zOrderBlockCount - block - 1);
+        zOrderBlockCount--;
+        rebuildBlockTree();
+    }
+
+    private int allocateBlock() {
+        if (zOrderFreeBlockCount > 0)
+            return zOrderFreeBlocks[--zOrderFreeBlockCount];
+
+        int storageBlock = zOrderUsedBlocks++;
+        if (zOrderUsedBlocks * Z_ORDER_BLOCK > zOrderCapacity())
+            growZOrder(Math.multiplyExact(zOrderUsedBlocks + (zOrderUsedBlocks >> 1), Z_ORDER_BLOCK));
+        return storageBlock;
+    }
+
+    private void resetZOrderBlocks(int capacity) {
+        zOrderBlocks = new int[capacity];
+        zOrderBlockSizes = new int[capacity];
+        zOrderBlockTree = new int[capacity + 1];
+        zOrderBlockCount = 1;
+        zOrderUsedBlocks = 1;
+        zOrderFreeBlockCount = 0;
+        zOrderSize = 0;
+    }
+
+    private void growZOrderBlocks() {
+        int capacity = zOrderBlocks.length * 2;
+        zOrderBlocks = Arrays.copyOf(zOrderBlocks, capacity);
+        zOrderBlockSizes = Arrays.copyOf(zOrderBlockSizes, capacity);
+        zOrderBlockTree = new int[capacity + 1];
+    }
+
+    private void rebuildBlockTree() {
+        Arrays.fill(zOrderBlockTree, 0);
+        for (int node = 1; node <= zOrderBlockCount; node++) {
+            zOrderBlockTree[node] += zOrderBlockSizes[node - 1];
+            int parent = node + (node & -node);
+            if (parent <= zOrderBlockCount)
+                zOrderBlockTree[parent] += zOrderBlockTree[node];
+        }
+    }
+
+    private static long zOrderKey(int indexZ, int row) {
+        return ((long) indexZ << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long mostBits, long leastBits) {
+        long hash = (mostBits ^ leastBits) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    protected static int toInt(Integer value) {
+        return isNull(value) ? NULL_INT : value;
+    }
+
+    protected static Integer toInteger(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    protected static float toFloat(Float value) {
+        return isNull(value) ? Float.NaN : value;
+    }
+
+    protected static Float toFloat(float value) {
+        return Float.isNaN(value) ? null : value;
+    }
+
+    protected static long toMillis(ZonedDateTime date) {
+        return isNull(date) ? NULL_DATE : date.toInstant().toEpochMilli();
+    }
+
+    protected static ZonedDateTime toDate(long millis) {
+        return millis == NULL_DATE ? null : ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
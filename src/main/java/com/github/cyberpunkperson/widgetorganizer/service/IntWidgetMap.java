@@ -0,0 +1,70 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+/*
+ * Open addressing indexZ -> widget map with linear probing, avoids boxing keys of large boards
+ */
+class IntWidgetMap {
+
+    private int[] keys;
+    private Widget[] values;
+    private int mask;
+    private int size;
+
+
+    IntWidgetMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new int[capacity];
+        this.values = new Widget[capacity];
+        this.mask = capacity - 1;
+    }
+
+    Widget get(int key) {
+        for (int slot = slot(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key)
+                return values[slot];
+        }
+        return null;
+    }
+
+    void put(int key, Widget value) {
+        int slot = slot(key);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length)
+            resize();
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Widget[] oldValues = values;
+
+        keys = new int[oldKeys.length << 1];
+        values = new Widget[oldValues.length << 1];
+        mask = keys.length - 1;
+        size = 0;
+
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != null)
+                put(oldKeys[slot], oldValues[slot]);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/*
+ * Every caller merges against its own copy of the board and saves on its own thread
+ */
+@Component
+@ConditionalOnProperty(name = "widget-organizer.writer", havingValue = "direct", matchIfMissing = true)
+public class WidgetDirectWriter implements WidgetWriter {
+
+    private final WidgetRepository widgetRepository;
+
+    private final WidgetMerger widgetMerger;
+
+    private final WidgetMergeMetrics mergeMetrics;
+
+
+    public WidgetDirectWriter(WidgetRepository widgetRepository, WidgetMerger widgetMerger) {
+        this(widgetRepository, widgetMerger, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetDirectWriter(WidgetRepository widgetRepository, WidgetMerger widgetMerger, MeterRegistry meterRegistry) {
+        this.widgetRepository = widgetRepository;
+        this.widgetMerger = widgetMerger;
+        this.mergeMetrics = new WidgetMergeMetrics(meterRegistry, widgetMerger);
+    }
+
+    @Override
+    public Widget write(Widget widget) {
+
+        List<Widget> existWidgets = widgetRepository.findAll();
+        List<Widget> mergedWidgets = mergeMetrics.record(1, () -> widgetMerger.mergeEngagedOnly(existWidgets, widget));
+
+        widgetRepository.saveWidgets(mergedWidgets);
+        return widget;
+    }
+
+    @Override
+    public List<Widget> writeBatch(List<Widget> widgets) {
+
+        List<Widget> existWidgets = widgetRepository.findAll();
+        List<Widget> mergedWidgets = mergeMetrics.record(widgets.size(), () -> widgetMerger.mergeBatch(existWidgets, widgets));
+
+        widgetRepository.saveWidgets(mergedWidgets);
+        return widgets;
+    }
+}
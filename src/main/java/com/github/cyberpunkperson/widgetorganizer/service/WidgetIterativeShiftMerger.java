@@ -0,0 +1,86 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/*
+ * Same shift semantics as WidgetShiftMerger without recursion:
+ * the contiguous run starting at the target indexZ is found by walking a primitive keyed map and shifted in one pass
+ */
+@Component
+@ConditionalOnProperty(name = "widget-organizer.merger", havingValue = "iterative")
+public class WidgetIterativeShiftMerger implements WidgetMerger {
+
+
+    @Override
+    public List<Widget> mergeEngagedOnly(List<Widget> widgets, Widget newWidget) {
+        return mergeWidgets(widgets, newWidget);
+    }
+
+    @Override
+    public List<Widget> mergeAll(List<Widget> widgets, Widget newWidget) {
+        List<Widget> engagedWidgets = mergeWidgets(widgets, newWidget);
+        Set<UUID> engagedIds = new HashSet<>();
+        for (Widget widget : engagedWidgets) {
+            engagedIds.add(widget.getId());
+        }
+
+        List<Widget> mergedWidgets = new ArrayList<>(widgets.size() + 1);
+        for (Widget widget : widgets) {
+            if (!engagedIds.contains(widget.getId()))
+                mergedWidgets.add(widget);
+        }
+        mergedWidgets.addAll(engagedWidgets);
+        mergedWidgets.sort(comparingInt(Widget::getIndexZ));
+        return mergedWidgets;
+    }
+
+    @Override
+    public List<Widget> mergeBatch(List<Widget> widgets, List<Widget> newWidgets) {
+        return WidgetShiftBatch.merge(widgets, newWidgets);
+    }
+
+    private List<Widget> mergeWidgets(List<Widget> widgets, Widget newWidget) {
+
+        IntWidgetMap widgetsMap = new IntWidgetMap(widgets.size());
+        boolean hasWidgets = false;
+        int maxIndexZ = Integer.MIN_VALUE;
+
+        for (Widget widget : widgets) {
+            if (isNull(widget.getId()))
+                throw new IllegalStateException("Can't merge widgets with null id");
+
+            if (!widget.getId().equals(newWidget.getId())) {
+                widgetsMap.put(widget.getIndexZ(), widget);
+                maxIndexZ = Math.max(maxIndexZ, widget.getIndexZ());
+                hasWidgets = true;
+            }
+        }
+
+        List<Widget> engagedWidgets = new ArrayList<>();
+        engagedWidgets.add(newWidget);
+
+        if (isNull(newWidget.getIndexZ())) {
+            newWidget.setIndexZ(hasWidgets ? maxIndexZ + 1 : 0);
+            return engagedWidgets;
+        }
+
+        int indexZ = newWidget.getIndexZ();
+        for (Widget widget = widgetsMap.get(indexZ); nonNull(widget); widget = widgetsMap.get(++indexZ)) {
+            engagedWidgets.add(widget);
+        }
+
+        for (int index = 1; index < engagedWidgets.size(); index++) {
+            Widget widget = engagedWidgets.get(index);
+            engagedWidgets.set(index, widget.toBuilder().indexZ(widget.getIndexZ() + 1).build());
+        }
+        return engagedWidgets;
+    }
+}
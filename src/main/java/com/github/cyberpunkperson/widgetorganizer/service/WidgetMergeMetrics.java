@@ -0,0 +1,66 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/*
+ * Merge time and size for any merger strategy, engaged widgets are the ones saved after the merge
+ * and the cascade is the part of them moved by the shift
+ */
+final class WidgetMergeMetrics {
+
+    private final Timer mergeTimer;
+    private final DistributionSummary engagedSummary;
+    private final DistributionSummary cascadeSummary;
+
+
+    WidgetMergeMetrics(MeterRegistry meterRegistry, WidgetMerger widgetMerger) {
+        this(meterRegistry, widgetMerger.getClass().getSimpleName());
+    }
+
+    WidgetMergeMetrics(MeterRegistry meterRegistry, String merger) {
+        this.mergeTimer = Timer.builder("widget.merge")
+                .description("Time to merge new widgets into the board")
+                .tag("merger", merger)
+                .register(meterRegistry);
+        this.engagedSummary = DistributionSummary.builder("widget.merge.engaged")
+                .description("Widgets saved after a merge")
+                .tag("merger", merger)
+                .register(meterRegistry);
+        this.cascadeSummary = DistributionSummary.builder("widget.merge.cascade")
+                .description("Existing widgets shifted by a merge")
+                .tag("merger", merger)
+                .register(meterRegistry);
+    }
+
+    List<Widget> record(int newWidgetsCount, Supplier<List<Widget>> merge) {
+        long startTime = System.nanoTime();
+        List<Widget> engagedWidgets = merge.get();
+        mergeTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+
+        engagedSummary.record(engagedWidgets.size());
+        cascadeSummary.record(Math.max(0, engagedWidgets.size() - newWidgetsCount));
+        return engagedWidgets;
+    }
+
+    /*
+     * For shifts done in place, which only know how many existing widgets were moved
+     */
+    int recordShift(IntSupplier shift) {
+        long startTime = System.nanoTime();
+        int shiftedCount = shift.getAsInt();
+        mergeTimer.record(System.nanoTime() - startTime, NANOSECONDS);
+
+        engagedSummary.record(shiftedCount + 1);
+        cascadeSummary.record(shiftedCount);
+        return shiftedCount;
+    }
+}
@@ -3,6 +3,7 @@ package com.github.cyberpunkperson.widgetorganizer.service;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
 
 import java.util.List;
+import java.util.function.LongSupplier;
 
 public interface WidgetMerger {
 
@@ -10,4 +11,18 @@ public interface WidgetMerger {
 
     List<Widget> mergeAll(List<Widget> widgets, Widget newWidget);
 
+    /*
+     * Merges new widgets in the given order in one pass, the result is the same as merging them one by one,
+     * every engaged widget is returned once and outdated versions of updated widgets are left out.
+     * Stored widgets are shifted as copies, new widgets are shifted in place and keep a null id when they had one.
+     */
+    List<Widget> mergeBatch(List<Widget> widgets, List<Widget> newWidgets);
+
+    /*
+     * Stored indexZ is exposed as is, unless the merger keeps internal ordering keys in it
+     */
+    default Widget exposeIndexZ(Widget widget, LongSupplier position) {
+        return widget;
+    }
+
 }
@@ -0,0 +1,206 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/*
+ * Callers only enqueue their widgets, a single writer thread drains the queue in batches:
+ * one findAll, one merge of the whole batch and one save per batch instead of per widget.
+ * The batch is not merged into the live board in place: mergers take the board as a list, so every batch still
+ * copies the whole board, O(n) per batch, which is shared by up to MAX_BATCH_SIZE mutations instead of paid by each.
+ * Merging in place would tie every merger to the index of one repository.
+ * The caller is released once its batch is saved and gets the widgets as they are after the batch.
+ * The batch is written on the writer thread, so it is not part of a transaction the caller has opened:
+ * every batch runs in a transaction of its own, when there is a transaction manager, and a rollback
+ * of the caller does not undo it.
+ */
+@Component
+@ConditionalOnProperty(name = "widget-organizer.writer", havingValue = "pipeline")
+public class WidgetPipelineWriter implements WidgetWriter {
+
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private final WidgetRepository widgetRepository;
+
+    private final WidgetMerger widgetMerger;
+
+    private final BlockingQueue<Mutation> mutations = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final WidgetMergeMetrics mergeMetrics;
+
+    private final DistributionSummary batchSummary;
+
+    private volatile boolean stopped;
+
+    private Thread writerThread;
+
+
+    public WidgetPipelineWriter(WidgetRepository widgetRepository, WidgetMerger widgetMerger) {
+        this(widgetRepository, widgetMerger, null, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public WidgetPipelineWriter(WidgetRepository widgetRepository, WidgetMerger widgetMerger,
+                                @Nullable PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.widgetRepository = widgetRepository;
+        this.widgetMerger = widgetMerger;
+        this.transactionTemplate = nonNull(transactionManager) ? new TransactionTemplate(transactionManager) : null;
+        this.mergeMetrics = new WidgetMergeMetrics(meterRegistry, widgetMerger);
+        this.batchSummary = DistributionSummary.builder("widget.pipeline.batch")
+                .description("Mutations applied by the writer thread at once")
+                .register(meterRegistry);
+
+        Gauge.builder("widget.pipeline.queue", mutations, Collection::size)
+                .description("Mutations waiting for the writer thread")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread = new Thread(this::drain, "widget-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        writerThread.interrupt();
+        writerThread.join();
+
+        List<Mutation> pendingMutations = new ArrayList<>();
+        mutations.drainTo(pendingMutations);
+        pendingMutations.forEach(mutation -> mutation.result.completeExceptionally(stoppedException()));
+    }
+
+    @Override
+    public Widget write(Widget widget) {
+        return writeBatch(List.of(widget)).get(0);
+    }
+
+    @Override
+    public List<Widget> writeBatch(List<Widget> widgets) {
+
+        if (stopped)
+            throw stoppedException();
+
+        Mutation mutation = new Mutation(widgets);
+        try {
+            mutations.put(mutation);
+            /* stop could have drained the queue between the check and the put, then nobody takes the mutation */
+            if (stopped && mutations.remove(mutation))
+                throw stoppedException();
+            return mutation.result.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the widget writer", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private static IllegalStateException stoppedException() {
+        return new IllegalStateException("Widget writer is stopped");
+    }
+
+    private void drain() {
+        List<Mutation> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(mutations.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            mutations.drainTo(batch, MAX_BATCH_SIZE - 1);
+            batchSummary.record(batch.size());
+
+            /* the writer thread has to survive any failure, otherwise the callers wait for it forever */
+            try {
+                List<Mutation> appliedMutations = isNull(transactionTemplate)
+                        ? applyBatch(batch)
+                        : transactionTemplate.execute(status -> applyBatch(batch));
+                appliedMutations.forEach(mutation -> mutation.result.complete(mutation.widgets));
+            } catch (Throwable e) {
+                batch.forEach(mutation -> mutation.result.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    /*
+     * Mutations with unknown widgets are failed right away, the applied ones are completed once the batch is committed
+     */
+    private List<Mutation> applyBatch(List<Mutation> batch) {
+
+        List<Widget> existWidgets = widgetRepository.findAll();
+        Set<UUID> existIds = existWidgets.stream()
+                .map(Widget::getId)
+                .collect(toSet());
+
+        List<Mutation> acceptedMutations = new ArrayList<>(batch.size());
+        for (Mutation mutation : batch) {
+            Optional<UUID> missingId = mutation.widgets.stream()
+                    .map(Widget::getId)
+                    .filter(widgetId -> nonNull(widgetId) && !existIds.contains(widgetId))
+                    .findAny();
+
+            if (missingId.isPresent()) {
+                mutation.result.completeExceptionally(
+                        new NoSuchElementException(String.format("Widget with id:'%s' does not exist", missingId.get())));
+            } else {
+                acceptedMutations.add(mutation);
+            }
+        }
+
+        List<Widget> newWidgets = acceptedMutations.stream()
+                .flatMap(mutation -> mutation.widgets.stream())
+                .collect(toList());
+        List<Widget> mergedWidgets = mergeMetrics.record(newWidgets.size(), () -> widgetMerger.mergeBatch(existWidgets, newWidgets));
+
+        widgetRepository.saveWidgets(mergedWidgets);
+        return acceptedMutations;
+    }
+
+
+    private static final class Mutation {
+
+        private final List<Widget> widgets;
+        private final CompletableFuture<List<Widget>> result;
+
+        private Mutation(List<Widget> widgets) {
+            this.widgets = widgets;
+            this.result = new CompletableFuture<>();
+        }
+    }
+}
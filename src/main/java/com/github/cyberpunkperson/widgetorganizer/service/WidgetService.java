@@ -1,10 +1,14 @@
 package com.github.cyberpunkperson.widgetorganizer.service;
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursor;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursorPage;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface WidgetService {
 
@@ -12,16 +16,56 @@ public interface WidgetService {
 
     Widget update(Widget widget);
 
+    /*
+     * Creates widgets without id and updates the others, the same as calling them one by one in the given order
+     */
+    List<Widget> saveBatch(List<Widget> widgets);
+
+    /*
+     * Same as saveBatch, but widgets with ids which are not on the board are handed to the consumer
+     * and left out of the batch instead of failing it. Ids are looked up once for the whole batch.
+     */
+    List<Widget> saveBatch(List<Widget> widgets, Consumer<Widget> unknownWidgets);
+
     void deleteById(UUID widgetId);
 
     Widget findById(UUID widgetId);
 
+    Widget findById(UUID widgetId, long version);
+
     List<Widget> findAll();
 
     List<Widget> findAll(Pageable pageable);
 
     List<Widget> findAllSortedByIndexZ(Pageable pageable);
 
+    List<Widget> findAllSortedByIndexZ(Pageable pageable, long version);
+
+    /*
+     * Hands the whole board to the consumer in indexZ order, one widget at a time
+     */
+    void forEachSortedByIndexZ(Consumer<Widget> consumer);
+
+    /*
+     * Version to pin reads to, see WidgetRepository
+     */
+    long currentVersion();
+
+    /*
+     * Moves with every committed write, responses are tagged with it, see WidgetRepository
+     */
+    long boardVersion();
+
+    WidgetCursorPage findAllAfterCursor(WidgetCursor cursor, int size);
+
+    WidgetCursorPage findAllAfterCursor(WidgetCursor cursor, int size, long version);
+
     List<Widget> findAllByArea(Pageable pageable, Integer width, Integer height);
 
+    List<Widget> findAllByArea(Pageable pageable, Integer width, Integer height, long version);
+
+    List<Widget> findAllByViewport(Pageable pageable, Viewport viewport);
+
+    List<Widget> findAllByViewport(Pageable pageable, Viewport viewport, long version);
+
 }
@@ -1,19 +1,30 @@
 package com.github.cyberpunkperson.widgetorganizer.service;
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursor;
+import com.github.cyberpunkperson.widgetorganizer.domain.WidgetCursorPage;
 import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
-import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.springframework.util.Assert.isTrue;
 import static org.springframework.util.Assert.notNull;
 
 @Service
+@Timed("widget.service")
 @RequiredArgsConstructor
 public class WidgetServiceImpl implements WidgetService {
 
@@ -21,17 +32,15 @@ public class WidgetServiceImpl implements WidgetService {
 
     private final WidgetMerger widgetMerger;
 
+    private final WidgetWriter widgetWriter;
+
 
     @Override
     @Transactional
     public Widget create(Widget widget) {
 
-        List<Widget> existWidgets = findAll();
-        List<Widget> mergedWidgets = widgetMerger.mergeEngagedOnly(existWidgets, widget);
         calculateMaxMinCoordinates(widget);
-
-        widgetRepository.saveWidgets(mergedWidgets);
-        return widget;
+        return exposeIndexZ(widgetWriter.write(widget));
     }
 
     @Override
@@ -40,17 +49,46 @@ public class WidgetServiceImpl implements WidgetService {
 
         notNull(widget.getId(), "Widget id should to be specified for update");
 
-        List<Widget> existWidgets = findAll();
-        existWidgets.stream()
-                .filter(existWidget -> existWidget.getId().equals(widget.getId()))
-                .findAny()
+        widgetRepository.findById(widget.getId())
                 .orElseThrow(() -> new NoSuchElementException(String.format("Widget with id:'%s' does not exist", widget.getId())));
 
-        List<Widget> mergedWidgets = widgetMerger.mergeEngagedOnly(existWidgets, widget);
         calculateMaxMinCoordinates(widget);
+        return exposeIndexZ(widgetWriter.write(widget));
+    }
+
+    @Override
+    @Transactional
+    public List<Widget> saveBatch(List<Widget> widgets) {
+        return saveBatch(widgets, widget -> {
+            throw new NoSuchElementException(String.format("Widget with id:'%s' does not exist", widget.getId()));
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<Widget> saveBatch(List<Widget> widgets, Consumer<Widget> unknownWidgets) {
+
+        Set<UUID> widgetIds = widgets.stream()
+                .map(Widget::getId)
+                .filter(Objects::nonNull)
+                .collect(toSet());
+        Set<UUID> existIds = widgetIds.isEmpty() ? Set.of() : widgetRepository.findExistingIds(widgetIds);
+
+        List<Widget> knownWidgets = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            if (isNull(widget.getId()) || existIds.contains(widget.getId())) {
+                knownWidgets.add(widget);
+            } else {
+                unknownWidgets.accept(widget);
+            }
+        }
+        if (knownWidgets.isEmpty())
+            return List.of();
 
-        widgetRepository.saveWidgets(mergedWidgets);
-        return widget;
+        knownWidgets.forEach(this::calculateMaxMinCoordinates);
+        return widgetWriter.writeBatch(knownWidgets).stream()
+                .map(this::exposeIndexZ)
+                .collect(toList());
     }
 
     private void calculateMaxMinCoordinates(Widget widget) {
@@ -65,6 +103,10 @@ public class WidgetServiceImpl implements WidgetService {
         widget.setMinCoordinateY(minCoordinateY);
     }
 
+    private Widget exposeIndexZ(Widget widget) {
+        return widgetMerger.exposeIndexZ(widget, () -> widgetRepository.countByIndexZLessThan(widget.getIndexZ()));
+    }
+
     @Override
     public void deleteById(UUID widgetId) {
         Widget deleteWidget = findById(widgetId);
@@ -74,6 +116,17 @@ public class WidgetServiceImpl implements WidgetService {
     @Override
     public Widget findById(UUID widgetId) {
         return widgetRepository.findById(widgetId)
+                .map(this::exposeIndexZ)
+                .orElseThrow(() -> new NoSuchElementException(String.format("Widget with id:'%s' was not found", widgetId)));
+    }
+
+    /*
+     * Dense indexZ of the sparse merger is ranked against the current board
+     */
+    @Override
+    public Widget findById(UUID widgetId, long version) {
+        return widgetRepository.findById(widgetId, version)
+                .map(this::exposeIndexZ)
                 .orElseThrow(() -> new NoSuchElementException(String.format("Widget with id:'%s' was not found", widgetId)));
     }
 
@@ -90,54 +143,95 @@ public class WidgetServiceImpl implements WidgetService {
 
     @Override
     public List<Widget> findAllSortedByIndexZ(Pageable pageable) {
-        return widgetRepository.findAllSortedByIndexZ(pageable).stream()
+        return exposeIndexZ(pageable, widgetRepository.findAllSortedByIndexZ(pageable).getContent());
+    }
+
+    @Override
+    public List<Widget> findAllSortedByIndexZ(Pageable pageable, long version) {
+        return exposeIndexZ(pageable, widgetRepository.findAllSortedByIndexZ(pageable, version).getContent());
+    }
+
+    private List<Widget> exposeIndexZ(Pageable pageable, List<Widget> foundWidgets) {
+        return IntStream.range(0, foundWidgets.size())
+                .mapToObj(index -> widgetMerger.exposeIndexZ(foundWidgets.get(index), () -> pageable.getOffset() + index))
                 .collect(toList());
     }
 
     @Override
-    public List<Widget> findAllByArea(Pageable pageable, Integer width, Integer height) {
+    public void forEachSortedByIndexZ(Consumer<Widget> consumer) {
+        AtomicLong position = new AtomicLong();
+        widgetRepository.forEachSortedByIndexZ(widget -> {
+            long widgetPosition = position.getAndIncrement();
+            consumer.accept(widgetMerger.exposeIndexZ(widget, () -> widgetPosition));
+        });
+    }
 
-        List<Widget> existWidgets = widgetRepository.findAllSortedByWidthAndHeight();
+    @Override
+    public long currentVersion() {
+        return widgetRepository.currentVersion();
+    }
 
-        return binarySearchOfEdgeIndex(existWidgets, 0, existWidgets.size() - 1, width, height)
-                .map(edgeWidgetIndex -> existWidgets.subList(0, edgeWidgetIndex + 1).stream()
-                        .sorted(Comparator.comparingInt(Widget::getIndexZ))
-                        .collect(toList()))
-                .orElse(emptyList());
+    @Override
+    public long boardVersion() {
+        return widgetRepository.boardVersion();
     }
 
-    private Optional<Integer> binarySearchOfEdgeIndex(List<Widget> widgets, int start, int end, int width, int height) {
+    @Override
+    public WidgetCursorPage findAllAfterCursor(WidgetCursor cursor, int size) {
+        return findAllAfterCursor(cursor, size, widgetRepository.currentVersion());
+    }
 
-        if (end >= start) {
-            int middle = start + ((end - start) >> 1);
+    @Override
+    public WidgetCursorPage findAllAfterCursor(WidgetCursor cursor, int size, long version) {
 
-            if (isEdgeCoordinate(widgets, middle, width, height))
-                return Optional.of(middle);
+        isTrue(size > 0, "Page size should be positive");
 
-            if (isCoordinateMoreThanValue(widgets, middle, width, height))
-                return binarySearchOfEdgeIndex(widgets, start, middle - 1, width, height);
+        List<Widget> foundWidgets;
+        if (isNull(cursor)) {
+            foundWidgets = widgetRepository.findAllSortedByIndexZ(PageRequest.of(0, size + 1), version).getContent();
+        } else {
+            /* Resumes from the encoded indexZ, so moving or deleting the cursor widget between pages does not move the boundary */
+            foundWidgets = widgetRepository.findAllByIndexZGreaterThan(cursor.getIndexZ(), size + 1, version);
+        }
 
-            return binarySearchOfEdgeIndex(widgets, middle + 1, end, width, height);
+        WidgetCursor nextCursor = null;
+        if (foundWidgets.size() > size) {
+            foundWidgets = foundWidgets.subList(0, size);
+            Widget lastWidget = foundWidgets.get(size - 1);
+            nextCursor = new WidgetCursor(lastWidget.getIndexZ(), lastWidget.getId());
         }
 
-        return Optional.empty();
+        List<Widget> pageWidgets = foundWidgets.stream()
+                .map(this::exposeIndexZ)
+                .collect(toList());
+        return new WidgetCursorPage(pageWidgets, nextCursor);
     }
 
-    private boolean isEdgeCoordinate(List<Widget> widgets, int middle, int width, int height) {
-
-        Widget checkWidget = widgets.get(middle);
-        boolean result = checkWidget.getMaxCoordinateX() <= width && checkWidget.getMaxCoordinateY() <= height;
+    @Override
+    public List<Widget> findAllByArea(Pageable pageable, Integer width, Integer height) {
+        return findAllByArea(pageable, width, height, widgetRepository.currentVersion());
+    }
 
-        if (middle < widgets.size() - 1) {
-            Widget nextWidget = widgets.get(middle + 1);
-            return result && (nextWidget.getMaxCoordinateX() > width || nextWidget.getMaxCoordinateY() > height);
-        }
+    @Override
+    public List<Widget> findAllByArea(Pageable pageable, Integer width, Integer height, long version) {
+        return widgetRepository.findAllByArea(width, height, pageable, version).stream()
+                .map(this::exposeIndexZ)
+                .collect(toList());
+    }
 
-        return result;
+    @Override
+    public List<Widget> findAllByViewport(Pageable pageable, Viewport viewport) {
+        return findAllByViewport(pageable, viewport, widgetRepository.currentVersion());
     }
 
-    private boolean isCoordinateMoreThanValue(List<Widget> widgets, Integer middle, int width, int height) {
-        Widget widget = widgets.get(middle);
-        return widget.getMaxCoordinateX() > width && widget.getMaxCoordinateY() > height;
+    @Override
+    public List<Widget> findAllByViewport(Pageable pageable, Viewport viewport, long version) {
+
+        isTrue(viewport.getMinX() <= viewport.getMaxX() && viewport.getMinY() <= viewport.getMaxY(),
+                "Viewport min coordinates should not be greater than max coordinates");
+
+        return widgetRepository.findAllByViewport(viewport, pageable, version).stream()
+                .map(this::exposeIndexZ)
+                .collect(toList());
     }
 }
@@ -0,0 +1,88 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetJDBCRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetJdbcCachingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/*
+ * The board is not loaded, the database shifts the engaged run itself and only the written widget is saved as an entity.
+ * Follows the shift merger, so it is not meant to be combined with the sparse one.
+ * Like the direct writer, concurrent callers race on the unique indexZ.
+ * The shift bypasses the cache, so the cache is told which run has moved.
+ */
+@Component
+@Profile("jdbc")
+@ConditionalOnProperty(name = "widget-organizer.writer", havingValue = "set-shift")
+public class WidgetSetShiftWriter implements WidgetWriter {
+
+    private final WidgetJDBCRepository widgetJDBCRepository;
+
+    private final WidgetJdbcCachingRepository widgetJdbcCachingRepository;
+
+    private final WidgetMergeMetrics mergeMetrics;
+
+
+    public WidgetSetShiftWriter(WidgetJDBCRepository widgetJDBCRepository, WidgetJdbcCachingRepository widgetJdbcCachingRepository,
+                                MeterRegistry meterRegistry) {
+        this.widgetJDBCRepository = widgetJDBCRepository;
+        this.widgetJdbcCachingRepository = widgetJdbcCachingRepository;
+        this.mergeMetrics = new WidgetMergeMetrics(meterRegistry, getClass().getSimpleName());
+    }
+
+    @Override
+    public Widget write(Widget widget) {
+        int shiftedCount = mergeMetrics.recordShift(() -> widgetJDBCRepository.shiftIndexZ(widget));
+        widgetJdbcCachingRepository.evictShifted(widget, shiftedCount);
+        return widgetJDBCRepository.save(widget);
+    }
+
+    /*
+     * Widgets are written one by one, later ones may shift earlier ones, so their indexZ is read back at the end
+     */
+    @Override
+    public List<Widget> writeBatch(List<Widget> widgets) {
+
+        List<Widget> savedWidgets = widgets.stream()
+                .map(this::write)
+                .collect(toList());
+
+        List<UUID> widgetIds = savedWidgets.stream()
+                .map(Widget::getId)
+                .collect(toList());
+        Map<UUID, Integer> indexesZ = widgetJDBCRepository.findAllById(widgetIds).stream()
+                .collect(toMap(Widget::getId, Widget::getIndexZ));
+
+        savedWidgets.forEach(widget -> widget.setIndexZ(indexesZ.get(widget.getId())));
+        return savedWidgets;
+    }
+
+
+    /*
+     * The shift is done by the jdbc repository. Other profiles get this writer instead of a missing WidgetWriter,
+     * so they fail on start with the reason
+     */
+    @Configuration
+    @Profile("!jdbc")
+    @ConditionalOnProperty(name = "widget-organizer.writer", havingValue = "set-shift")
+    static class UnsupportedProfile {
+
+        @Bean
+        public WidgetWriter widgetWriter() {
+            throw new IllegalStateException("widget-organizer.writer=set-shift needs the jdbc profile, " +
+                    "use the direct or pipeline writer with other profiles");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.*;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+/*
+ * Shift semantics for a whole batch in one pass: the board is keyed by indexZ once
+ * and every new widget only walks the run it shifts, instead of re-keying the board per widget.
+ * Outdated versions of updated widgets stay in the keyed board, but are skipped as free slots.
+ * Stored widgets are copied before they are shifted, new widgets of the batch are shifted in place.
+ */
+final class WidgetShiftBatch {
+
+    private final IntWidgetMap widgetsMap;
+    private final Set<Widget> boardWidgets;
+    private final Map<UUID, Widget> boardWidgetsById;
+    private final Set<Widget> engagedWidgets;
+    private final Set<Widget> newWidgets;
+    private int maxIndexZ;
+
+
+    private WidgetShiftBatch(int expectedSize) {
+        this.widgetsMap = new IntWidgetMap(expectedSize);
+        this.boardWidgets = Collections.newSetFromMap(new IdentityHashMap<>(expectedSize));
+        this.boardWidgetsById = new HashMap<>(expectedSize);
+        this.engagedWidgets = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.newWidgets = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.maxIndexZ = Integer.MIN_VALUE;
+    }
+
+    static List<Widget> merge(List<Widget> widgets, List<Widget> newWidgets) {
+
+        WidgetShiftBatch batch = new WidgetShiftBatch(widgets.size() + newWidgets.size());
+        for (Widget widget : widgets) {
+            if (isNull(widget.getId()))
+                throw new IllegalStateException("Can't merge widgets with null id");
+            batch.place(widget);
+        }
+
+        newWidgets.forEach(batch::insert);
+
+        return batch.engagedWidgets.stream()
+                .filter(batch.boardWidgets::contains)
+                .sorted(comparingInt(Widget::getIndexZ))
+                .collect(toList());
+    }
+
+    private void insert(Widget newWidget) {
+
+        if (nonNull(newWidget.getId())) {
+            Widget outdatedWidget = boardWidgetsById.remove(newWidget.getId());
+            if (nonNull(outdatedWidget))
+                boardWidgets.remove(outdatedWidget);
+        }
+
+        if (isNull(newWidget.getIndexZ())) {
+            newWidget.setIndexZ(boardWidgets.isEmpty() ? 0 : currentMaxIndexZ() + 1);
+        } else {
+            shiftRun(newWidget.getIndexZ());
+        }
+
+        place(newWidget);
+        engagedWidgets.add(newWidget);
+        newWidgets.add(newWidget);
+    }
+
+    /*
+     * Moves the contiguous run starting at the given indexZ one step up, the top widget goes first
+     */
+    private void shiftRun(int indexZ) {
+        List<Widget> run = new ArrayList<>();
+        for (Widget widget = boardWidgetAt(indexZ); nonNull(widget); widget = boardWidgetAt(++indexZ)) {
+            run.add(widget);
+        }
+
+        for (int index = run.size() - 1; index >= 0; index--) {
+            Widget widget = run.get(index);
+            if (newWidgets.contains(widget)) {
+                widget.setIndexZ(widget.getIndexZ() + 1);
+                place(widget);
+            } else {
+                Widget shiftedWidget = widget.toBuilder().indexZ(widget.getIndexZ() + 1).build();
+                boardWidgets.remove(widget);
+                place(shiftedWidget);
+                engagedWidgets.add(shiftedWidget);
+            }
+        }
+    }
+
+    private void place(Widget widget) {
+        widgetsMap.put(widget.getIndexZ(), widget);
+        boardWidgets.add(widget);
+        if (nonNull(widget.getId()))
+            boardWidgetsById.put(widget.getId(), widget);
+        maxIndexZ = Math.max(maxIndexZ, widget.getIndexZ());
+    }
+
+    private Widget boardWidgetAt(int indexZ) {
+        Widget widget = widgetsMap.get(indexZ);
+        if (isNull(widget) || !boardWidgets.contains(widget) || widget.getIndexZ() != indexZ)
+            return null;
+        return widget;
+    }
+
+    /*
+     * The top widget could have been replaced by its updated version, then the max is looked up again
+     */
+    private int currentMaxIndexZ() {
+        if (isNull(boardWidgetAt(maxIndexZ))) {
+            maxIndexZ = boardWidgets.stream()
+                    .mapToInt(Widget::getIndexZ)
+                    .max()
+                    .orElse(Integer.MIN_VALUE);
+        }
+        return maxIndexZ;
+    }
+}
@@ -1,16 +1,16 @@
 package com.github.cyberpunkperson.widgetorganizer.service;
 
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 
 import static java.util.Objects.isNull;
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static org.springframework.util.CollectionUtils.isEmpty;
 
 @Component
+@ConditionalOnProperty(name = "widget-organizer.merger", havingValue = "shift", matchIfMissing = true)
 public class WidgetShiftMerger implements WidgetMerger {
 
 
@@ -28,25 +28,36 @@ public class WidgetShiftMerger implements WidgetMerger {
         return new ArrayList<>(mergeWidgets(widgets, newWidget, new HashSet<>()));
     }
 
-    private Collection<Widget> mergeWidgets(List<Widget> widgets, Widget newWidget, Set<UUID> engagedWidgets) {
+    @Override
+    public List<Widget> mergeBatch(List<Widget> widgets, List<Widget> newWidgets) {
+        return WidgetShiftBatch.merge(widgets, newWidgets);
+    }
 
-        if (isEmpty(widgets)) {
+    private Collection<Widget> mergeWidgets(List<Widget> existWidgets, Widget newWidget, Set<UUID> engagedWidgets) {
+
+        /*
+         * On update the stored copy of the widget is left out, otherwise it could be shifted and saved next to the new one
+         */
+        HashMap<Integer, Widget> widgetsMap = new HashMap<>();
+        for (Widget widget : existWidgets) {
+            if (isNull(newWidget.getId()) || !newWidget.getId().equals(widget.getId()))
+                widgetsMap.put(widget.getIndexZ(), widget);
+        }
+
+        if (widgetsMap.isEmpty()) {
             engagedWidgets.add(newWidget.getId());
-            return mergeWithEmptyWidgets(widgets, newWidget);
+            return mergeWithEmptyWidgets(newWidget);
         }
 
         if (isNull(newWidget.getIndexZ())) {
             engagedWidgets.add(newWidget.getId());
-            return mergeWithNullIndexZ(widgets, newWidget);
+            return mergeWithNullIndexZ(widgetsMap.values(), newWidget);
         }
 
-        HashMap<Integer, Widget> widgetsMap = widgets.stream()
-                .collect(toMap(Widget::getIndexZ, widget -> widget, (prev, next) -> next, HashMap::new));
-
         return insertWidgetWithShift(widgetsMap, newWidget, engagedWidgets).values();
     }
 
-    private List<Widget> mergeWithNullIndexZ(List<Widget> widgets, Widget newWidget) {
+    private List<Widget> mergeWithNullIndexZ(Collection<Widget> widgets, Widget newWidget) {
         widgets.stream()
                 .mapToInt(Widget::getIndexZ)
                 .max()
@@ -58,13 +69,12 @@ public class WidgetShiftMerger implements WidgetMerger {
         }};
     }
 
-    private List<Widget> mergeWithEmptyWidgets(List<Widget> widgets, Widget newWidget) {
+    private List<Widget> mergeWithEmptyWidgets(Widget newWidget) {
         if (isNull(newWidget.getIndexZ())) {
             newWidget.setIndexZ(0);
         }
 
         return new ArrayList<>() {{
-            addAll(widgets);
             add(newWidget);
         }};
     }
@@ -83,9 +93,9 @@ public class WidgetShiftMerger implements WidgetMerger {
                             if (isNull(widget.getId())) {
                                 throw new IllegalStateException("Can't merge widgets with null id");
                             } else if (!widget.getId().equals(newWidget.getId())) {
-                                widget.setIndexZ(widget.getIndexZ() + 1);
-                                engagedWidgets.add(widget.getId());
-                                insertWidgetWithShift(widgetsMap, widget, engagedWidgets);
+                                Widget shiftedWidget = widget.toBuilder().indexZ(widget.getIndexZ() + 1).build();
+                                engagedWidgets.add(shiftedWidget.getId());
+                                insertWidgetWithShift(widgetsMap, shiftedWidget, engagedWidgets);
                             }
                         },
                         () -> {
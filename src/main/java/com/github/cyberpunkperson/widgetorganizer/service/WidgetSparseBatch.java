@@ -0,0 +1,160 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.index.WidgetZIndex;
+
+import java.util.*;
+
+import static com.github.cyberpunkperson.widgetorganizer.service.WidgetSparseMerger.APPEND_GAP;
+import static com.github.cyberpunkperson.widgetorganizer.service.WidgetSparseMerger.KEY_LIMIT;
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+/*
+ * Sparse keys for a whole batch in one pass: the board is put into an order-statistic index once,
+ * so every new widget finds its neighbours and the range to relabel in O(log n) instead of sorting the board again.
+ * Stored widgets are copied before they are relabeled, new widgets of the batch and copies are relabeled in place.
+ */
+final class WidgetSparseBatch {
+
+    private static final int KEY_BITS = 31;
+
+    private static final double RANGE_DENSITY = 2 / 1.2;
+
+    private final WidgetZIndex widgetZIndex;
+    private final Map<UUID, Widget> boardWidgetsById;
+    private final Map<UUID, Widget> engagedWidgets;
+    private final Set<Widget> ownWidgets;
+
+
+    private WidgetSparseBatch(List<Widget> widgets) {
+        this.widgetZIndex = new WidgetZIndex();
+        this.boardWidgetsById = new HashMap<>(widgets.size());
+        this.engagedWidgets = new HashMap<>();
+        this.ownWidgets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Widget widget : widgets) {
+            if (isNull(widget.getId()))
+                throw new IllegalStateException("Can't merge widgets with null id");
+            boardWidgetsById.put(widget.getId(), widget);
+        }
+        widgetZIndex.load(boardWidgetsById.values());
+    }
+
+    /*
+     * Created widgets get a provisional id while the batch is merged, it is dropped before return
+     */
+    static List<Widget> merge(List<Widget> widgets, List<Widget> newWidgets) {
+
+        WidgetSparseBatch batch = new WidgetSparseBatch(widgets);
+        List<Widget> createdWidgets = new ArrayList<>();
+        try {
+            for (Widget newWidget : newWidgets) {
+                if (isNull(newWidget.getId())) {
+                    newWidget.setId(UUID.randomUUID());
+                    createdWidgets.add(newWidget);
+                }
+                batch.insert(newWidget);
+            }
+
+            return batch.engagedWidgets.values().stream()
+                    .sorted(comparingInt(Widget::getIndexZ))
+                    .collect(toList());
+        } finally {
+            createdWidgets.forEach(widget -> widget.setId(null));
+        }
+    }
+
+    private void insert(Widget newWidget) {
+
+        Integer previousKey = null;
+        Widget outdatedWidget = boardWidgetsById.remove(newWidget.getId());
+        if (nonNull(outdatedWidget)) {
+            previousKey = outdatedWidget.getIndexZ();
+            widgetZIndex.remove(outdatedWidget.getId());
+        }
+
+        /* positions past either end of the board are clamped to it, see WidgetSparseMerger */
+        int size = widgetZIndex.size();
+        int position = isNull(newWidget.getIndexZ())
+                ? size
+                : Math.max(0, Math.min(newWidget.getIndexZ(), size));
+
+        List<Widget> neighbours = widgetZIndex.range(Math.max(0, position - 1), 2);
+        long lowerKey = position == 0 ? -1 : neighbours.get(0).getIndexZ();
+        long upperKey = position == size ? KEY_LIMIT : neighbours.get(position == 0 ? 0 : 1).getIndexZ();
+
+        if (lowerKey < -1 || upperKey < 0)
+            throw new IllegalStateException("Sparse merger can't merge widgets with negative index Z keys");
+
+        ownWidgets.add(newWidget);
+        if (nonNull(previousKey) && lowerKey < previousKey && previousKey < upperKey) {
+            newWidget.setIndexZ(previousKey);
+        } else if (upperKey - lowerKey > 1) {
+            newWidget.setIndexZ((int) allocateKey(lowerKey, upperKey));
+        } else {
+            relabel(position, Math.max(lowerKey, 0), newWidget);
+        }
+        place(newWidget);
+    }
+
+    private static long allocateKey(long lowerKey, long upperKey) {
+        long step = (upperKey - lowerKey) / 2;
+
+        if (lowerKey < 0 && upperKey == KEY_LIMIT)
+            return KEY_LIMIT / 2;
+        if (lowerKey < 0)
+            return upperKey - Math.min(APPEND_GAP, step);
+        if (upperKey == KEY_LIMIT)
+            return lowerKey + Math.min(APPEND_GAP, step);
+        return lowerKey + step;
+    }
+
+    /*
+     * Spreads the smallest aligned key range around the anchor which is sparse enough evenly, the new widget included
+     */
+    private void relabel(int position, long anchorKey, Widget newWidget) {
+
+        for (int level = 1; level <= KEY_BITS; level++) {
+            long rangeStart = (anchorKey >> level) << level;
+            long rangeEnd = Math.min(rangeStart + (1L << level), KEY_LIMIT);
+
+            int from = (int) widgetZIndex.rank((int) rangeStart);
+            int to = (int) widgetZIndex.rank((int) rangeEnd);
+            int count = to - from + 1;
+
+            if (count <= Math.pow(RANGE_DENSITY, level) && count <= rangeEnd - rangeStart) {
+                List<Widget> rangeWidgets = widgetZIndex.range(from, to - from);
+                rangeWidgets.add(position - from, newWidget);
+
+                long step = (rangeEnd - rangeStart) / count;
+                long key = rangeStart + step / 2;
+                for (Widget widget : rangeWidgets) {
+                    if (widget == newWidget) {
+                        newWidget.setIndexZ((int) key);
+                    } else if (widget.getIndexZ() != key) {
+                        Widget relabeledWidget = ownWidgets.contains(widget) ? widget : widget.toBuilder().build();
+                        relabeledWidget.setIndexZ((int) key);
+                        ownWidgets.add(relabeledWidget);
+                        place(relabeledWidget);
+                    }
+                    key += step;
+                }
+                return;
+            }
+        }
+
+        throw new IllegalStateException("Index Z key space is exhausted");
+    }
+
+    /*
+     * The index keeps the key a widget had on put, so a widget relabeled in place is put again
+     */
+    private void place(Widget widget) {
+        widgetZIndex.put(widget);
+        boardWidgetsById.put(widget.getId(), widget);
+        engagedWidgets.put(widget.getId(), widget);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+import static java.util.Comparator.comparingInt;
+
+/*
+ * Keeps sparse ordering keys in the stored indexZ and exposes dense positions through the API.
+ * A widget inserted at position p gets a key between its neighbours, so other widgets are not rewritten.
+ * When there is no free key between neighbours, the smallest aligned key range around the insertion point
+ * which is sparse enough is relabeled evenly (Dietz and Sleator), which is O(log n) amortised writes per insert.
+ * A requested indexZ is taken as a position and clamped to the board: one past the top puts the widget on top,
+ * a negative one at the bottom, so the widget comes back with the position it actually got.
+ */
+@Component
+@ConditionalOnProperty(name = "widget-organizer.merger", havingValue = "sparse")
+public class WidgetSparseMerger implements WidgetMerger {
+
+    static final long KEY_LIMIT = Integer.MAX_VALUE;
+
+    static final long APPEND_GAP = 1 << 16;
+
+
+    @Override
+    public List<Widget> mergeEngagedOnly(List<Widget> widgets, Widget newWidget) {
+        return WidgetSparseBatch.merge(widgets, List.of(newWidget));
+    }
+
+    @Override
+    public List<Widget> mergeAll(List<Widget> widgets, Widget newWidget) {
+        List<Widget> engagedWidgets = mergeEngagedOnly(widgets, newWidget);
+        Set<UUID> engagedIds = new HashSet<>();
+        for (Widget widget : engagedWidgets) {
+            engagedIds.add(widget.getId());
+        }
+
+        List<Widget> mergedWidgets = new ArrayList<>(widgets.size() + 1);
+        for (Widget widget : widgets) {
+            if (!engagedIds.contains(widget.getId()))
+                mergedWidgets.add(widget);
+        }
+        mergedWidgets.addAll(engagedWidgets);
+        mergedWidgets.sort(comparingInt(Widget::getIndexZ));
+        return mergedWidgets;
+    }
+
+    @Override
+    public List<Widget> mergeBatch(List<Widget> widgets, List<Widget> newWidgets) {
+        return WidgetSparseBatch.merge(widgets, newWidgets);
+    }
+
+    @Override
+    public Widget exposeIndexZ(Widget widget, LongSupplier position) {
+        return widget.toBuilder()
+                .indexZ(Math.toIntExact(position.getAsLong()))
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.List;
+
+/*
+ * Merges created or updated widgets into the board and saves every engaged widget
+ */
+public interface WidgetWriter {
+
+    Widget write(Widget widget);
+
+    /*
+     * Widgets are merged in the given order and saved at once
+     */
+    List<Widget> writeBatch(List<Widget> widgets);
+
+}
@@ -0,0 +1,20 @@
+create table if not exists widget
+(
+    id                 uuid primary key,
+    created_date       timestamp,
+    last_modified_date timestamp,
+    coordinatex        integer not null,
+    coordinatey        integer not null,
+    indexz             integer unique,
+    width              integer not null,
+    height             integer not null,
+    max_coordinatex    real,
+    min_coordinatex    real,
+    max_coordinatey    real,
+    min_coordinatey    real
+);
+
+create index if not exists widget_bounds_idx on widget (min_coordinatex, min_coordinatey, max_coordinatex, max_coordinatey);
+
+-- areas start at the origin, only their max bounds narrow the range
+create index if not exists widget_area_idx on widget (max_coordinatex, max_coordinatey, min_coordinatex, min_coordinatey);
@@ -3,7 +3,11 @@ package com.github.cyberpunkperson.widgetorganizer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetBatchProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetCursorProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetImportProjection;
 import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjection;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -13,19 +17,32 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import static com.github.cyberpunkperson.widgetorganizer.controller.WidgetController.APPLICATION_NDJSON_VALUE;
+import static com.github.cyberpunkperson.widgetorganizer.controller.WidgetController.BOARD_VERSION_HEADER;
 import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.from;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.annotation.DirtiesContext.MethodMode.BEFORE_METHOD;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -38,6 +55,9 @@ class WidgetControllerTests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
 
     @Test
     @DirtiesContext(methodMode = BEFORE_METHOD)
@@ -359,6 +379,587 @@ class WidgetControllerTests {
                 .isEqualTo(sortedWidgets);
     }
 
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findWidgetsByViewportIsOkReturned() throws Exception {
+
+        MvcResult createResult1 = mvc.perform(post("/widgets")
+                .contentType(APPLICATION_JSON)
+                .content(writeWidgetAsJson(
+                        WidgetProjection.builder()
+                                .coordinateX(150)
+                                .coordinateY(150)
+                                .indexZ(6)
+                                .width(50)
+                                .height(50)
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        MvcResult createResult2 = mvc.perform(post("/widgets")
+                .contentType(APPLICATION_JSON)
+                .content(writeWidgetAsJson(
+                        WidgetProjection.builder()
+                                .coordinateX(200)
+                                .coordinateY(200)
+                                .indexZ(4)
+                                .width(100)
+                                .height(100)
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        mvc.perform(post("/widgets")
+                .contentType(APPLICATION_JSON)
+                .content(writeWidgetAsJson(
+                        WidgetProjection.builder()
+                                .coordinateX(500)
+                                .coordinateY(500)
+                                .indexZ(5)
+                                .width(100)
+                                .height(100)
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        WidgetProjection createdWidget1 = readJsonAsWidget(createResult1);
+        WidgetProjection createdWidget2 = readJsonAsWidget(createResult2);
+
+        MvcResult containsResult = mvc.perform(get("/widgets/viewport")
+                .param("page", "0")
+                .param("x1", "100")
+                .param("y1", "100")
+                .param("x2", "200")
+                .param("y2", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        assertThat(readJsonAsWidgetsList(containsResult))
+                .usingElementComparatorIgnoringFields("lastModifiedDate")
+                .isEqualTo(List.of(createdWidget1));
+
+        MvcResult intersectsResult = mvc.perform(get("/widgets/viewport")
+                .param("page", "0")
+                .param("x1", "100")
+                .param("y1", "100")
+                .param("x2", "200")
+                .param("y2", "200")
+                .param("mode", "intersects"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        assertThat(readJsonAsWidgetsList(intersectsResult))
+                .usingElementComparatorIgnoringFields("lastModifiedDate")
+                .isEqualTo(List.of(createdWidget2, createdWidget1));
+    }
+
+    @Test
+    public void findWidgetsByViewportModeDoesNotDependOnDefaultLocale() throws Exception {
+
+        Locale defaultLocale = Locale.getDefault();
+        /* the Turkish dotted capital I does not name any mode */
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            mvc.perform(get("/widgets/viewport")
+                    .param("page", "0")
+                    .param("x1", "100")
+                    .param("y1", "100")
+                    .param("x2", "200")
+                    .param("y2", "200")
+                    .param("mode", "intersects"))
+                    .andExpect(status().isOk());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void findWidgetsByInvalidViewportBadRequestReturned() throws Exception {
+
+        mvc.perform(get("/widgets/viewport")
+                .param("page", "0")
+                .param("x1", "200")
+                .param("y1", "100")
+                .param("x2", "100")
+                .param("y2", "200"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findWidgetsByCursorIsStableAfterCursorWidgetMoved() throws Exception {
+
+        List<WidgetProjection> createdWidgets = new ArrayList<>();
+        for (int indexZ : List.of(1, 2, 4, 5)) {
+            createdWidgets.add(createWidget(indexZ));
+        }
+
+        MvcResult firstResult = mvc.perform(get("/widgets/cursor")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        WidgetCursorProjection firstPage = readJsonAsCursorPage(firstResult);
+        assertThat(firstPage.getWidgets())
+                .extracting(WidgetProjection::getId)
+                .isEqualTo(List.of(createdWidgets.get(0).getId(), createdWidgets.get(1).getId()));
+        assertNotNull(firstPage.getNextCursor());
+
+        /* Moves the last widget of the first page above the rest of the board */
+        WidgetProjection movedWidget = createdWidgets.get(1);
+        movedWidget.setIndexZ(10);
+        mvc.perform(put("/widgets")
+                .contentType(APPLICATION_JSON)
+                .content(writeWidgetAsJson(movedWidget)))
+                .andExpect(status().isOk());
+
+        MvcResult secondResult = mvc.perform(get("/widgets/cursor")
+                .param("size", "2")
+                .param("cursor", firstPage.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        WidgetCursorProjection secondPage = readJsonAsCursorPage(secondResult);
+        assertThat(secondPage.getWidgets())
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidgets.get(2).getId(), 4), tuple(createdWidgets.get(3).getId(), 5));
+        assertNotNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findWidgetsPinnedToBoardVersionIsOkReturned() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+        WidgetProjection createdWidget2 = createWidget(3);
+
+        MvcResult firstResult = mvc.perform(get("/widgets")
+                .param("page", "0")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(BOARD_VERSION_HEADER))
+                .andReturn();
+        String version = firstResult.getResponse().getHeader(BOARD_VERSION_HEADER);
+        assumeFalse("0".equals(version), "Board is not versioned");
+
+        /* Shifts createdWidget1 onto the second position */
+        createWidget(1);
+
+        MvcResult secondResult = mvc.perform(get("/widgets")
+                .param("page", "1")
+                .param("size", "1")
+                .param("version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+
+        assertThat(readJsonAsWidgetsList(firstResult))
+                .extracting(WidgetProjection::getId)
+                .isEqualTo(List.of(createdWidget1.getId()));
+        assertThat(readJsonAsWidgetsList(secondResult))
+                .extracting(WidgetProjection::getId)
+                .isEqualTo(List.of(createdWidget2.getId()));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findWidgetsByIdCursorAreaAndViewportPinnedToBoardVersionIsOkReturned() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+        WidgetProjection createdWidget2 = createWidget(3);
+
+        String version = mvc.perform(get("/widgets/{id}", createdWidget1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(BOARD_VERSION_HEADER))
+                .andReturn().getResponse().getHeader(BOARD_VERSION_HEADER);
+        assumeFalse("0".equals(version), "Board is not versioned");
+
+        /* Shifts createdWidget1 onto indexZ 2 */
+        createWidget(1);
+
+        MvcResult widgetResult = mvc.perform(get("/widgets/{id}", createdWidget1.getId())
+                .param("version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+        assertEquals(1, readJsonAsWidget(widgetResult).getIndexZ());
+
+        MvcResult cursorResult = mvc.perform(get("/widgets/cursor")
+                .param("version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+        assertThat(readJsonAsCursorPage(cursorResult).getWidgets())
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget1.getId(), 1), tuple(createdWidget2.getId(), 3));
+
+        MvcResult areaResult = mvc.perform(get("/widgets")
+                .param("page", "0")
+                .param("width", "200")
+                .param("height", "200")
+                .param("version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+        assertThat(readJsonAsWidgetsList(areaResult))
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget1.getId(), 1), tuple(createdWidget2.getId(), 3));
+
+        MvcResult viewportResult = mvc.perform(get("/widgets/viewport")
+                .param("page", "0")
+                .param("x1", "0")
+                .param("y1", "0")
+                .param("x2", "200")
+                .param("y2", "200")
+                .param("version", version))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+        assertThat(readJsonAsWidgetsList(viewportResult))
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget1.getId(), 1), tuple(createdWidget2.getId(), 3));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findUnchangedWidgetsNotModifiedReturned() throws Exception {
+
+        createWidget(1);
+
+        String eTag = mvc.perform(get("/widgets")
+                .param("page", "0"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ETAG))
+                .andReturn().getResponse().getHeader(ETAG);
+
+        mvc.perform(get("/widgets")
+                .param("page", "0")
+                .header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ETAG, eTag))
+                .andExpect(content().string(""));
+
+        createWidget(2);
+
+        mvc.perform(get("/widgets")
+                .param("page", "0")
+                .header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ETAG, not(eTag)));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void findWidgetsIsServedFromResponseCacheUntilBoardChanges() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+
+        MvcResult firstResult = mvc.perform(get("/widgets")
+                .param("page", "0"))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult cachedResult = mvc.perform(get("/widgets")
+                .param("page", "0"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(header().string(ETAG, firstResult.getResponse().getHeader(ETAG)))
+                .andExpect(header().string(BOARD_VERSION_HEADER, firstResult.getResponse().getHeader(BOARD_VERSION_HEADER)))
+                .andReturn();
+
+        assertThat(cachedResult.getResponse().getContentAsByteArray())
+                .isEqualTo(firstResult.getResponse().getContentAsByteArray());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "widget-responses").tag("result", "hit")
+                .functionCounter().count());
+
+        WidgetProjection createdWidget2 = createWidget(1);
+
+        MvcResult changedResult = mvc.perform(get("/widgets")
+                .param("page", "0"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(readJsonAsWidgetsList(changedResult))
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget2.getId(), 1), tuple(createdWidget1.getId(), 2));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void getUnchangedWidgetNotModifiedReturned() throws Exception {
+
+        WidgetProjection createdWidget = createWidget(1);
+
+        String eTag = mvc.perform(get("/widgets/{widgetId}", createdWidget.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ETAG))
+                .andReturn().getResponse().getHeader(ETAG);
+
+        mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ETAG, eTag));
+
+        /* Changes the board, but not the widget */
+        createWidget(2);
+
+        String boardChangedETag = mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ETAG, not(eTag)))
+                .andReturn().getResponse().getHeader(ETAG);
+
+        /* Shifts the widget */
+        createWidget(1);
+
+        mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .header(IF_NONE_MATCH, boardChangedETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ETAG, not(boardChangedETag)));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void getWidgetPinnedToVersionIsNotMatchedByBoardETag() throws Exception {
+
+        WidgetProjection createdWidget = createWidget(1);
+
+        String version = mvc.perform(get("/widgets/{widgetId}", createdWidget.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(BOARD_VERSION_HEADER);
+        assumeFalse("0".equals(version), "Board is not versioned");
+
+        /* Shifts the widget */
+        createWidget(1);
+
+        String eTag = mvc.perform(get("/widgets/{widgetId}", createdWidget.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(ETAG);
+
+        MvcResult pinnedResult = mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .param("version", version)
+                .header(IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ETAG, not(eTag)))
+                .andExpect(header().string(BOARD_VERSION_HEADER, version))
+                .andReturn();
+        assertEquals(1, readJsonAsWidget(pinnedResult).getIndexZ());
+        String pinnedETag = pinnedResult.getResponse().getHeader(ETAG);
+
+        mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .param("version", version)
+                .header(IF_NONE_MATCH, pinnedETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(ETAG, pinnedETag));
+
+        mvc.perform(get("/widgets/{widgetId}", createdWidget.getId())
+                .header(IF_NONE_MATCH, pinnedETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ETAG, eTag));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void exportWidgetsAsNdjsonIsOkReturned() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+        WidgetProjection createdWidget2 = createWidget(1);
+
+        MvcResult result = mvc.perform(get("/widgets/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_NDJSON_VALUE))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines)
+                .extracting(line -> objectMapper.readValue(line, WidgetProjection.class))
+                .extracting(WidgetProjection::getId, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget2.getId(), 1), tuple(createdWidget1.getId(), 2));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void exportWidgetsAsJsonArrayIsOkReturned() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+        WidgetProjection createdWidget2 = createWidget(2);
+
+        MvcResult result = mvc.perform(get("/widgets/export")
+                .param("format", "json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        assertThat(readJsonAsWidgetsList(result))
+                .extracting(WidgetProjection::getId)
+                .containsExactly(createdWidget1.getId(), createdWidget2.getId());
+
+        mvc.perform(get("/widgets/export")
+                .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void importWidgetsReportsEveryRejectedLine() throws Exception {
+
+        String widgets = String.join("\n",
+                writeWidgetAsJson(WidgetProjection.builder().coordinateX(10).coordinateY(10).indexZ(2).width(10).height(10).build()),
+                "{\"coordinateX\": 10,",
+                writeWidgetAsJson(WidgetProjection.builder().coordinateX(10).coordinateY(10).width(-10).height(10).build()),
+                writeWidgetAsJson(WidgetProjection.builder().id(UUID.randomUUID()).coordinateX(10).coordinateY(10).width(10).height(10).build()),
+                writeWidgetAsJson(WidgetProjection.builder().coordinateX(20).coordinateY(20).indexZ(1).width(10).height(10).build()),
+                "",
+                writeWidgetAsJson(WidgetProjection.builder().coordinateX(30).coordinateY(30).width(10).height(10).build()));
+
+        MvcResult result = mvc.perform(post("/widgets/import")
+                .param("chunkSize", "2")
+                .contentType(APPLICATION_NDJSON_VALUE)
+                .content(widgets))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_NDJSON_VALUE))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines)
+                .extracting(line -> objectMapper.readValue(line, WidgetImportProjection.class))
+                .extracting(WidgetImportProjection::getLine, WidgetImportProjection::getImported, WidgetImportProjection::getFailed)
+                .containsExactly(tuple(2L, null, null), tuple(3L, null, null), tuple(4L, null, null),
+                        tuple(4L, 1L, 3L), tuple(7L, 3L, 3L));
+
+        MvcResult exportResult = mvc.perform(get("/widgets/export")
+                .param("format", "json"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(readJsonAsWidgetsList(exportResult))
+                .extracting(WidgetProjection::getCoordinateX, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(20, 1), tuple(10, 2), tuple(30, 3));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void importExportIntoEmptyBoard() throws Exception {
+
+        WidgetProjection createdWidget1 = createWidget(1);
+        WidgetProjection createdWidget2 = createWidget(2);
+        WidgetProjection createdWidget3 = createWidget(1);
+        String export = mvc.perform(get("/widgets/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (WidgetProjection widget : List.of(createdWidget1, createdWidget2, createdWidget3)) {
+            mvc.perform(delete("/widgets/{widgetId}", widget.getId()))
+                    .andExpect(status().isOk());
+        }
+
+        MvcResult keepIdsResult = mvc.perform(post("/widgets/import")
+                .contentType(APPLICATION_NDJSON_VALUE)
+                .content(export))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(keepIdsResult.getResponse().getContentAsString().split("\n"))
+                .extracting(line -> objectMapper.readValue(line, WidgetImportProjection.class))
+                .extracting(WidgetImportProjection::getLine, WidgetImportProjection::getImported, WidgetImportProjection::getFailed)
+                .containsExactly(tuple(1L, null, null), tuple(2L, null, null), tuple(3L, null, null), tuple(3L, 0L, 3L));
+
+        MvcResult dropIdsResult = mvc.perform(post("/widgets/import")
+                .param("ids", "drop")
+                .contentType(APPLICATION_NDJSON_VALUE)
+                .content(export))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(dropIdsResult.getResponse().getContentAsString().split("\n"))
+                .extracting(line -> objectMapper.readValue(line, WidgetImportProjection.class))
+                .extracting(WidgetImportProjection::getLine, WidgetImportProjection::getImported, WidgetImportProjection::getFailed)
+                .containsExactly(tuple(3L, 3L, 0L));
+
+        MvcResult exportResult = mvc.perform(get("/widgets/export")
+                .param("format", "json"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(readJsonAsWidgetsList(exportResult))
+                .extracting(WidgetProjection::getCoordinateX, WidgetProjection::getCoordinateY, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(createdWidget3.getCoordinateX(), createdWidget3.getCoordinateY(), 1),
+                        tuple(createdWidget1.getCoordinateX(), createdWidget1.getCoordinateY(), 2),
+                        tuple(createdWidget2.getCoordinateX(), createdWidget2.getCoordinateY(), 3));
+        assertThat(readJsonAsWidgetsList(exportResult))
+                .extracting(WidgetProjection::getId)
+                .doesNotContain(createdWidget1.getId(), createdWidget2.getId(), createdWidget3.getId());
+
+        mvc.perform(post("/widgets/import")
+                .param("ids", "renew")
+                .contentType(APPLICATION_NDJSON_VALUE)
+                .content(export))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void importWidgetsRejectsTooLongLine() throws Exception {
+
+        String widgets = String.join("\n",
+                "{\"coordinateX\": 10," + " ".repeat(70_000) + "\"coordinateY\": 10, \"width\": 10, \"height\": 10}",
+                writeWidgetAsJson(WidgetProjection.builder().coordinateX(20).coordinateY(20).width(10).height(10).build()));
+
+        MvcResult result = mvc.perform(post("/widgets/import")
+                .contentType(APPLICATION_NDJSON_VALUE)
+                .content(widgets))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString().split("\n"))
+                .extracting(line -> objectMapper.readValue(line, WidgetImportProjection.class))
+                .extracting(WidgetImportProjection::getLine, WidgetImportProjection::getImported, WidgetImportProjection::getFailed,
+                        WidgetImportProjection::getError)
+                .containsExactly(tuple(1L, null, null, "Widget line is longer than 65536 characters"), tuple(2L, 1L, 1L, null));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = BEFORE_METHOD)
+    public void saveWidgetsBatchIsOkReturned() throws Exception {
+
+        WidgetProjection existWidget = createWidget(1);
+
+        WidgetBatchProjection batch = new WidgetBatchProjection(List.of(
+                WidgetProjection.builder().coordinateX(10).coordinateY(10).indexZ(1).width(10).height(10).build(),
+                WidgetProjection.builder().coordinateX(20).coordinateY(20).width(10).height(10).build(),
+                WidgetProjection.builder().id(existWidget.getId()).coordinateX(30).coordinateY(30).indexZ(5).width(10).height(10).build()));
+
+        MvcResult result = mvc.perform(post("/widgets/batch")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andReturn();
+
+        List<WidgetProjection> savedWidgets = readJsonAsWidgetsList(result);
+        assertThat(savedWidgets)
+                .extracting(WidgetProjection::getCoordinateX, WidgetProjection::getIndexZ)
+                .containsExactly(tuple(10, 1), tuple(20, 3), tuple(30, 5));
+        assertThat(savedWidgets)
+                .extracting(WidgetProjection::getId)
+                .doesNotContainNull()
+                .contains(existWidget.getId());
+    }
+
+    @Test
+    public void saveEmptyWidgetsBatchBadRequestReturned() throws Exception {
+
+        mvc.perform(post("/widgets/batch")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new WidgetBatchProjection(List.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findWidgetsByMalformedCursorBadRequestReturned() throws Exception {
+
+        mvc.perform(get("/widgets/cursor")
+                .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void deleteNotExistWidgetByIdBadRequestReturned() throws Exception {
 
@@ -366,10 +967,46 @@ class WidgetControllerTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void prometheusEndpointExposesWidgetMetrics() throws Exception {
+
+        createWidget(1);
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("widget_repository_size")))
+                .andExpect(content().string(containsString("widget_merge_engaged")))
+                .andExpect(content().string(containsString("widget_merge_cascade")))
+                .andExpect(content().string(containsString("widget_merge_seconds")))
+                .andExpect(content().string(containsString("widget_service_seconds")))
+                .andExpect(content().string(containsString("widget_repository_seconds")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")));
+    }
+
     private String writeWidgetAsJson(WidgetProjection widget) throws JsonProcessingException {
         return objectMapper.writeValueAsString(widget);
     }
 
+    private WidgetProjection createWidget(Integer indexZ) throws Exception {
+        MvcResult result = mvc.perform(post("/widgets")
+                .contentType(APPLICATION_JSON)
+                .content(writeWidgetAsJson(
+                        WidgetProjection.builder()
+                                .coordinateX(100)
+                                .coordinateY(100)
+                                .indexZ(indexZ)
+                                .width(100)
+                                .height(100)
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn();
+        return readJsonAsWidget(result);
+    }
+
+    private WidgetCursorProjection readJsonAsCursorPage(MvcResult result) throws UnsupportedEncodingException, JsonProcessingException {
+        return objectMapper.readValue(result.getResponse().getContentAsString(), WidgetCursorProjection.class);
+    }
+
     private WidgetProjection readJsonAsWidget(MvcResult result) throws UnsupportedEncodingException, JsonProcessingException {
         return objectMapper.readValue(result.getResponse().getContentAsString(), WidgetProjection.class);
     }
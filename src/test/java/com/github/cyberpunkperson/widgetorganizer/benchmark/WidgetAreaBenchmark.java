@@ -0,0 +1,74 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetDirectWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetMerger;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetServiceImpl;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetShiftMerger;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/*
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetAreaBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetAreaBenchmark {
+
+    @Param({"UNIFORM", "CLUSTERED"})
+    private Distribution distribution;
+
+    @Param({"1000", "100000", "1000000"})
+    private int widgetsCount;
+
+    @Param({"1000", "10000"})
+    private int areaSize;
+
+    private WidgetCashRepository widgetCashRepository;
+
+    private WidgetServiceImpl widgetService;
+
+
+    @Setup
+    public void setUp() {
+        widgetCashRepository = new WidgetCashRepository();
+        widgetCashRepository.saveWidgets(WidgetDataset.generate(distribution, widgetsCount));
+
+        WidgetMerger widgetMerger = new WidgetShiftMerger();
+        widgetService = new WidgetServiceImpl(widgetCashRepository, widgetMerger, new WidgetDirectWriter(widgetCashRepository, widgetMerger));
+    }
+
+    @Benchmark
+    public List<Widget> findAllByArea() {
+        return widgetCashRepository.findAllByArea(areaSize, areaSize);
+    }
+
+    @Benchmark
+    public List<Widget> serviceFindAllByArea() {
+        return widgetService.findAllByArea(PageRequest.of(0, 10), areaSize, areaSize);
+    }
+
+    /*
+     * Previous path, sorts the whole board by bounds and re-sorts matched widgets by indexZ
+     */
+    @Benchmark
+    public List<Widget> findAllByAreaWithSort() {
+        return widgetCashRepository.findAllSortedByWidthAndHeight().stream()
+                .filter(widget -> widget.getMinCoordinateX() >= 0 && widget.getMinCoordinateY() >= 0
+                        && widget.getMaxCoordinateX() <= areaSize && widget.getMaxCoordinateY() <= areaSize)
+                .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                .collect(toList());
+    }
+}
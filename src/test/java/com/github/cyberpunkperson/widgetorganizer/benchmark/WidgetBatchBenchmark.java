@@ -0,0 +1,68 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetDirectWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetShiftMerger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * N single creates vs one batch of N creates on the same board:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetBatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetBatchBenchmark {
+
+    @Param({"10000"})
+    private int widgetsCount;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private WidgetDirectWriter widgetWriter;
+
+    private List<Widget> newWidgets;
+
+
+    /*
+     * Every invocation changes the board, so it is rebuilt before each one
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+        WidgetCashRepository widgetCashRepository = new WidgetCashRepository();
+
+        List<Widget> widgets = new ArrayList<>(widgetsCount);
+        for (int i = 0; i < widgetsCount; i++) {
+            widgets.add(new Widget(null, i, i, i * 2, 10, 10, null, null, null, null));
+        }
+        widgetCashRepository.saveWidgets(widgets);
+        widgetWriter = new WidgetDirectWriter(widgetCashRepository, new WidgetShiftMerger());
+
+        Random random = new Random(42);
+        newWidgets = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            newWidgets.add(new Widget(null, 5, 6, random.nextInt(widgetsCount * 2), 10, 10, null, null, null, null));
+        }
+    }
+
+    @Benchmark
+    public List<Widget> singleWrites() {
+        newWidgets.forEach(widgetWriter::write);
+        return newWidgets;
+    }
+
+    @Benchmark
+    public List<Widget> batchWrite() {
+        return widgetWriter.writeBatch(newWidgets);
+    }
+}
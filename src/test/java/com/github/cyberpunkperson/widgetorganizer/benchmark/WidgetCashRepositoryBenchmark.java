@@ -0,0 +1,99 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/*
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetCashRepositoryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetCashRepositoryBenchmark {
+
+    @Param({"UNIFORM", "DENSE_Z", "SPARSE_Z"})
+    private Distribution distribution;
+
+    @Param({"1000", "100000", "1000000"})
+    private int widgetsCount;
+
+    @Param({"0", "50"})
+    private int page;
+
+    private final int pageSize = 10;
+
+    private WidgetCashRepository widgetCashRepository;
+
+    private List<Widget> widgets;
+
+
+    @Setup
+    public void setUp() {
+        widgetCashRepository = new WidgetCashRepository();
+        widgets = WidgetDataset.generate(distribution, widgetsCount);
+        widgetCashRepository.saveWidgets(widgets);
+    }
+
+    @Benchmark
+    public Optional<Widget> findById() {
+        Widget widget = widgets.get(ThreadLocalRandom.current().nextInt(widgetsCount));
+        return widgetCashRepository.findById(widget.getId());
+    }
+
+    @Benchmark
+    public List<Widget> findAllSortedByIndexZ() {
+        return widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(page, pageSize)).getContent();
+    }
+
+    /*
+     * Previous implementation, sorts the whole board on each page request
+     */
+    @Benchmark
+    public List<Widget> findAllSortedByIndexZWithSort() {
+        int startIndex = page * pageSize;
+
+        List<Widget> sortedWidgets = widgetCashRepository.findAll().stream()
+                .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                .collect(toList());
+
+        int endIndex = Math.min(startIndex + pageSize, sortedWidgets.size());
+        return new ArrayList<>(sortedWidgets.subList(startIndex, endIndex));
+    }
+
+    @Benchmark
+    public long countByIndexZLessThan() {
+        return widgetCashRepository.countByIndexZLessThan(widgetsCount / 2);
+    }
+
+    /*
+     * Moves an existing widget, indexZ stays the same, so the board keeps its shape between invocations
+     */
+    @Benchmark
+    public List<Widget> saveWidgets() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Widget widget = widgets.get(random.nextInt(widgetsCount));
+        int coordinateX = random.nextInt(WidgetDataset.BOARD_SIZE);
+
+        Widget movedWidget = widget.toBuilder()
+                .coordinateX(coordinateX)
+                .maxCoordinateX(coordinateX + widget.getWidth() / 2f)
+                .minCoordinateX(coordinateX - widget.getWidth() / 2f)
+                .build();
+        return widgetCashRepository.saveWidgets(List.of(movedWidget));
+    }
+}
@@ -0,0 +1,130 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Reader throughput with a background writer, every nested class runs the readers with its own thread count:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetConcurrentReadBenchmark
+ * "stamped" is WidgetCashRepository, "readWriteLock" is the repository before optimistic reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class WidgetConcurrentReadBenchmark {
+
+    private static final int WIDGETS_COUNT = 100_000;
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final long WRITER_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Param({"stamped", "readWriteLock"})
+    private String repository;
+
+    private WidgetCashRepository widgetCashRepository;
+
+    private WidgetReadWriteLockRepository widgetReadWriteLockRepository;
+
+    private List<Widget> widgets;
+
+    private AtomicBoolean writing;
+
+    private Thread writer;
+
+
+    @Threads(1)
+    public static class Readers1 extends WidgetConcurrentReadBenchmark {
+    }
+
+    @Threads(8)
+    public static class Readers8 extends WidgetConcurrentReadBenchmark {
+    }
+
+    @Threads(32)
+    public static class Readers32 extends WidgetConcurrentReadBenchmark {
+    }
+
+    @Threads(64)
+    public static class Readers64 extends WidgetConcurrentReadBenchmark {
+    }
+
+    @Setup
+    public void setUp() {
+        widgets = new ArrayList<>(WIDGETS_COUNT);
+        for (int i = 0; i < WIDGETS_COUNT; i++) {
+            widgets.add(new Widget(null, i, i, i, 10, 10, i + 5f, i - 5f, i + 5f, i - 5f));
+        }
+
+        if ("stamped".equals(repository)) {
+            widgetCashRepository = new WidgetCashRepository();
+            widgetCashRepository.saveWidgets(widgets);
+        } else {
+            widgetReadWriteLockRepository = new WidgetReadWriteLockRepository();
+            widgetReadWriteLockRepository.saveWidgets(widgets);
+        }
+
+        writing = new AtomicBoolean(true);
+        writer = new Thread(this::write);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        writing.set(false);
+        writer.join();
+    }
+
+    @Benchmark
+    public Optional<Widget> findById() {
+        Widget widget = widgets.get(ThreadLocalRandom.current().nextInt(WIDGETS_COUNT));
+        return "stamped".equals(repository)
+                ? widgetCashRepository.findById(widget.getId())
+                : widgetReadWriteLockRepository.findById(widget.getId());
+    }
+
+    @Benchmark
+    public List<Widget> findAllSortedByIndexZ() {
+        PageRequest page = PageRequest.of(ThreadLocalRandom.current().nextInt(WIDGETS_COUNT / PAGE_SIZE), PAGE_SIZE);
+        return "stamped".equals(repository)
+                ? widgetCashRepository.findAllSortedByIndexZ(page).getContent()
+                : widgetReadWriteLockRepository.findAllSortedByIndexZ(page).getContent();
+    }
+
+    /*
+     * Moves a widget to a new position, so both the z-index and the r-tree are restructured
+     */
+    private void write() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (writing.get()) {
+            Widget widget = widgets.get(random.nextInt(WIDGETS_COUNT));
+            int coordinate = random.nextInt(WIDGETS_COUNT);
+            Widget movedWidget = widget.toBuilder()
+                    .coordinateX(coordinate)
+                    .maxCoordinateX(coordinate + 5f)
+                    .minCoordinateX(coordinate - 5f)
+                    .build();
+
+            if ("stamped".equals(repository)) {
+                widgetCashRepository.saveWidgets(List.of(movedWidget));
+            } else {
+                widgetReadWriteLockRepository.saveWidgets(List.of(movedWidget));
+            }
+            LockSupport.parkNanos(WRITER_PAUSE_NANOS);
+        }
+    }
+}
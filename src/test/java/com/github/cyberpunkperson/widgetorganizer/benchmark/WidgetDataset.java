@@ -0,0 +1,119 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/*
+ * Seeded boards for benchmarks, the same distribution and size always give the same widgets.
+ * Widgets are generated without id, so they could be saved into a repository as new ones.
+ */
+public final class WidgetDataset {
+
+    public static final int BOARD_SIZE = 100_000;
+
+    private static final int MAX_WIDGET_SIZE = 100;
+
+    private static final int CLUSTER_SPREAD = 500;
+
+    private static final long SEED = 42;
+
+
+    public enum Distribution {
+
+        /* Coordinates over the whole board, indexZ is a shuffled half of [0, 2n) */
+        UNIFORM,
+
+        /* Coordinates around a few hot spots, indexZ as for UNIFORM */
+        CLUSTERED,
+
+        /* Coordinates over the whole board, indexZ is [0, n) without gaps, so every insert shifts a long run */
+        DENSE_Z,
+
+        /* Coordinates over the whole board, indexZ gaps are spread over the whole int range, so inserts almost never shift */
+        SPARSE_Z
+    }
+
+    private WidgetDataset() {
+    }
+
+    public static List<Widget> generate(Distribution distribution, int widgetsCount) {
+        Random random = new Random(SEED);
+
+        List<Integer> indexesZ = generateIndexesZ(distribution, widgetsCount, random);
+        int[][] clusters = generateClusters(widgetsCount / 1000 + 1, random);
+
+        List<Widget> widgets = new ArrayList<>(widgetsCount);
+        for (int i = 0; i < widgetsCount; i++) {
+            int coordinateX;
+            int coordinateY;
+            if (distribution == Distribution.CLUSTERED) {
+                int[] cluster = clusters[random.nextInt(clusters.length)];
+                coordinateX = cluster[0] + (int) (random.nextGaussian() * CLUSTER_SPREAD);
+                coordinateY = cluster[1] + (int) (random.nextGaussian() * CLUSTER_SPREAD);
+            } else {
+                coordinateX = random.nextInt(BOARD_SIZE);
+                coordinateY = random.nextInt(BOARD_SIZE);
+            }
+            widgets.add(widget(coordinateX, coordinateY, indexesZ.get(i), random));
+        }
+        return widgets;
+    }
+
+    /*
+     * Copies with random ids, for code which works with already saved widgets
+     */
+    public static List<Widget> withIds(List<Widget> widgets) {
+        List<Widget> identifiedWidgets = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            identifiedWidgets.add(widget.toBuilder().id(UUID.randomUUID()).build());
+        }
+        return identifiedWidgets;
+    }
+
+    public static Widget widget(int coordinateX, int coordinateY, Integer indexZ, Random random) {
+        int width = random.nextInt(MAX_WIDGET_SIZE) + 1;
+        int height = random.nextInt(MAX_WIDGET_SIZE) + 1;
+
+        return new Widget(null, coordinateX, coordinateY, indexZ, width, height,
+                coordinateX + width / 2f, coordinateX - width / 2f,
+                coordinateY + height / 2f, coordinateY - height / 2f);
+    }
+
+    private static List<Integer> generateIndexesZ(Distribution distribution, int widgetsCount, Random random) {
+        List<Integer> indexesZ = new ArrayList<>(widgetsCount);
+        switch (distribution) {
+            case DENSE_Z:
+                for (int indexZ = 0; indexZ < widgetsCount; indexZ++) {
+                    indexesZ.add(indexZ);
+                }
+                break;
+            case SPARSE_Z:
+                int maxGap = Integer.MAX_VALUE / widgetsCount;
+                for (int i = 0, indexZ = 0; i < widgetsCount; i++, indexZ += random.nextInt(maxGap) + 1) {
+                    indexesZ.add(indexZ);
+                }
+                break;
+            default:
+                for (int indexZ = 0; indexZ < widgetsCount * 2; indexZ++) {
+                    indexesZ.add(indexZ);
+                }
+                Collections.shuffle(indexesZ, random);
+                return new ArrayList<>(indexesZ.subList(0, widgetsCount));
+        }
+        Collections.shuffle(indexesZ, random);
+        return indexesZ;
+    }
+
+    private static int[][] generateClusters(int clustersCount, Random random) {
+        int[][] clusters = new int[clustersCount][];
+        for (int i = 0; i < clustersCount; i++) {
+            clusters[i] = new int[]{random.nextInt(BOARD_SIZE), random.nextInt(BOARD_SIZE)};
+        }
+        return clusters;
+    }
+}
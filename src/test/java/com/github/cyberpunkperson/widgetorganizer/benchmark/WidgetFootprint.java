@@ -0,0 +1,89 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCompactRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetOffHeapRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Retained heap per widget and GC cost with a full board, one repository (cash, compact or offheap) per JVM:
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java -Dexec.args="-Xmx3g -cp %classpath com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetFootprint compact 1000000"
+ * The GC part allocates short lived widgets next to the board and measures young collections, then times a full collection.
+ */
+public class WidgetFootprint {
+
+    private static final int CHURN_WIDGETS = 20_000_000;
+
+    private static Object sink;
+
+
+    public static void main(String[] args) {
+        String repositoryName = args.length > 0 ? args[0] : "compact";
+        int widgetsCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        long heapBefore = usedHeap();
+        List<Widget> widgets = WidgetDataset.generate(WidgetDataset.Distribution.UNIFORM, widgetsCount);
+        WidgetRepository widgetRepository = widgetRepository(repositoryName);
+        for (int index = 0; index < widgets.size(); index += 10_000) {
+            widgetRepository.saveWidgets(widgets.subList(index, Math.min(index + 10_000, widgets.size())));
+        }
+        widgets = null;
+        long heapAfter = usedHeap();
+
+        System.out.printf("%s: %d widgets, %.1f MB retained, %.1f bytes per widget%n", repositoryName, widgetRepository.count(),
+                (heapAfter - heapBefore) / 1024.0 / 1024.0, (double) (heapAfter - heapBefore) / widgetsCount);
+
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        Random random = new Random(42);
+        long startTime = System.nanoTime();
+        for (int index = 0; index < CHURN_WIDGETS; index++) {
+            sink = WidgetDataset.widget(index, index, index, random);
+        }
+        System.out.printf("%s: churn of %d widgets took %d ms, %d collections, %d ms in GC%n", repositoryName, CHURN_WIDGETS,
+                (System.nanoTime() - startTime) / 1_000_000, gcCount() - gcCount, gcMillis() - gcMillis);
+
+        startTime = System.nanoTime();
+        System.gc();
+        System.out.printf("%s: full collection took %d ms%n", repositoryName, (System.nanoTime() - startTime) / 1_000_000);
+
+        sink = widgetRepository;
+    }
+
+    private static WidgetRepository widgetRepository(String repositoryName) {
+        switch (repositoryName) {
+            case "cash":
+                return new WidgetCashRepository();
+            case "offheap":
+                return new WidgetOffHeapRepository();
+            default:
+                return new WidgetCompactRepository();
+        }
+    }
+
+    private static long usedHeap() {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.WidgetOrganizer;
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.INTERSECTS;
+
+/*
+ * JPA repository against the JdbcTemplate one on the same H2 board, allocations come with the gc profiler:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetJdbcRepositoryBenchmark -Djmh.args="-prof gc"
+ * Saves run in a transaction, as they do under the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetJdbcRepositoryBenchmark {
+
+    private static final int WIDGETS_COUNT = 10_000;
+
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"jdbc", "jdbc-template"})
+    private String profile;
+
+    private ConfigurableApplicationContext context;
+
+    private WidgetRepository widgetRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Widget> widgets;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WidgetOrganizer.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=" + profile,
+                        "--widget-organizer.datasource.username=sa",
+                        "--widget-organizer.datasource.password=",
+                        "--logging.level.org.springframework=warn",
+                        "--logging.level.com.github.cyberpunkperson.widgetorganizer=warn",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false");
+
+        widgetRepository = context.getBean(WidgetRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        widgets = WidgetDataset.generate(Distribution.UNIFORM, WIDGETS_COUNT);
+        transactionTemplate.executeWithoutResult(status -> widgetRepository.saveWidgets(widgets));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Widget findById() {
+        return widgetRepository.findById(randomWidget().getId()).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Widget> findPageSortedByIndexZ() {
+        int page = ThreadLocalRandom.current().nextInt(WIDGETS_COUNT / PAGE_SIZE);
+        return widgetRepository.findAllSortedByIndexZ(PageRequest.of(page, PAGE_SIZE)).getContent();
+    }
+
+    @Benchmark
+    public List<Widget> findViewportPage() {
+        int minX = ThreadLocalRandom.current().nextInt(WidgetDataset.BOARD_SIZE);
+        int minY = ThreadLocalRandom.current().nextInt(WidgetDataset.BOARD_SIZE);
+        Viewport viewport = new Viewport(minX, minY, minX + 5_000, minY + 5_000, INTERSECTS);
+        return widgetRepository.findAllByViewport(viewport, PageRequest.of(0, PAGE_SIZE)).getContent();
+    }
+
+    @Benchmark
+    public List<Widget> findAreaPage() {
+        int areaSize = ThreadLocalRandom.current().nextInt(WidgetDataset.BOARD_SIZE);
+        return widgetRepository.findAllByArea(areaSize, areaSize, PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MINUTES)
+    public List<Widget> findAll() {
+        return widgetRepository.findAll();
+    }
+
+    /*
+     * Moves a stored widget without touching indexZ, so the board keeps its shape
+     */
+    @Benchmark
+    public List<Widget> saveWidget() {
+        Widget widget = randomWidget();
+        int coordinateX = ThreadLocalRandom.current().nextInt(WidgetDataset.BOARD_SIZE);
+        Widget movedWidget = widget.toBuilder()
+                .coordinateX(coordinateX)
+                .maxCoordinateX(coordinateX + widget.getWidth() / 2f)
+                .minCoordinateX(coordinateX - widget.getWidth() / 2f)
+                .build();
+        return transactionTemplate.execute(status -> widgetRepository.saveWidgets(List.of(movedWidget)));
+    }
+
+    private Widget randomWidget() {
+        return widgets.get(ThreadLocalRandom.current().nextInt(WIDGETS_COUNT));
+    }
+}
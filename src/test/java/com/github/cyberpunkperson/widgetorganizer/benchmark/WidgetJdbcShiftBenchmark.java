@@ -0,0 +1,113 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.WidgetOrganizer;
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetJDBCRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetJdbcCachingRepository;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetDirectWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetIterativeShiftMerger;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetSetShiftWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Insert under a random indexZ in the jdbc profile, on a UNIFORM board runs are a few widgets long,
+ * on a DENSE_Z board without gaps on average half of the board is shifted:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetJdbcShiftBenchmark
+ * "entity" loads the board, merges it with the iterative merger, which survives long runs, and saves every shifted widget,
+ * "set" shifts the run with two update statements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class WidgetJdbcShiftBenchmark {
+
+    @Param({"10000", "100000"})
+    private int widgetsCount;
+
+    @Param({"UNIFORM", "DENSE_Z"})
+    private Distribution distribution;
+
+    @Param({"entity", "set"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+
+    private WidgetJDBCRepository widgetJDBCRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private WidgetWriter widgetWriter;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WidgetOrganizer.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=jdbc",
+                        "--widget-organizer.datasource.username=sa",
+                        "--widget-organizer.datasource.password=",
+                        "--logging.level.org.springframework=warn",
+                        "--logging.level.com.github.cyberpunkperson.widgetorganizer=warn",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false");
+
+        widgetJDBCRepository = context.getBean(WidgetJDBCRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        if ("set".equals(path)) {
+            widgetWriter = new WidgetSetShiftWriter(widgetJDBCRepository, context.getBean(WidgetJdbcCachingRepository.class),
+                    context.getBean(MeterRegistry.class));
+        } else {
+            dropUniqueIndexZ(context.getBean(JdbcTemplate.class));
+            widgetWriter = new WidgetDirectWriter(widgetJDBCRepository, new WidgetIterativeShiftMerger());
+        }
+    }
+
+    /*
+     * Every insert grows the board, so it is refilled before each iteration
+     */
+    @Setup(Level.Iteration)
+    public void fillBoard() {
+        List<Widget> widgets = WidgetDataset.generate(distribution, widgetsCount);
+        transactionTemplate.executeWithoutResult(status -> {
+            widgetJDBCRepository.deleteAllInBatch();
+            widgetJDBCRepository.saveAll(widgets);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /*
+     * Shifted widgets are updated row by row in no particular order, so the entity path breaks the unique indexZ
+     * as soon as a run of two widgets moves. It is measured against a plain index instead.
+     */
+    private static void dropUniqueIndexZ(JdbcTemplate jdbcTemplate) {
+        String constraintName = jdbcTemplate.queryForObject("select constraint_name from information_schema.constraints " +
+                "where table_name = 'WIDGET' and constraint_type = 'UNIQUE'", String.class);
+        jdbcTemplate.execute("alter table widget drop constraint " + constraintName);
+        jdbcTemplate.execute("create index widget_index_z_idx on widget(indexz)");
+    }
+
+    @Benchmark
+    public Widget insert() {
+        int indexZ = ThreadLocalRandom.current().nextInt(distribution == Distribution.DENSE_Z ? widgetsCount : widgetsCount * 2);
+        return transactionTemplate.execute(status -> widgetWriter.write(new Widget(null, 5, 6, indexZ, 10, 10, 10f, 0f, 11f, 1f)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import com.github.cyberpunkperson.widgetorganizer.repository.journal.WidgetJournal;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetJournalBenchmark
+ * saveWidgets compares a write without the journal, with group sync and with a sync per write,
+ * recover restarts a repository from a snapshot of the whole board and a log tail of 10000 writes.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetJournalBenchmark {
+
+    private static final int TAIL_WRITES = 10_000;
+
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        @Param({"off", "group", "sync"})
+        private String journal;
+
+        private Path directory;
+        private WidgetJournal widgetJournal;
+        private WidgetCashRepository widgetCashRepository;
+        private List<Widget> widgets;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("widget-journal");
+            if (!"off".equals(journal))
+                widgetJournal = widgetJournal(directory, "sync".equals(journal) ? Duration.ZERO : Duration.ofMillis(10));
+            widgetCashRepository = new WidgetCashRepository(Duration.ofSeconds(30), widgetJournal);
+            widgetCashRepository.recover();
+            widgets = WidgetDataset.generate(Distribution.UNIFORM, 100_000);
+            widgetCashRepository.saveWidgets(widgets);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (widgetJournal != null)
+                widgetJournal.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+
+        @Param({"100000", "1000000"})
+        private int widgetsCount;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("widget-journal");
+            WidgetJournal widgetJournal = widgetJournal(directory, Duration.ofMillis(10));
+            WidgetCashRepository widgetCashRepository = new WidgetCashRepository(Duration.ofSeconds(30), widgetJournal);
+            widgetCashRepository.recover();
+
+            List<Widget> widgets = WidgetDataset.generate(Distribution.UNIFORM, widgetsCount);
+            for (int index = 0; index < widgets.size(); index += 10_000) {
+                widgetCashRepository.saveWidgets(widgets.subList(index, Math.min(index + 10_000, widgets.size())));
+            }
+            widgetCashRepository.checkpointOnShutdown();
+            for (int index = 0; index < TAIL_WRITES; index++) {
+                widgetCashRepository.saveWidgets(List.of(move(widgets.get(index))));
+            }
+            widgetJournal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Widget> saveWidgets(WriteState state) {
+        Widget widget = state.widgets.get(ThreadLocalRandom.current().nextInt(state.widgets.size()));
+        return state.widgetCashRepository.saveWidgets(List.of(move(widget)));
+    }
+
+    /*
+     * Every recovery starts a new segment, so repeated restarts replay the same tail
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long recover(RecoveryState state) {
+        WidgetJournal widgetJournal = widgetJournal(state.directory, Duration.ofMillis(10));
+        WidgetCashRepository widgetCashRepository = new WidgetCashRepository(Duration.ofSeconds(30), widgetJournal);
+        widgetCashRepository.recover();
+        widgetJournal.close();
+        return widgetCashRepository.count();
+    }
+
+    private static WidgetJournal widgetJournal(Path directory, Duration syncInterval) {
+        return new WidgetJournal(directory.toString(), DataSize.ofMegabytes(64), syncInterval, Duration.ofDays(1));
+    }
+
+    /*
+     * Moves an existing widget, indexZ stays the same, so the board keeps its shape between invocations
+     */
+    private static Widget move(Widget widget) {
+        int coordinateX = ThreadLocalRandom.current().nextInt(WidgetDataset.BOARD_SIZE);
+        return widget.toBuilder()
+                .coordinateX(coordinateX)
+                .maxCoordinateX(coordinateX + widget.getWidth() / 2f)
+                .minCoordinateX(coordinateX - widget.getWidth() / 2f)
+                .build();
+    }
+}
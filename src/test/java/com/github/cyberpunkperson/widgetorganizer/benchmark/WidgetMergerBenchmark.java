@@ -0,0 +1,72 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetIterativeShiftMerger;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetMerger;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetShiftMerger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetMergerBenchmark
+ * The recursive shift merger runs out of stack on long DENSE_Z runs, the iterative one is there for them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetMergerBenchmark {
+
+    @Param({"UNIFORM", "DENSE_Z", "SPARSE_Z"})
+    private Distribution distribution;
+
+    @Param({"1000", "100000", "1000000"})
+    private int widgetsCount;
+
+    @Param({"shift", "iterative"})
+    private String merger;
+
+    private WidgetMerger widgetMerger;
+
+    private List<Widget> widgets;
+
+    private int maxIndexZ;
+
+    private Random random;
+
+
+    /*
+     * Merges shift the board in place, so it is generated again for every iteration
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        widgetMerger = "shift".equals(merger) ? new WidgetShiftMerger() : new WidgetIterativeShiftMerger();
+        widgets = WidgetDataset.withIds(WidgetDataset.generate(distribution, widgetsCount));
+        maxIndexZ = widgets.stream().mapToInt(Widget::getIndexZ).max().orElse(0);
+        random = new Random(42);
+    }
+
+    @Benchmark
+    public List<Widget> mergeEngagedOnly() {
+        return widgetMerger.mergeEngagedOnly(widgets, newWidget());
+    }
+
+    @Benchmark
+    public List<Widget> mergeAll() {
+        return widgetMerger.mergeAll(widgets, newWidget());
+    }
+
+    private Widget newWidget() {
+        Widget widget = WidgetDataset.widget(random.nextInt(WidgetDataset.BOARD_SIZE), random.nextInt(WidgetDataset.BOARD_SIZE),
+                random.nextInt(maxIndexZ + 1), random);
+        widget.setId(UUID.randomUUID());
+        return widget;
+    }
+}
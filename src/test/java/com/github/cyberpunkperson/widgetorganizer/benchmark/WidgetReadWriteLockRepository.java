@@ -0,0 +1,93 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.index.WidgetZIndex;
+import com.github.cyberpunkperson.widgetorganizer.repository.index.WidgetRTree;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toMap;
+
+/*
+ * Read and write paths of WidgetCashRepository as they were before optimistic reads:
+ * a hash map and the indexes behind one read/write lock, every read takes the read lock.
+ * Kept as the baseline of WidgetConcurrentReadBenchmark.
+ */
+public class WidgetReadWriteLockRepository {
+
+    private final Map<UUID, Widget> widgetCash;
+    private final WidgetZIndex widgetZIndex;
+    private final WidgetRTree widgetRTree;
+    private final ReentrantReadWriteLock readWriteLock;
+
+
+    public WidgetReadWriteLockRepository() {
+        this.widgetCash = new HashMap<>();
+        this.widgetZIndex = new WidgetZIndex();
+        this.widgetRTree = new WidgetRTree();
+        this.readWriteLock = new ReentrantReadWriteLock();
+    }
+
+    public Optional<Widget> findById(UUID widgetId) {
+        readWriteLock.readLock().lock();
+        try {
+            return Optional.ofNullable(widgetCash.get(widgetId));
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    public Page<Widget> findAllSortedByIndexZ(Pageable pageable) {
+        readWriteLock.readLock().lock();
+        try {
+            List<Widget> pageWidgets = widgetZIndex.range(pageable.getOffset(), pageable.getPageSize());
+            return new PageImpl<>(pageWidgets, pageable, widgetZIndex.size());
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    public List<Widget> saveWidgets(List<Widget> widgets) {
+
+        readWriteLock.writeLock().lock();
+        try {
+            Map<UUID, Widget> preparedWidget = widgets.stream()
+                    .peek(this::prepareWidget)
+                    .collect(toMap(Widget::getId, widget -> widget));
+
+            this.widgetCash.putAll(preparedWidget);
+            preparedWidget.values().forEach(this::indexWidget);
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+        return widgets;
+    }
+
+    private void indexWidget(Widget widget) {
+        if (isNull(widget.getIndexZ())) {
+            this.widgetZIndex.remove(widget.getId());
+        } else {
+            this.widgetZIndex.put(widget);
+        }
+        this.widgetRTree.put(widget);
+    }
+
+    private void prepareWidget(Widget widget) {
+        if (isNull(widget.getId())) {
+            widget.setId(UUID.randomUUID());
+            widget.setCreatedDate(ZonedDateTime.now());
+            widget.setLastModifiedDate(ZonedDateTime.now());
+
+        } else if (this.widgetCash.containsKey(widget.getId())) {
+            widget.setLastModifiedDate(ZonedDateTime.now());
+        } else {
+            throw new NoSuchElementException(String.format("Widget with is: '%s' was not found", widget.getId()));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.benchmark.WidgetDataset.Distribution;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetColumnStore;
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetOffHeapStore;
+import com.github.cyberpunkperson.widgetorganizer.repository.store.WidgetStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Single widget writes into a full store, each of them moves keys of the z-order:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetStoreBenchmark
+ * Off-heap boards of millions of widgets need direct memory, e.g. -Djmh.args="-jvmArgs -XX:MaxDirectMemorySize=2g"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetStoreBenchmark {
+
+    @Param({"column", "offheap"})
+    private String store;
+
+    @Param({"100000", "1000000", "4000000"})
+    private int widgetsCount;
+
+    private WidgetStore widgetStore;
+
+    private List<Widget> widgets;
+
+
+    @Setup
+    public void setUp() {
+        widgetStore = "offheap".equals(store) ? new WidgetOffHeapStore() : new WidgetColumnStore();
+        widgets = WidgetDataset.withIds(WidgetDataset.generate(Distribution.UNIFORM, widgetsCount));
+        widgetStore.putAll(widgets);
+    }
+
+    /*
+     * The widget keeps its indexZ, its key still leaves the z-order and comes back
+     */
+    @Benchmark
+    public int putExisting() {
+        widgetStore.put(widgets.get(ThreadLocalRandom.current().nextInt(widgetsCount)));
+        return widgetStore.zOrderSize();
+    }
+
+    /*
+     * A new widget goes into the last row, so removing it leaves the store as it was
+     */
+    @Benchmark
+    public int putAndRemoveNew() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Widget widget = WidgetDataset.widget(random.nextInt(WidgetDataset.BOARD_SIZE), random.nextInt(WidgetDataset.BOARD_SIZE),
+                random.nextInt(widgetsCount * 2), random).toBuilder()
+                .id(UUID.randomUUID())
+                .build();
+        widgetStore.put(widget);
+        widgetStore.remove(widget.getId());
+        return widgetStore.zOrderSize();
+    }
+}
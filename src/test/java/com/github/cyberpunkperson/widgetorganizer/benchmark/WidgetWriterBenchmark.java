@@ -0,0 +1,73 @@
+package com.github.cyberpunkperson.widgetorganizer.benchmark;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetDirectWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetPipelineWriter;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetShiftMerger;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Burst of creates from 8 threads, every caller merges and saves on its own vs single writer batches:
+ * mvn -P benchmark test -DskipTests -Djmh.includes=WidgetWriterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class WidgetWriterBenchmark {
+
+    @Param({"10000"})
+    private int widgetsCount;
+
+    @Param({"direct", "pipeline"})
+    private String writer;
+
+    private WidgetPipelineWriter widgetPipelineWriter;
+
+    private WidgetWriter widgetWriter;
+
+
+    /*
+     * The board grows with every create, so it is rebuilt before each iteration
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        WidgetCashRepository widgetCashRepository = new WidgetCashRepository();
+
+        List<Widget> widgets = new ArrayList<>(widgetsCount);
+        for (int i = 0; i < widgetsCount; i++) {
+            widgets.add(new Widget(null, i, i, i * 2, 10, 10, null, null, null, null));
+        }
+        widgetCashRepository.saveWidgets(widgets);
+
+        if ("pipeline".equals(writer)) {
+            widgetPipelineWriter = new WidgetPipelineWriter(widgetCashRepository, new WidgetShiftMerger());
+            widgetPipelineWriter.start();
+            widgetWriter = widgetPipelineWriter;
+        } else {
+            widgetWriter = new WidgetDirectWriter(widgetCashRepository, new WidgetShiftMerger());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        if ("pipeline".equals(writer))
+            widgetPipelineWriter.stop();
+    }
+
+    @Benchmark
+    public Widget create() {
+        int indexZ = ThreadLocalRandom.current().nextInt(widgetsCount * 2);
+        return widgetWriter.write(new Widget(null, 5, 6, indexZ, 10, 10, null, null, null, null));
+    }
+}
@@ -0,0 +1,7 @@
+package com.github.cyberpunkperson.widgetorganizer.load;
+
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("cash")
+class WidgetCashLoadIT extends WidgetLoadIT {
+}
@@ -0,0 +1,17 @@
+package com.github.cyberpunkperson.widgetorganizer.load;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/*
+ * Direct writers merge concurrently against their own reads and race on the unique indexZ,
+ * the pipeline writer applies mutations one by one
+ */
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = {
+        "widget-organizer.datasource.username=sa",
+        "widget-organizer.datasource.password=",
+        "widget-organizer.writer=pipeline"
+})
+class WidgetJdbcLoadIT extends WidgetLoadIT {
+}
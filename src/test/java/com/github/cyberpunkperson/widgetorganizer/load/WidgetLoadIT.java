@@ -0,0 +1,269 @@
+package com.github.cyberpunkperson.widgetorganizer.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetBatchProjection;
+import com.github.cyberpunkperson.widgetorganizer.controller.dto.WidgetProjection;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.net.http.HttpResponse.BodyHandlers.ofString;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/*
+ * Closed-loop load over the real HTTP stack: Tomcat, MVC dispatch, validation, projection mapping and Jackson.
+ * Every worker sends the next request as soon as the previous one is answered, latencies are recorded per operation
+ * and percentile distributions are written to load.report-directory as .hgrm files.
+ * Thresholds come from the load maven profile, see pom.xml.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "logging.level.org.springframework=info",
+        "logging.level.com.github.cyberpunkperson.widgetorganizer=info"
+})
+abstract class WidgetLoadIT {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 4);
+    private static final int WIDGETS = Integer.getInteger("load.widgets", 1000);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 10);
+    private static final double P99_MILLIS = Double.parseDouble(System.getProperty("load.p99-millis", "50"));
+    private static final double MIN_THROUGHPUT = Double.parseDouble(System.getProperty("load.min-throughput", "200"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.001"));
+    private static final String REPORT_DIRECTORY = System.getProperty("load.report-directory", "target/load");
+
+    private static final int BOARD_SIZE = 10_000;
+    private static final int MAX_WIDGET_SIZE = 100;
+    private static final int BATCH_SIZE = 500;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private HttpClient httpClient;
+
+    private final List<WidgetProjection> widgets = Collections.synchronizedList(new ArrayList<>());
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    private final LongAdder errors = new LongAdder();
+
+
+    /*
+     * Relative weights of the operations in the request mix
+     */
+    protected Map<Operation, Integer> mix() {
+        return Map.of(
+                Operation.CREATE, 15,
+                Operation.INSERT, 5,
+                Operation.UPDATE, 10,
+                Operation.LIST, 40,
+                Operation.AREA, 30);
+    }
+
+    @Test
+    public void requestMixMeetsThresholds() throws Exception {
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(3));
+        }
+
+        populateBoard();
+
+        run(WARMUP_SECONDS);
+        recorders.values().forEach(Recorder::reset);
+        errors.reset();
+
+        long startTime = System.nanoTime();
+        run(DURATION_SECONDS);
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+        Histogram total = new Histogram(3);
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            total.add(histogram);
+            report(operation.name().toLowerCase(Locale.ROOT), histogram, elapsedSeconds);
+        }
+        report("total", total, elapsedSeconds);
+
+        double p99Millis = total.getValueAtPercentile(99) / 1000.0;
+        double throughput = total.getTotalCount() / elapsedSeconds;
+        double errorRate = total.getTotalCount() == 0 ? 0 : (double) errors.sum() / total.getTotalCount();
+
+        assertThat(p99Millis).as("p99 latency, ms").isLessThanOrEqualTo(P99_MILLIS);
+        assertThat(throughput).as("throughput, requests/s").isGreaterThanOrEqualTo(MIN_THROUGHPUT);
+        assertThat(errorRate).as("error rate").isLessThanOrEqualTo(MAX_ERROR_RATE);
+    }
+
+    private void populateBoard() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int created = 0; created < WIDGETS; created += BATCH_SIZE) {
+            List<WidgetProjection> batch = new ArrayList<>();
+            for (int index = created; index < Math.min(created + BATCH_SIZE, WIDGETS); index++) {
+                batch.add(randomWidget(random, index));
+            }
+
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(uri("/widgets/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(new WidgetBatchProjection(batch))))
+                    .build(), ofString());
+            assertThat(response.statusCode()).as(response.body()).isEqualTo(200);
+
+            widgets.addAll(objectMapper.readValue(response.body(), new TypeReference<List<WidgetProjection>>() {}));
+        }
+    }
+
+    private void run(int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<Operation> operations = weightedOperations();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                workers.add(executorService.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        execute(operations.get(random.nextInt(operations.size())), random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void execute(Operation operation, ThreadLocalRandom random) throws IOException, InterruptedException {
+        HttpRequest request = request(operation, random);
+
+        long startTime = System.nanoTime();
+        HttpResponse<String> response = httpClient.send(request, ofString());
+        recorders.get(operation).recordValue((System.nanoTime() - startTime) / 1000);
+
+        if (response.statusCode() != 200) {
+            errors.increment();
+        } else if (operation == Operation.CREATE || operation == Operation.INSERT) {
+            widgets.add(objectMapper.readValue(response.body(), WidgetProjection.class));
+        }
+    }
+
+    private HttpRequest request(Operation operation, ThreadLocalRandom random) throws IOException {
+        switch (operation) {
+            case CREATE:
+                return post("/widgets", randomWidget(random, null));
+            case INSERT:
+                return post("/widgets", randomWidget(random, random.nextInt(widgets.size())));
+            case UPDATE:
+                WidgetProjection widget = widgets.get(random.nextInt(widgets.size()));
+                WidgetProjection movedWidget = randomWidget(random, widget.getIndexZ());
+                movedWidget.setId(widget.getId());
+                return HttpRequest.newBuilder(uri("/widgets"))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(movedWidget)))
+                        .build();
+            case LIST:
+                return get(String.format("/widgets?page=%d&size=10", random.nextInt(10)));
+            case AREA:
+                int areaSize = random.nextInt(MAX_WIDGET_SIZE, BOARD_SIZE);
+                return get(String.format("/widgets?page=0&size=10&width=%d&height=%d", areaSize, areaSize));
+            default:
+                throw new IllegalArgumentException(String.format("Operation '%s' is not supported", operation));
+        }
+    }
+
+    private HttpRequest post(String path, WidgetProjection widget) throws IOException {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(widget)))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private List<Operation> weightedOperations() {
+        return mix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .collect(toList());
+    }
+
+    private static WidgetProjection randomWidget(ThreadLocalRandom random, Integer indexZ) {
+        return WidgetProjection.builder()
+                .coordinateX(random.nextInt(BOARD_SIZE))
+                .coordinateY(random.nextInt(BOARD_SIZE))
+                .indexZ(indexZ)
+                .width(random.nextInt(1, MAX_WIDGET_SIZE))
+                .height(random.nextInt(1, MAX_WIDGET_SIZE))
+                .build();
+    }
+
+    private void report(String operation, Histogram histogram, double elapsedSeconds) throws IOException {
+        System.out.printf("%s %-6s count=%d throughput=%.1f/s p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                getClass().getSimpleName(), operation, histogram.getTotalCount(), histogram.getTotalCount() / elapsedSeconds,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0);
+
+        Path directory = Files.createDirectories(Paths.get(REPORT_DIRECTORY));
+        try (PrintStream output = new PrintStream(Files.newOutputStream(directory.resolve(getClass().getSimpleName() + "-" + operation + ".hgrm")))) {
+            histogram.outputPercentileDistribution(output, 1000.0);
+        }
+    }
+
+
+    protected enum Operation {
+
+        /*
+         * New widget on top of the board
+         */
+        CREATE,
+
+        /*
+         * New widget under an occupied indexZ, shifts the widgets above
+         */
+        INSERT,
+
+        UPDATE,
+
+        LIST,
+
+        AREA
+
+    }
+}
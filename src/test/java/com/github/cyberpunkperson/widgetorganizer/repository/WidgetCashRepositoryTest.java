@@ -1,152 +1,105 @@
 package com.github.cyberpunkperson.widgetorganizer.repository;
 
 
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
 import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.TestInstance;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.data.domain.PageRequest;
 
-import java.util.*;
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
 
-import static java.util.Objects.isNull;
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.assertj.core.api.Assertions.from;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@ExtendWith(SpringExtension.class)
-@TestInstance(TestInstance.Lifecycle.PER_METHOD)
-public class WidgetCashRepositoryTest {
+public class WidgetCashRepositoryTest extends WidgetRepositoryTest {
 
-    @InjectMocks
-    private WidgetCashRepository widgetCashRepository;
+    private WidgetCashRepository widgetCashRepository = new WidgetCashRepository();
 
 
-    @Test
-    public void rollbackWidgetsUpdateIfExceptionIsThrown() {
-
-        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
-
-        widgetCashRepository.saveWidgets(Collections.singletonList(widget1));
-
-        Widget widget2 = new Widget(widget1.getId(), 5, 6, 100, 3, 4, null, null, null, null);
-        Widget widget3 = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, null, null, null, null);
-
-        assertThrows(RuntimeException.class, () -> widgetCashRepository.saveWidgets(List.of(widget2, widget3)));
-
-        Widget expectedWidget = new Widget(widget1.getId(), 5, 6, 1, 3, 4, null, null, null, null);
-
-        Widget foundWidget = widgetCashRepository.findById(widget1.getId())
-                .orElseThrow(NoSuchElementException::new);
-
-        assertThat(foundWidget)
-                .returns(expectedWidget.getId(), from(Widget::getId))
-                .returns(expectedWidget.getCoordinateX(), from(Widget::getCoordinateX))
-                .returns(expectedWidget.getCoordinateY(), from(Widget::getCoordinateY))
-                .returns(expectedWidget.getWidth(), from(Widget::getWidth))
-                .returns(expectedWidget.getHeight(), from(Widget::getHeight))
-                .returns(expectedWidget.getIndexZ(), from(Widget::getIndexZ));
-
-        assertEquals(1, widgetCashRepository.findAll().size());
-    }
-
-    @Test
-    public void getWidgetById() {
-
-        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
-
-        widgetCashRepository.saveWidgets(Collections.singletonList(widget));
-
-        Widget savedWidget = widgetCashRepository.findById(widget.getId())
-                .orElseThrow(NoSuchElementException::new);
-
-        assertEquals(widget, savedWidget);
+    @Override
+    protected WidgetRepository widgetRepository() {
+        return widgetCashRepository;
     }
 
     @Test
-    public void deleteWidgetById() {
-
-        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
-
-        widgetCashRepository.saveWidgets(Collections.singletonList(widget));
-
-        Widget savedWidget = widgetCashRepository.findById(widget.getId())
-                .orElseThrow(NoSuchElementException::new);
+    public void findAllSortedByIndexZPinnedToVersion() {
 
-        assertEquals(widget, savedWidget);
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        Widget widget2 = new Widget(null, 5, 6, 2, 3, 4, null, null, null, null);
+        Widget widget3 = new Widget(null, 5, 6, 3, 3, 4, null, null, null, null);
+        widgetCashRepository.saveWidgets(List.of(widget1, widget2, widget3));
 
-        widgetCashRepository.deleteById(widget.getId());
+        long version = widgetCashRepository.currentVersion();
+        List<Widget> firstPage = widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 2), version).getContent();
 
-        assertEquals(Optional.empty(), widgetCashRepository.findById(widget.getId()));
+        /* Inserting on top of widget1 shifts the whole board */
+        List<Widget> shiftedWidgets = widgetCashRepository.findAll().stream()
+                .map(widget -> widget.toBuilder().indexZ(widget.getIndexZ() + 1).build())
+                .collect(toList());
+        Widget widget4 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        shiftedWidgets.add(widget4);
+        widgetCashRepository.saveWidgets(shiftedWidgets);
+        widgetCashRepository.deleteById(widget2.getId());
+
+        assertEquals(version + 2, widgetCashRepository.currentVersion());
+        assertEquals(List.of(widget1, widget2), firstPage);
+        assertEquals(List.of(widget3), widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(1, 2), version).getContent());
+        assertEquals(3, widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(1, 2), version).getTotalElements());
+        assertThat(widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 10)).getContent())
+                .extracting(Widget::getId)
+                .isEqualTo(List.of(widget4.getId(), widget1.getId(), widget3.getId()));
     }
 
     @Test
-    public void saveWidgetsWithIdGeneration() {
-
-        List<Widget> widgetsToSave = new ArrayList<>() {{
-            add(new Widget(null, 5, 6, 1, 3, 4, null, null, null, null));
-            add(new Widget(null, 5, 6, 2, 3, 4, null, null, null, null));
-            add(new Widget(null, 5, 6, 4, 3, 4, null, null, null, null));
-            add(new Widget(null, 3, 4, 5, 4, 4, null, null, null, null));
-        }};
-
-        widgetCashRepository.saveWidgets(widgetsToSave);
-
-        List<Widget> savedWidgets = widgetCashRepository.findAll();
-
-        assertEquals(4, savedWidgets.size());
-        assertEquals(Collections.emptyList(),
-                savedWidgets.stream()
-                        .filter(widget -> isNull(widget.getId()))
-                        .collect(toList()));
+    public void findByIdAndViewportPinnedToVersion() {
+
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, 6.5f, 3.5f, 8f, 4f);
+        Widget widget2 = new Widget(null, 50, 60, 2, 3, 4, 51.5f, 48.5f, 62f, 58f);
+        widgetCashRepository.saveWidgets(List.of(widget1, widget2));
+        long version = widgetCashRepository.currentVersion();
+
+        /* Moves widget1 out of the viewport */
+        widgetCashRepository.saveWidgets(List.of(widget1.toBuilder()
+                .coordinateX(100).maxCoordinateX(101.5f).minCoordinateX(98.5f)
+                .build()));
+        Viewport viewport = new Viewport(0, 0, 10, 10, CONTAINS);
+
+        assertEquals(5, widgetCashRepository.findById(widget1.getId(), version).orElseThrow().getCoordinateX());
+        assertEquals(100, widgetCashRepository.findById(widget1.getId(), version + 1).orElseThrow().getCoordinateX());
+        assertEquals(List.of(widget1), widgetCashRepository.findAllByViewport(viewport, PageRequest.of(0, 10), version).getContent());
+        assertEquals(List.of(), widgetCashRepository.findAllByViewport(viewport, PageRequest.of(0, 10), version + 1).getContent());
+        assertEquals(List.of(widget2), widgetCashRepository.findAllByIndexZGreaterThan(1, 10, version));
     }
 
     @Test
-    public void updateWidget() {
+    public void findByIdReturnsCopy() {
 
         Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        widgetCashRepository.saveWidgets(List.of(widget));
 
-        widgetCashRepository.saveWidgets(Collections.singletonList(widget));
-
-        widget.setIndexZ(4);
-        widget.setWidth(300);
-        widget.setHeight(200);
-        widgetCashRepository.saveWidgets(Collections.singletonList(widget));
-
-        Widget expectedWidget = new Widget(widget.getId(), 5, 6, 4, 300, 200, null, null, null, null);
+        widgetCashRepository.findById(widget.getId()).orElseThrow().setIndexZ(7);
 
-
-        Widget updatedWidget = widgetCashRepository.findById(widget.getId())
-                .orElseThrow(NoSuchElementException::new);
-
-        assertThat(updatedWidget)
-                .returns(expectedWidget.getId(), from(Widget::getId))
-                .returns(expectedWidget.getCoordinateX(), from(Widget::getCoordinateX))
-                .returns(expectedWidget.getCoordinateY(), from(Widget::getCoordinateY))
-                .returns(expectedWidget.getWidth(), from(Widget::getWidth))
-                .returns(expectedWidget.getHeight(), from(Widget::getHeight))
-                .returns(expectedWidget.getIndexZ(), from(Widget::getIndexZ));
+        assertEquals(1, widgetCashRepository.findById(widget.getId()).orElseThrow().getIndexZ());
+        assertEquals(List.of(widget), widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 10)).getContent());
     }
 
     @Test
-    public void findAllSortedByWidthAndHeight() {
+    public void findAllSortedByIndexZWithExpiredVersion() throws InterruptedException {
 
-        List<Widget> savedWidgets = new ArrayList<>() {{
-            add(new Widget(null, 100, 100, 4, 100, 100, 150f, 50f, 150f, 50f));
-            add(new Widget(null, 50, 100, 2, 100, 100, 100f, 0f, 150f, 50f));
-            add(new Widget(null, 100, 150, 5, 100, 100, 150f, 50f, 200f, 100f));
-            add(new Widget(null, 50, 50, 1, 100, 100, 100f, 0f, 100f, 0f));
-        }};
+        widgetCashRepository = new WidgetCashRepository(Duration.ofMillis(1), null);
 
-        widgetCashRepository.saveWidgets(savedWidgets);
-
-        List<Widget> sortedWidgets = savedWidgets.stream()
-                .sorted(Comparator.comparingDouble(Widget::getMaxCoordinateX).thenComparing(Widget::getMaxCoordinateY))
-                .collect(toList());
+        widgetCashRepository.saveWidgets(List.of(new Widget(null, 5, 6, 1, 3, 4, null, null, null, null)));
+        long version = widgetCashRepository.currentVersion();
+        widgetCashRepository.saveWidgets(List.of(new Widget(null, 5, 6, 2, 3, 4, null, null, null, null)));
+        Thread.sleep(10);
 
-        assertEquals(sortedWidgets, widgetCashRepository.findAllSortedByWidthAndHeight());
+        assertThrows(NoSuchElementException.class, () -> widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 10), version));
+        assertThrows(NoSuchElementException.class, () -> widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 10), version + 5));
+        assertEquals(2, widgetCashRepository.findAllSortedByIndexZ(PageRequest.of(0, 10), version + 1).getTotalElements());
     }
 }
@@ -0,0 +1,56 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WidgetCompactRepositoryTest extends WidgetRepositoryTest {
+
+    private WidgetCompactRepository widgetCompactRepository = new WidgetCompactRepository();
+
+
+    @Override
+    protected WidgetRepository widgetRepository() {
+        return widgetCompactRepository;
+    }
+
+    @Test
+    public void saveWidgetWithoutIndexZIsRejected() {
+
+        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        Widget widgetWithoutIndexZ = new Widget(null, 5, 6, null, 3, 4, null, null, null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> widgetCompactRepository.saveWidgets(List.of(widget, widgetWithoutIndexZ)));
+        assertThrows(IllegalArgumentException.class, () -> widgetCompactRepository.saveWidgets(
+                List.of(new Widget(null, 5, 6, Integer.MIN_VALUE, 3, 4, null, null, null, null))));
+        assertEquals(0, widgetCompactRepository.count());
+    }
+
+    /*
+     * The store does not keep indexZ unique, the walk goes on through equal indexZ longer than a chunk
+     */
+    @Test
+    public void forEachSortedByIndexZWalksEqualIndexZ() {
+
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            widgets.add(new Widget(null, 5, 6, i < 2200 ? 1 : i, 3, 4, null, null, null, null));
+        }
+        widgetCompactRepository.saveWidgets(widgets);
+
+        List<UUID> visitedIds = new ArrayList<>();
+        widgetCompactRepository.forEachSortedByIndexZ(widget -> visitedIds.add(widget.getId()));
+
+        assertThat(visitedIds)
+                .doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(widgets.stream().map(Widget::getId).collect(toList()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetShiftMerger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = {
+        "widget-organizer.datasource.username=sa",
+        "widget-organizer.datasource.password="
+})
+public class WidgetJDBCRepositoryTest {
+
+    @Autowired
+    private WidgetJDBCRepository widgetJDBCRepository;
+
+
+    @Test
+    public void shiftIndexZMovesOnlyTheEngagedRun() {
+
+        Widget widget1 = shiftAndSave(widget(null, 1));
+        Widget widget2 = shiftAndSave(widget(null, 2));
+        Widget widget3 = shiftAndSave(widget(null, 4));
+
+        Widget newWidget = shiftAndSave(widget(null, 1));
+
+        assertEquals(Map.of(newWidget.getId(), 1, widget1.getId(), 2, widget2.getId(), 3, widget3.getId(), 4), indexesZ());
+    }
+
+    @Test
+    public void shiftIndexZUpdatesIntoItsOwnRun() {
+
+        Widget widget1 = shiftAndSave(widget(null, 1));
+        Widget widget2 = shiftAndSave(widget(null, 2));
+        Widget widget3 = shiftAndSave(widget(null, 3));
+
+        shiftAndSave(widget(widget3.getId(), 1));
+        assertEquals(Map.of(widget3.getId(), 1, widget1.getId(), 2, widget2.getId(), 3), indexesZ());
+
+        shiftAndSave(widget(widget3.getId(), null));
+        assertEquals(Map.of(widget1.getId(), 2, widget2.getId(), 3, widget3.getId(), 4), indexesZ());
+    }
+
+    @Test
+    public void shiftIndexZAsShiftMerger() {
+
+        Random random = new Random(42);
+        WidgetShiftMerger widgetShiftMerger = new WidgetShiftMerger();
+        Map<UUID, Widget> board = new HashMap<>();
+
+        for (int step = 0; step < 300; step++) {
+            Integer indexZ = random.nextInt(10) == 0 ? null : random.nextInt(60) - 10;
+            UUID widgetId = board.isEmpty() || random.nextBoolean()
+                    ? null
+                    : new ArrayList<>(board.keySet()).get(random.nextInt(board.size()));
+
+            Widget savedWidget = shiftAndSave(widget(widgetId, indexZ));
+
+            Widget mergedWidget = widget(savedWidget.getId(), indexZ);
+            widgetShiftMerger.mergeEngagedOnly(new ArrayList<>(board.values()), mergedWidget)
+                    .forEach(widget -> board.put(widget.getId(), widget));
+
+            assertEquals(board.values().stream().collect(toMap(Widget::getId, Widget::getIndexZ)), indexesZ());
+        }
+    }
+
+    @Test
+    public void saveWidgetsShiftsRunUnderUniqueIndexZ() {
+
+        List<Widget> widgets = widgetJDBCRepository.saveWidgets(List.of(widget(null, 1), widget(null, 2), widget(null, 3)));
+
+        Widget newWidget = widget(null, 1);
+        List<Widget> mergedWidgets = new WidgetShiftMerger().mergeEngagedOnly(widgetJDBCRepository.findAll(), newWidget);
+        widgetJDBCRepository.saveWidgets(mergedWidgets);
+
+        assertEquals(Map.of(newWidget.getId(), 1, widgets.get(0).getId(), 2, widgets.get(1).getId(), 3, widgets.get(2).getId(), 4), indexesZ());
+    }
+
+    @Test
+    public void findExistingIds() {
+
+        Widget widget1 = shiftAndSave(widget(null, 1));
+        Widget widget2 = shiftAndSave(widget(null, 2));
+
+        assertEquals(Set.of(widget1.getId(), widget2.getId()),
+                widgetJDBCRepository.findExistingIds(List.of(widget1.getId(), UUID.randomUUID(), widget2.getId())));
+    }
+
+    private Widget shiftAndSave(Widget widget) {
+        widgetJDBCRepository.shiftIndexZ(widget);
+        return widgetJDBCRepository.save(widget);
+    }
+
+    private Map<UUID, Integer> indexesZ() {
+        return widgetJDBCRepository.findAll().stream()
+                .collect(toMap(Widget::getId, Widget::getIndexZ));
+    }
+
+    private static Widget widget(UUID widgetId, Integer indexZ) {
+        return new Widget(widgetId, 5, 6, indexZ, 3, 4, 6.5f, 3.5f, 8f, 4f);
+    }
+}
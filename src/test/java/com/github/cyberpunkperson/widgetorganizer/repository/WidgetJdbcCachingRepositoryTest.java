@@ -0,0 +1,167 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.service.WidgetService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = {
+        "widget-organizer.datasource.username=sa",
+        "widget-organizer.datasource.password="
+})
+public class WidgetJdbcCachingRepositoryTest {
+
+    @Autowired
+    private WidgetJdbcCachingRepository widgetJdbcCachingRepository;
+
+    @Autowired
+    private WidgetJDBCRepository widgetJDBCRepository;
+
+    @Autowired
+    private WidgetService widgetService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+
+    /*
+     * Saves are committed, the board is shared by the whole context
+     */
+    @BeforeEach
+    public void clearBoard() {
+        jdbcTemplate.update("delete from widget");
+    }
+
+    @Test
+    public void findByIdIsServedFromCache() {
+
+        Widget widget = widgetService.create(widget(1));
+        double hits = meterRegistry.get("cache.gets").tag("cache", "widgets").tag("result", "hit").functionCounter().count();
+
+        widgetJdbcCachingRepository.findById(widget.getId());
+        jdbcTemplate.update("update widget set width = 100 where id = ?", widget.getId());
+
+        assertEquals(3, widgetJdbcCachingRepository.findById(widget.getId()).orElseThrow().getWidth());
+        assertEquals(hits + 1, meterRegistry.get("cache.gets").tag("cache", "widgets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void shiftedWidgetsAreEvictedAfterCommit() {
+
+        Widget widget1 = widgetService.create(widget(1));
+        Widget widget2 = widgetService.create(widget(2));
+        Widget widget3 = widgetService.create(widget(4));
+        widgetJdbcCachingRepository.findById(widget1.getId());
+        widgetJdbcCachingRepository.findById(widget2.getId());
+        widgetJdbcCachingRepository.findById(widget3.getId());
+        assertEquals(List.of(1, 2, 4), pageIndexesZ());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            widgetService.create(widget(1));
+            assertEquals(2, CompletableFuture.supplyAsync(() -> indexZ(widget2)).join());
+        });
+
+        assertEquals(2, indexZ(widget1));
+        assertEquals(3, indexZ(widget2));
+        assertEquals(4, indexZ(widget3));
+        assertEquals(List.of(1, 2, 3, 4), pageIndexesZ());
+    }
+
+    @Test
+    public void rolledBackWriteKeepsCache() {
+
+        Widget widget = widgetService.create(widget(1));
+        widgetJdbcCachingRepository.findById(widget.getId());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            widgetService.create(widget(1));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, indexZ(widget));
+    }
+
+    @Test
+    public void deletedWidgetIsEvicted() {
+
+        Widget widget = widgetService.create(widget(1));
+        widgetJdbcCachingRepository.findById(widget.getId());
+
+        widgetService.deleteById(widget.getId());
+
+        assertTrue(widgetJdbcCachingRepository.findById(widget.getId()).isEmpty());
+        assertTrue(pageIndexesZ().isEmpty());
+    }
+
+    @Test
+    public void boardVersionIsSharedWithJdbcRepositoryAndMovesOnCommit() {
+
+        long boardVersion = widgetJdbcCachingRepository.boardVersion();
+        assertEquals(boardVersion, widgetJDBCRepository.boardVersion());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            widgetService.create(widget(1));
+            assertEquals(boardVersion, widgetJDBCRepository.boardVersion());
+        });
+
+        assertTrue(widgetJdbcCachingRepository.boardVersion() > boardVersion);
+        assertEquals(widgetJdbcCachingRepository.boardVersion(), widgetJDBCRepository.boardVersion());
+    }
+
+    @Test
+    public void boardVersionMovesOnWritesPastTheCache() {
+
+        long createdVersion = widgetJDBCRepository.boardVersion();
+        Widget widget = widgetJDBCRepository.saveWidgets(List.of(widget(1))).get(0);
+        assertTrue(widgetJDBCRepository.boardVersion() > createdVersion);
+
+        long shiftedVersion = widgetJDBCRepository.boardVersion();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            widgetJDBCRepository.shiftIndexZ(widget(1));
+            assertEquals(shiftedVersion, widgetJDBCRepository.boardVersion());
+        });
+        assertTrue(widgetJDBCRepository.boardVersion() > shiftedVersion);
+
+        long deletedVersion = widgetJDBCRepository.boardVersion();
+        ((WidgetRepository) widgetJDBCRepository).deleteById(widget.getId());
+        assertTrue(widgetJDBCRepository.boardVersion() > deletedVersion);
+    }
+
+    private Integer indexZ(Widget widget) {
+        return widgetJdbcCachingRepository.findById(widget.getId()).orElseThrow().getIndexZ();
+    }
+
+    private List<Integer> pageIndexesZ() {
+        return widgetJdbcCachingRepository.findAllSortedByIndexZ(PageRequest.of(0, 10)).stream()
+                .map(Widget::getIndexZ)
+                .collect(toList());
+    }
+
+    private static Widget widget(Integer indexZ) {
+        return new Widget(null, 5, 6, indexZ, 3, 4, null, null, null, null);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+@SpringBootTest
+@ActiveProfiles("jdbc-template")
+@TestPropertySource(properties = {
+        "widget-organizer.datasource.username=sa",
+        "widget-organizer.datasource.password="
+})
+public class WidgetJdbcTemplateRepositoryTest extends WidgetRepositoryTest {
+
+    @Autowired
+    private WidgetJdbcTemplateRepository widgetJdbcTemplateRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+
+    @Override
+    protected WidgetRepository widgetRepository() {
+        return widgetJdbcTemplateRepository;
+    }
+
+    /*
+     * Saves are committed, the board is shared by the whole context
+     */
+    @BeforeEach
+    public void clearBoard() {
+        jdbcTemplate.update("delete from widget");
+    }
+}
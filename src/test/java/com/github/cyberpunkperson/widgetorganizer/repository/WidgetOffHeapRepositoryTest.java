@@ -0,0 +1,13 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+
+public class WidgetOffHeapRepositoryTest extends WidgetRepositoryTest {
+
+    private WidgetOffHeapRepository widgetOffHeapRepository = new WidgetOffHeapRepository();
+
+
+    @Override
+    protected WidgetRepository widgetRepository() {
+        return widgetOffHeapRepository;
+    }
+}
@@ -0,0 +1,480 @@
+package com.github.cyberpunkperson.widgetorganizer.repository;
+
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Viewport;
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.CONTAINS;
+import static com.github.cyberpunkperson.widgetorganizer.domain.Viewport.Mode.INTERSECTS;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.from;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public abstract class WidgetRepositoryTest {
+
+    protected abstract WidgetRepository widgetRepository();
+
+
+    @Test
+    public void rollbackWidgetsUpdateIfExceptionIsThrown() {
+
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+        widgetRepository().saveWidgets(Collections.singletonList(widget1));
+
+        Widget widget2 = new Widget(widget1.getId(), 5, 6, 100, 3, 4, null, null, null, null);
+        Widget widget3 = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, null, null, null, null);
+
+        assertThrows(RuntimeException.class, () -> widgetRepository().saveWidgets(List.of(widget2, widget3)));
+
+        Widget expectedWidget = new Widget(widget1.getId(), 5, 6, 1, 3, 4, null, null, null, null);
+
+        Widget foundWidget = widgetRepository().findById(widget1.getId())
+                .orElseThrow(NoSuchElementException::new);
+
+        assertThat(foundWidget)
+                .returns(expectedWidget.getId(), from(Widget::getId))
+                .returns(expectedWidget.getCoordinateX(), from(Widget::getCoordinateX))
+                .returns(expectedWidget.getCoordinateY(), from(Widget::getCoordinateY))
+                .returns(expectedWidget.getWidth(), from(Widget::getWidth))
+                .returns(expectedWidget.getHeight(), from(Widget::getHeight))
+                .returns(expectedWidget.getIndexZ(), from(Widget::getIndexZ));
+
+        assertEquals(1, widgetRepository().findAll().size());
+    }
+
+    @Test
+    public void getWidgetById() {
+
+        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+        widgetRepository().saveWidgets(Collections.singletonList(widget));
+
+        Widget savedWidget = widgetRepository().findById(widget.getId())
+                .orElseThrow(NoSuchElementException::new);
+
+        assertEquals(widget, savedWidget);
+    }
+
+    @Test
+    public void deleteWidgetById() {
+
+        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+        widgetRepository().saveWidgets(Collections.singletonList(widget));
+
+        Widget savedWidget = widgetRepository().findById(widget.getId())
+                .orElseThrow(NoSuchElementException::new);
+
+        assertEquals(widget, savedWidget);
+
+        widgetRepository().deleteById(widget.getId());
+
+        assertEquals(Optional.empty(), widgetRepository().findById(widget.getId()));
+    }
+
+    @Test
+    public void saveWidgetsWithIdGeneration() {
+
+        List<Widget> widgetsToSave = new ArrayList<>() {{
+            add(new Widget(null, 5, 6, 1, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 2, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 4, 3, 4, null, null, null, null));
+            add(new Widget(null, 3, 4, 5, 4, 4, null, null, null, null));
+        }};
+
+        widgetRepository().saveWidgets(widgetsToSave);
+
+        List<Widget> savedWidgets = widgetRepository().findAll();
+
+        assertEquals(4, savedWidgets.size());
+        assertEquals(Collections.emptyList(),
+                savedWidgets.stream()
+                        .filter(widget -> isNull(widget.getId()))
+                        .collect(toList()));
+    }
+
+    @Test
+    public void updateWidget() {
+
+        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+        widgetRepository().saveWidgets(Collections.singletonList(widget));
+
+        widget.setIndexZ(4);
+        widget.setWidth(300);
+        widget.setHeight(200);
+        widgetRepository().saveWidgets(Collections.singletonList(widget));
+
+        Widget expectedWidget = new Widget(widget.getId(), 5, 6, 4, 300, 200, null, null, null, null);
+
+
+        Widget updatedWidget = widgetRepository().findById(widget.getId())
+                .orElseThrow(NoSuchElementException::new);
+
+        assertThat(updatedWidget)
+                .returns(expectedWidget.getId(), from(Widget::getId))
+                .returns(expectedWidget.getCoordinateX(), from(Widget::getCoordinateX))
+                .returns(expectedWidget.getCoordinateY(), from(Widget::getCoordinateY))
+                .returns(expectedWidget.getWidth(), from(Widget::getWidth))
+                .returns(expectedWidget.getHeight(), from(Widget::getHeight))
+                .returns(expectedWidget.getIndexZ(), from(Widget::getIndexZ));
+    }
+
+    @Test
+    public void findAllSortedByWidthAndHeight() {
+
+        List<Widget> savedWidgets = new ArrayList<>() {{
+            add(new Widget(null, 100, 100, 4, 100, 100, 150f, 50f, 150f, 50f));
+            add(new Widget(null, 50, 100, 2, 100, 100, 100f, 0f, 150f, 50f));
+            add(new Widget(null, 100, 150, 5, 100, 100, 150f, 50f, 200f, 100f));
+            add(new Widget(null, 50, 50, 1, 100, 100, 100f, 0f, 100f, 0f));
+        }};
+
+        widgetRepository().saveWidgets(savedWidgets);
+
+        List<Widget> sortedWidgets = savedWidgets.stream()
+                .sorted(Comparator.comparingDouble(Widget::getMaxCoordinateX).thenComparing(Widget::getMaxCoordinateY))
+                .collect(toList());
+
+        assertEquals(sortedWidgets, widgetRepository().findAllSortedByWidthAndHeight());
+    }
+
+    @Test
+    public void findAllSortedByIndexZ() {
+
+        List<Widget> savedWidgets = new ArrayList<>() {{
+            add(new Widget(null, 5, 6, 7, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, -2, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 3, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 0, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 11, 3, 4, null, null, null, null));
+        }};
+
+        widgetRepository().saveWidgets(savedWidgets);
+
+        List<Widget> sortedWidgets = savedWidgets.stream()
+                .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                .collect(toList());
+
+        assertEquals(sortedWidgets.subList(0, 2), widgetRepository().findAllSortedByIndexZ(PageRequest.of(0, 2)).getContent());
+        assertEquals(sortedWidgets.subList(2, 4), widgetRepository().findAllSortedByIndexZ(PageRequest.of(1, 2)).getContent());
+        assertEquals(sortedWidgets.subList(4, 5), widgetRepository().findAllSortedByIndexZ(PageRequest.of(2, 2)).getContent());
+        assertEquals(Collections.emptyList(), widgetRepository().findAllSortedByIndexZ(PageRequest.of(3, 2)).getContent());
+        assertEquals(5, widgetRepository().findAllSortedByIndexZ(PageRequest.of(0, 2)).getTotalElements());
+    }
+
+    @Test
+    public void findAllSortedByIndexZAfterShiftAndDelete() {
+
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        Widget widget2 = new Widget(null, 5, 6, 2, 3, 4, null, null, null, null);
+        Widget widget3 = new Widget(null, 5, 6, 3, 3, 4, null, null, null, null);
+
+        widgetRepository().saveWidgets(List.of(widget1, widget2, widget3));
+
+        widget2.setIndexZ(3);
+        widget3.setIndexZ(4);
+        Widget widget4 = new Widget(null, 5, 6, 2, 3, 4, null, null, null, null);
+        widgetRepository().saveWidgets(List.of(widget4, widget2, widget3));
+        widgetRepository().deleteById(widget1.getId());
+
+        assertEquals(List.of(widget4, widget2, widget3), widgetRepository().findAllSortedByIndexZ(PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    public void countByIndexZLessThan() {
+
+        widgetRepository().saveWidgets(new ArrayList<>() {{
+            add(new Widget(null, 5, 6, 1, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 4, 3, 4, null, null, null, null));
+            add(new Widget(null, 5, 6, 8, 3, 4, null, null, null, null));
+        }});
+
+        assertEquals(0, widgetRepository().countByIndexZLessThan(1));
+        assertEquals(1, widgetRepository().countByIndexZLessThan(4));
+        assertEquals(2, widgetRepository().countByIndexZLessThan(5));
+        assertEquals(3, widgetRepository().countByIndexZLessThan(100));
+    }
+
+    @Test
+    public void findAllByArea() {
+
+        Widget widget1 = new Widget(null, 50, 50, 4, 98, 100, 99f, 1f, 100f, 0f);
+        Widget widget2 = new Widget(null, 50, 50, 1, 100, 100, 100f, 0f, 100f, 0f);
+        Widget widget3 = new Widget(null, 50, 100, 3, 100, 98, 100f, 0f, 149f, 51f);
+        Widget widget4 = new Widget(null, 50, 100, 2, 100, 100, 100f, 0f, 150f, 50f);
+        Widget widget5 = new Widget(null, 50, 100, 5, 100, 101, 100f, 0f, 150.5f, 49.5f);
+        Widget widget6 = new Widget(null, 50, 50, 6, 101, 100, 100.5f, -0.5f, 100f, 0f);
+        Widget widget7 = new Widget(null, 75, 75, 7, 100, 100, 125f, 25f, 125f, 25f);
+
+        widgetRepository().saveWidgets(List.of(widget1, widget2, widget3, widget4, widget5, widget6, widget7));
+
+        assertEquals(List.of(widget2, widget4, widget3, widget1), widgetRepository().findAllByArea(100, 150));
+        assertEquals(Collections.emptyList(), widgetRepository().findAllByArea(10, 15));
+    }
+
+    @Test
+    public void findAllByAreaPage() {
+
+        Widget widget1 = new Widget(null, 50, 50, 4, 98, 100, 99f, 1f, 100f, 0f);
+        Widget widget2 = new Widget(null, 50, 50, 1, 100, 100, 100f, 0f, 100f, 0f);
+        Widget widget3 = new Widget(null, 50, 100, 3, 100, 98, 100f, 0f, 149f, 51f);
+        Widget widget4 = new Widget(null, 50, 100, 2, 100, 100, 100f, 0f, 150f, 50f);
+        Widget widget5 = new Widget(null, 50, 100, 5, 100, 101, 100f, 0f, 150.5f, 49.5f);
+
+        widgetRepository().saveWidgets(List.of(widget1, widget2, widget3, widget4, widget5));
+
+        assertEquals(List.of(widget2, widget4), widgetRepository().findAllByArea(100, 150, PageRequest.of(0, 2)));
+        assertEquals(List.of(widget3, widget1), widgetRepository().findAllByArea(100, 150, PageRequest.of(1, 2)));
+        assertEquals(Collections.emptyList(), widgetRepository().findAllByArea(100, 150, PageRequest.of(2, 2)));
+    }
+
+    @Test
+    public void forEachSortedByIndexZ() {
+
+        Random random = new Random(42);
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            widgets.add(randomWidget(random, i));
+        }
+        Collections.shuffle(widgets, random);
+        widgetRepository().saveWidgets(widgets);
+
+        List<UUID> visitedIds = new ArrayList<>();
+        widgetRepository().forEachSortedByIndexZ(widget -> visitedIds.add(widget.getId()));
+
+        assertEquals(widgets.stream()
+                        .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                        .map(Widget::getId)
+                        .collect(toList()),
+                visitedIds);
+    }
+
+    @Test
+    public void findExistingIds() {
+
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+        Widget widget2 = new Widget(null, 5, 6, 2, 3, 4, null, null, null, null);
+        widgetRepository().saveWidgets(List.of(widget1, widget2));
+        widgetRepository().deleteById(widget2.getId());
+
+        assertEquals(Set.of(widget1.getId()),
+                widgetRepository().findExistingIds(List.of(widget1.getId(), widget2.getId(), UUID.randomUUID())));
+    }
+
+    @Test
+    public void forEachSortedByIndexZHandsOverMovedWidgetOnce() {
+
+        Random random = new Random(42);
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            widgets.add(randomWidget(random, i));
+        }
+        widgetRepository().saveWidgets(widgets);
+
+        List<UUID> visitedIds = new ArrayList<>();
+        widgetRepository().forEachSortedByIndexZ(widget -> {
+            if (visitedIds.size() == 10) {
+                Widget movedWidget = widgetRepository().findById(visitedIds.get(0)).orElseThrow();
+                movedWidget.setIndexZ(5000);
+                widgetRepository().saveWidgets(List.of(movedWidget));
+            }
+            visitedIds.add(widget.getId());
+        });
+
+        assertThat(visitedIds)
+                .doesNotHaveDuplicates()
+                .hasSize(widgets.size());
+    }
+
+    @Test
+    public void findAllByAreaMatchesBruteForce() {
+
+        Random random = new Random(42);
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            widgets.add(randomWidget(random, i));
+        }
+        widgetRepository().saveWidgets(widgets);
+
+        for (int i = 0; i < 1000; i++) {
+            Widget widget = widgets.get(random.nextInt(widgets.size()));
+            Widget movedWidget = randomWidget(random, widget.getIndexZ());
+            movedWidget.setId(widget.getId());
+            widgets.set(widgets.indexOf(widget), movedWidget);
+            widgetRepository().saveWidgets(List.of(movedWidget));
+        }
+        for (int i = 0; i < 1000; i++) {
+            widgetRepository().deleteById(widgets.remove(random.nextInt(widgets.size())).getId());
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int width = random.nextInt(1200);
+            int height = random.nextInt(1200);
+
+            List<Widget> expectedWidgets = widgets.stream()
+                    .filter(widget -> widget.getMinCoordinateX() >= 0 && widget.getMinCoordinateY() >= 0
+                            && widget.getMaxCoordinateX() <= width && widget.getMaxCoordinateY() <= height)
+                    .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                    .collect(toList());
+
+            assertEquals(expectedWidgets, widgetRepository().findAllByArea(width, height));
+        }
+    }
+
+    @Test
+    public void findAllByIndexZGreaterThan() {
+
+        List<Widget> widgets = new ArrayList<>();
+        for (int indexZ = 0; indexZ < 100; indexZ++) {
+            widgets.add(new Widget(null, 5, 6, indexZ * 2, 3, 4, 5f, 6f, null, null));
+        }
+        widgetRepository().saveWidgets(widgets);
+
+        assertEquals(widgets.subList(0, 3), widgetRepository().findAllByIndexZGreaterThan(Integer.MIN_VALUE, 3));
+        assertEquals(widgets.subList(51, 54), widgetRepository().findAllByIndexZGreaterThan(100, 3));
+        assertEquals(widgets.subList(51, 54), widgetRepository().findAllByIndexZGreaterThan(101, 3));
+        assertEquals(widgets.subList(98, 100), widgetRepository().findAllByIndexZGreaterThan(195, 3));
+        assertTrue(widgetRepository().findAllByIndexZGreaterThan(198, 3).isEmpty());
+        assertTrue(widgetRepository().findAllByIndexZGreaterThan(Integer.MAX_VALUE, 3).isEmpty());
+    }
+
+    @Test
+    public void findAllByViewportMatchesBruteForce() {
+
+        Random random = new Random(7);
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            widgets.add(randomWidget(random, i));
+        }
+        widgetRepository().saveWidgets(widgets);
+
+        for (int i = 0; i < 200; i++) {
+            int minX = random.nextInt(1000) - 100;
+            int minY = random.nextInt(1000) - 100;
+            int maxX = minX + random.nextInt(400);
+            int maxY = minY + random.nextInt(400);
+
+            List<Widget> expectedContained = widgets.stream()
+                    .filter(widget -> widget.getMinCoordinateX() >= minX && widget.getMinCoordinateY() >= minY
+                            && widget.getMaxCoordinateX() <= maxX && widget.getMaxCoordinateY() <= maxY)
+                    .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                    .collect(toList());
+            List<Widget> expectedIntersected = widgets.stream()
+                    .filter(widget -> widget.getMinCoordinateX() <= maxX && widget.getMaxCoordinateX() >= minX
+                            && widget.getMinCoordinateY() <= maxY && widget.getMaxCoordinateY() >= minY)
+                    .sorted(Comparator.comparingInt(Widget::getIndexZ))
+                    .collect(toList());
+
+            Pageable all = PageRequest.of(0, widgets.size());
+            assertEquals(expectedContained, widgetRepository().findAllByViewport(new Viewport(minX, minY, maxX, maxY, CONTAINS), all).getContent());
+            assertEquals(expectedIntersected, widgetRepository().findAllByViewport(new Viewport(minX, minY, maxX, maxY, INTERSECTS), all).getContent());
+        }
+    }
+
+    @Test
+    public void findAllByViewportPaged() {
+
+        List<Widget> widgets = new ArrayList<>() {{
+            add(new Widget(null, 10, 10, 3, 10, 10, 15f, 5f, 15f, 5f));
+            add(new Widget(null, 20, 20, 1, 10, 10, 25f, 15f, 25f, 15f));
+            add(new Widget(null, 30, 30, 2, 10, 10, 35f, 25f, 35f, 25f));
+            add(new Widget(null, 90, 90, 0, 10, 10, 95f, 85f, 95f, 85f));
+        }};
+        widgetRepository().saveWidgets(widgets);
+
+        Viewport viewport = new Viewport(0, 0, 40, 40, INTERSECTS);
+        Page<Widget> firstPage = widgetRepository().findAllByViewport(viewport, PageRequest.of(0, 2));
+        Page<Widget> secondPage = widgetRepository().findAllByViewport(viewport, PageRequest.of(1, 2));
+
+        assertEquals(List.of(widgets.get(1), widgets.get(2)), firstPage.getContent());
+        assertEquals(List.of(widgets.get(0)), secondPage.getContent());
+        assertEquals(3, secondPage.getTotalElements());
+    }
+
+    @Test
+    public void concurrentReadsSeeConsistentBoard() throws Exception {
+
+        int widgetsCount = 200;
+        List<Widget> widgets = new ArrayList<>();
+        for (int indexZ = 0; indexZ < widgetsCount; indexZ++) {
+            widgets.add(randomWidget(new Random(indexZ), indexZ));
+        }
+        widgetRepository().saveWidgets(widgets);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            Random random = new Random(11);
+            while (writing.get()) {
+                Widget first = widgets.get(random.nextInt(widgetsCount));
+                Widget second = widgets.get(random.nextInt(widgetsCount));
+                if (first.getId().equals(second.getId()))
+                    continue;
+
+                Widget firstStored = widgetRepository().findById(first.getId()).orElseThrow();
+                Widget secondStored = widgetRepository().findById(second.getId()).orElseThrow();
+
+                /* swaps indexZ of two widgets with fresh copies in one batch */
+                widgetRepository().saveWidgets(List.of(
+                        firstStored.toBuilder().indexZ(secondStored.getIndexZ()).build(),
+                        secondStored.toBuilder().indexZ(firstStored.getIndexZ()).build()));
+            }
+        });
+        writer.start();
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int reader = 0; reader < 4; reader++) {
+                results.add(readers.submit(() -> {
+                    for (int read = 0; read < 2000; read++) {
+                        List<Widget> page = widgetRepository().findAllSortedByIndexZ(PageRequest.of(0, widgetsCount)).getContent();
+                        assertEquals(widgetsCount, page.size());
+                        for (int indexZ = 0; indexZ < widgetsCount; indexZ++) {
+                            assertEquals(indexZ, page.get(indexZ).getIndexZ());
+                        }
+                        assertEquals(widgetsCount / 2, widgetRepository().countByIndexZLessThan(widgetsCount / 2));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            writing.set(false);
+            writer.join();
+            readers.shutdown();
+        }
+    }
+
+    private static Widget randomWidget(Random random, int indexZ) {
+        int coordinateX = random.nextInt(1100) - 50;
+        int coordinateY = random.nextInt(1100) - 50;
+        int width = random.nextInt(200) + 1;
+        int height = random.nextInt(200) + 1;
+
+        return new Widget(null, coordinateX, coordinateY, indexZ, width, height,
+                coordinateX + width / 2f, coordinateX - width / 2f,
+                coordinateY + height / 2f, coordinateY - height / 2f);
+    }
+}
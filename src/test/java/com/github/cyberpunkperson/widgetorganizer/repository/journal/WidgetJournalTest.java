@@ -0,0 +1,156 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.journal;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WidgetJournalTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    public void recoverReplaysSavesAndDeletes() {
+
+        WidgetJournal widgetJournal = widgetJournal(DataSize.ofMegabytes(1));
+        widgetJournal.recover();
+
+        Widget widget1 = widget(1);
+        Widget widget2 = widget(2);
+        Widget widget3 = new Widget(UUID.randomUUID(), 5, 6, null, 3, 4, null, null, null, null);
+        widgetJournal.appendSave(List.of(widget1, widget2, widget3));
+
+        Widget updatedWidget2 = widget2.toBuilder().indexZ(7).lastModifiedDate(ZonedDateTime.now()).build();
+        widgetJournal.appendSave(List.of(updatedWidget2));
+        widgetJournal.appendDelete(widget1.getId());
+        widgetJournal.close();
+
+        WidgetJournal recoveredJournal = widgetJournal(DataSize.ofMegabytes(1));
+        assertEquals(Map.of(widget2.getId(), updatedWidget2, widget3.getId(), widget3), recoveredJournal.recover());
+        assertEquals(3, recoveredJournal.lastSequence());
+        recoveredJournal.close();
+    }
+
+    @Test
+    public void recoverFromSnapshotAndLogTail() throws Exception {
+
+        WidgetJournal widgetJournal = widgetJournal(DataSize.ofKilobytes(1));
+        widgetJournal.recover();
+
+        Map<UUID, Widget> expectedWidgets = new HashMap<>();
+        for (int indexZ = 0; indexZ < 100; indexZ++) {
+            Widget widget = widget(indexZ);
+            widgetJournal.appendSave(List.of(widget));
+            expectedWidgets.put(widget.getId(), widget);
+        }
+        widgetJournal.snapshot(new WidgetJournal.Checkpoint(widgetJournal.lastSequence(), new ArrayList<>(expectedWidgets.values())));
+
+        for (int indexZ = 100; indexZ < 110; indexZ++) {
+            Widget widget = widget(indexZ);
+            widgetJournal.appendSave(List.of(widget));
+            expectedWidgets.put(widget.getId(), widget);
+        }
+        widgetJournal.close();
+
+        assertEquals(1, files(".snapshot").size());
+        assertEquals(2, files(".wal").size());
+        assertEquals(expectedWidgets, widgetJournal(DataSize.ofKilobytes(1)).recover());
+    }
+
+    @Test
+    public void recoverStopsAtTornRecord() throws Exception {
+
+        WidgetJournal widgetJournal = widgetJournal(DataSize.ofMegabytes(1));
+        widgetJournal.recover();
+
+        Widget widget1 = widget(1);
+        widgetJournal.appendSave(List.of(widget1));
+        widgetJournal.appendSave(List.of(widget(2)));
+        widgetJournal.close();
+
+        /* flips the last byte of the second record */
+        try (FileChannel channel = FileChannel.open(files(".wal").get(0), READ, WRITE)) {
+            long position = 2L * (8 + 13 + WidgetRecords.WIDGET_BYTES) - 1;
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, position);
+            lastByte.put(0, (byte) ~lastByte.get(0)).rewind();
+            channel.write(lastByte, position);
+        }
+
+        WidgetJournal recoveredJournal = widgetJournal(DataSize.ofMegabytes(1));
+        assertEquals(Map.of(widget1.getId(), widget1), recoveredJournal.recover());
+        assertEquals(1, recoveredJournal.lastSequence());
+        recoveredJournal.close();
+    }
+
+    @Test
+    public void cashRepositoryRestartsWithTheSameBoard() {
+
+        WidgetCashRepository widgetCashRepository = cashRepository();
+        Widget widget1 = new Widget(null, 5, 6, 1, 3, 4, 6.5f, 3.5f, 8f, 4f);
+        Widget widget2 = new Widget(null, 5, 6, 2, 3, 4, 6.5f, 3.5f, 8f, 4f);
+        widgetCashRepository.saveWidgets(List.of(widget1, widget2));
+        widgetCashRepository.deleteById(widget1.getId());
+        widgetCashRepository.checkpointOnShutdown();
+
+        Widget widget3 = new Widget(null, 5, 6, 3, 3, 4, 6.5f, 3.5f, 8f, 4f);
+        widgetCashRepository.saveWidgets(List.of(widget3));
+
+        WidgetCashRepository restartedRepository = cashRepository();
+        assertEquals(List.of(widget2, widget3), restartedRepository.findAllSortedByIndexZ(PageRequest.of(0, 10)).getContent());
+        assertEquals(List.of(widget2, widget3), restartedRepository.findAllByArea(10, 10));
+    }
+
+    private WidgetCashRepository cashRepository() {
+        WidgetCashRepository widgetCashRepository = new WidgetCashRepository(Duration.ofSeconds(30), widgetJournal(DataSize.ofMegabytes(1)));
+        widgetCashRepository.recover();
+        return widgetCashRepository;
+    }
+
+    private WidgetJournal widgetJournal(DataSize segmentSize) {
+        return new WidgetJournal(directory.toString(), segmentSize, Duration.ZERO, Duration.ofMinutes(5));
+    }
+
+    private List<Path> files(String suffix) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix))
+                    .sorted()
+                    .collect(toList());
+        }
+    }
+
+    private static Widget widget(int indexZ) {
+        return Widget.builder()
+                .id(UUID.randomUUID())
+                .coordinateX(indexZ)
+                .coordinateY(-indexZ)
+                .indexZ(indexZ)
+                .width(3)
+                .height(4)
+                .maxCoordinateX(indexZ + 1.5f)
+                .minCoordinateX(indexZ - 1.5f)
+                .maxCoordinateY(-indexZ + 2f)
+                .minCoordinateY(-indexZ - 2f)
+                .createdDate(ZonedDateTime.now())
+                .lastModifiedDate(ZonedDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+public class WidgetColumnStoreTest extends WidgetStoreTest {
+
+    @Override
+    protected WidgetStore widgetStore() {
+        return new WidgetColumnStore();
+    }
+}
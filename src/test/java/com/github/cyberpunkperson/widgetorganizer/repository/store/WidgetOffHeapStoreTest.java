@@ -0,0 +1,9 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+public class WidgetOffHeapStoreTest extends WidgetStoreTest {
+
+    @Override
+    protected WidgetStore widgetStore() {
+        return new WidgetOffHeapStore();
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.cyberpunkperson.widgetorganizer.repository.store;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public abstract class WidgetStoreTest {
+
+    protected abstract WidgetStore widgetStore();
+
+
+    @Test
+    public void putAndGetKeepsAllFields() {
+
+        WidgetStore widgetStore = widgetStore();
+        ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        Widget widget = Widget.builder()
+                .id(UUID.randomUUID())
+                .coordinateX(-5)
+                .coordinateY(6)
+                .indexZ(7)
+                .width(3)
+                .height(4)
+                .maxCoordinateX(-3.5f)
+                .minCoordinateX(-6.5f)
+                .maxCoordinateY(8f)
+                .minCoordinateY(4f)
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .build();
+        widgetStore.put(widget);
+
+        Widget storedWidget = widgetStore.get(widgetStore.find(widget.getId()));
+        assertEquals(widget, storedWidget);
+    }
+
+    @Test
+    public void putKeepsNullFields() {
+
+        WidgetStore widgetStore = widgetStore();
+        Widget widget = new Widget(UUID.randomUUID(), 5, 6, null, 3, 4, null, null, null, null);
+        widgetStore.put(widget);
+
+        Widget storedWidget = widgetStore.get(widgetStore.find(widget.getId()));
+        assertEquals(widget, storedWidget);
+        assertNull(storedWidget.getCreatedDate());
+        assertEquals(0, widgetStore.zOrderSize());
+        assertFalse(widgetStore.isIntersected(0, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void randomOperationsMatchMapAndZOrder() {
+
+        Random random = new Random(42);
+        WidgetStore widgetStore = widgetStore();
+        Map<UUID, Widget> expectedWidgets = new HashMap<>();
+        List<UUID> widgetIds = new ArrayList<>();
+
+        for (int operation = 0; operation < 5_000; operation++) {
+            int action = random.nextInt(10);
+
+            if (action < 5 || widgetIds.isEmpty()) {
+                Widget widget = randomWidget(UUID.randomUUID(), random);
+                widgetStore.put(widget);
+                expectedWidgets.put(widget.getId(), widget);
+                widgetIds.add(widget.getId());
+
+            } else if (action < 7) {
+                Widget widget = randomWidget(widgetIds.get(random.nextInt(widgetIds.size())), random);
+                widgetStore.put(widget);
+                expectedWidgets.put(widget.getId(), widget);
+
+            } else if (action < 9) {
+                UUID widgetId = widgetIds.remove(random.nextInt(widgetIds.size()));
+                widgetStore.remove(widgetId);
+                expectedWidgets.remove(widgetId);
+
+            } else {
+                List<Widget> widgets = new ArrayList<>();
+                for (int index = 0; index < 100; index++) {
+                    UUID widgetId = random.nextBoolean() || widgetIds.isEmpty() ? UUID.randomUUID() : widgetIds.get(random.nextInt(widgetIds.size()));
+                    Widget widget = randomWidget(widgetId, random);
+                    if (!expectedWidgets.containsKey(widgetId))
+                        widgetIds.add(widgetId);
+                    expectedWidgets.put(widgetId, widget);
+                    widgets.removeIf(existWidget -> existWidget.getId().equals(widgetId));
+                    widgets.add(widget);
+                }
+                widgetStore.putAll(widgets);
+            }
+        }
+
+        assertEquals(expectedWidgets.size(), widgetStore.size());
+        for (Widget expectedWidget : expectedWidgets.values()) {
+            assertEquals(expectedWidget, widgetStore.get(widgetStore.find(expectedWidget.getId())));
+        }
+        assertEquals(-1, widgetStore.find(UUID.randomUUID()));
+
+        List<Integer> expectedIndexesZ = expectedWidgets.values().stream()
+                .map(Widget::getIndexZ)
+                .filter(Objects::nonNull)
+                .sorted()
+                .collect(toList());
+        List<Integer> zOrderIndexesZ = new ArrayList<>();
+        for (int position = 0; position < widgetStore.zOrderSize(); position++) {
+            zOrderIndexesZ.add(widgetStore.indexZ(widgetStore.zOrderRow(position)));
+        }
+        assertThat(zOrderIndexesZ).isEqualTo(expectedIndexesZ);
+
+        assertEquals(expectedIndexesZ.stream().filter(indexZ -> indexZ < 500).count(), widgetStore.rank(500));
+    }
+
+    @Test
+    public void zOrderIsKeptAcrossSplitAndJoinedBlocks() {
+
+        WidgetStore widgetStore = widgetStore();
+        int widgetsCount = WidgetStore.Z_ORDER_BLOCK * 5;
+        List<UUID> widgetIds = new ArrayList<>();
+
+        /* descending indexZ keeps inserting in front of the first block */
+        for (int indexZ = widgetsCount - 1; indexZ >= 0; indexZ--) {
+            Widget widget = new Widget(UUID.randomUUID(), 0, 0, indexZ * 2, 1, 1, 0.5f, -0.5f, 0.5f, -0.5f);
+            widgetStore.put(widget);
+            widgetIds.add(widget.getId());
+        }
+        assertEquals(widgetsCount, widgetStore.zOrderSize());
+        assertEquals(widgetsCount / 2, widgetStore.rank(widgetsCount));
+        assertEquals(widgetsCount / 2, widgetStore.rank(widgetsCount - 1));
+        for (int position = 0; position < widgetsCount; position++) {
+            assertEquals(position * 2, widgetStore.indexZ(widgetStore.zOrderRow(position)));
+        }
+
+        /* leaves every tenth widget, blocks run empty or are joined */
+        for (int index = 0; index < widgetIds.size(); index++) {
+            if (index % 10 != 0)
+                widgetStore.remove(widgetIds.get(index));
+        }
+        List<Integer> zOrderIndexesZ = new ArrayList<>();
+        for (int position = 0; position < widgetStore.zOrderSize(); position++) {
+            zOrderIndexesZ.add(widgetStore.indexZ(widgetStore.zOrderRow(position)));
+        }
+        assertThat(zOrderIndexesZ)
+                .hasSize(widgetsCount / 10)
+                .isSorted()
+                .startsWith(18)
+                .endsWith((widgetsCount - 1) * 2);
+        assertEquals(1, widgetStore.rank(19));
+    }
+
+    private static Widget randomWidget(UUID widgetId, Random random) {
+        int coordinateX = random.nextInt(1000) - 500;
+        int coordinateY = random.nextInt(1000) - 500;
+        int width = random.nextInt(100) + 1;
+        int height = random.nextInt(100) + 1;
+
+        return new Widget(widgetId, coordinateX, coordinateY, random.nextInt(10) == 0 ? null : random.nextInt(2000) - 1000, width, height,
+                coordinateX + width / 2f, coordinateX - width / 2f, coordinateY + height / 2f, coordinateY - height / 2f);
+    }
+}
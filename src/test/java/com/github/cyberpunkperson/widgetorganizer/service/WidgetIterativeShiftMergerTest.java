@@ -0,0 +1,58 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WidgetIterativeShiftMergerTest extends WidgetShiftMergerTest {
+
+    @InjectMocks
+    private WidgetIterativeShiftMerger widgetIterativeShiftMerger;
+
+
+    @Override
+    protected WidgetMerger widgetMerger() {
+        return widgetIterativeShiftMerger;
+    }
+
+    @Test
+    public void mergeEngagedWidgetsWithLargeRunShift() {
+
+        int runLength = 100_000;
+        List<Widget> existWidgets = new ArrayList<>(runLength);
+        for (int indexZ = 0; indexZ < runLength; indexZ++) {
+            existWidgets.add(new Widget(UUID.randomUUID(), 5, 6, indexZ, 3, 4, 5f, 6f, null, null));
+        }
+        existWidgets.add(new Widget(UUID.randomUUID(), 5, 6, runLength + 1, 3, 4, 5f, 6f, null, null));
+
+        Widget newWidget = new Widget(UUID.randomUUID(), 3, 4, 0, 4, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetIterativeShiftMerger.mergeEngagedOnly(existWidgets, newWidget);
+
+        assertEquals(runLength + 1, mergedWidgets.size());
+        assertEquals(newWidget, mergedWidgets.get(0));
+        for (int indexZ = 0; indexZ <= runLength; indexZ++) {
+            assertEquals(indexZ, mergedWidgets.get(indexZ).getIndexZ());
+        }
+        assertEquals(runLength + 1, existWidgets.get(runLength).getIndexZ());
+    }
+
+    @Test
+    public void mergeEngagedWidgetsWithUpdateToFreeIndexZ() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 2, 3, 4, 5f, 6f, null, null);
+
+        Widget updatedWidget = new Widget(existWidget1.getId(), 7, 8, 10, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetIterativeShiftMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2), updatedWidget);
+
+        assertEquals(List.of(updatedWidget), mergedWidgets);
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import com.github.cyberpunkperson.widgetorganizer.repository.WidgetCashRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WidgetPipelineWriterTest {
+
+    private WidgetCashRepository widgetCashRepository;
+
+    private WidgetPipelineWriter widgetPipelineWriter;
+
+
+    @BeforeEach
+    public void setUp() {
+        widgetCashRepository = new WidgetCashRepository();
+        widgetPipelineWriter = new WidgetPipelineWriter(widgetCashRepository, new WidgetShiftMerger());
+        widgetPipelineWriter.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        widgetPipelineWriter.stop();
+    }
+
+    @Test
+    public void concurrentCreatesKeepIndexZUnique() throws Exception {
+
+        int writersCount = 8;
+        int widgetsPerWriter = 250;
+
+        ExecutorService writers = Executors.newFixedThreadPool(writersCount);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int writer = 0; writer < writersCount; writer++) {
+                Random random = new Random(writer);
+                results.add(writers.submit(() -> {
+                    for (int i = 0; i < widgetsPerWriter; i++) {
+                        Widget createdWidget = widgetPipelineWriter.write(new Widget(null, 5, 6, random.nextInt(50), 3, 4, null, null, null, null));
+                        assertNotNull(createdWidget.getId());
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            writers.shutdown();
+        }
+
+        List<Widget> widgets = widgetCashRepository.findAll();
+        assertEquals(writersCount * widgetsPerWriter, widgets.size());
+        assertEquals(widgets.size(), widgets.stream().map(Widget::getIndexZ).collect(toSet()).size());
+    }
+
+    @Test
+    public void updateWidget() {
+
+        Widget existWidget1 = widgetPipelineWriter.write(new Widget(null, 5, 6, 1, 3, 4, null, null, null, null));
+        Widget existWidget2 = widgetPipelineWriter.write(new Widget(null, 5, 6, 2, 3, 4, null, null, null, null));
+
+        widgetPipelineWriter.write(new Widget(existWidget2.getId(), 7, 8, 1, 3, 4, null, null, null, null));
+
+        assertEquals(1, widgetCashRepository.findById(existWidget2.getId()).orElseThrow().getIndexZ());
+        assertEquals(2, widgetCashRepository.findById(existWidget1.getId()).orElseThrow().getIndexZ());
+    }
+
+    @Test
+    public void updateNotExistedWidgetExceptionThrown() {
+
+        Widget widget = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, null, null, null, null);
+
+        assertThrows(NoSuchElementException.class, () -> widgetPipelineWriter.write(widget));
+    }
+
+    @Test
+    public void writeAfterStopExceptionThrown() throws InterruptedException {
+
+        widgetPipelineWriter.stop();
+
+        Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+        assertThrows(IllegalStateException.class, () -> widgetPipelineWriter.write(widget));
+    }
+
+    @Test
+    public void errorInBatchIsThrownToCallerAndWriterGoesOn() throws InterruptedException {
+
+        AtomicBoolean failing = new AtomicBoolean(true);
+        WidgetShiftMerger widgetMerger = new WidgetShiftMerger() {
+            @Override
+            public List<Widget> mergeBatch(List<Widget> widgets, List<Widget> newWidgets) {
+                if (failing.getAndSet(false))
+                    throw new StackOverflowError();
+                return super.mergeBatch(widgets, newWidgets);
+            }
+        };
+        WidgetPipelineWriter failingWriter = new WidgetPipelineWriter(widgetCashRepository, widgetMerger);
+        failingWriter.start();
+        try {
+            Widget widget = new Widget(null, 5, 6, 1, 3, 4, null, null, null, null);
+
+            assertThrows(StackOverflowError.class, () -> failingWriter.write(widget));
+            assertNotNull(failingWriter.write(widget).getId());
+        } finally {
+            failingWriter.stop();
+        }
+    }
+}
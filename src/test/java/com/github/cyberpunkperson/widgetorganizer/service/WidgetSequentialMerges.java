@@ -0,0 +1,55 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+
+import java.util.*;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+
+/*
+ * Reference for WidgetMerger.mergeBatch: merges new widgets one by one with mergeEngagedOnly against the board
+ * as a repository would keep it, the stored version of an updated widget included.
+ * The board is copied for every widget, so it is O(batch size * board size)
+ */
+final class WidgetSequentialMerges {
+
+    private WidgetSequentialMerges() {
+    }
+
+    static List<Widget> merge(WidgetMerger widgetMerger, List<Widget> widgets, List<Widget> newWidgets) {
+        Map<UUID, Widget> board = new LinkedHashMap<>();
+        widgets.forEach(widget -> board.put(widget.getId(), widget));
+        Map<UUID, Widget> batchWidgets = new HashMap<>();
+        Set<UUID> engagedIds = new HashSet<>();
+        List<Widget> createdWidgets = new ArrayList<>();
+
+        try {
+            for (Widget newWidget : newWidgets) {
+                if (isNull(newWidget.getId())) {
+                    newWidget.setId(UUID.randomUUID());
+                    createdWidgets.add(newWidget);
+                }
+
+                for (Widget engagedWidget : widgetMerger.mergeEngagedOnly(new ArrayList<>(board.values()), newWidget)) {
+                    Widget batchWidget = batchWidgets.get(engagedWidget.getId());
+                    if (nonNull(batchWidget) && engagedWidget != newWidget) {
+                        batchWidget.setIndexZ(engagedWidget.getIndexZ());
+                    } else {
+                        board.put(engagedWidget.getId(), engagedWidget);
+                    }
+                    engagedIds.add(engagedWidget.getId());
+                }
+                board.put(newWidget.getId(), newWidget);
+                batchWidgets.put(newWidget.getId(), newWidget);
+            }
+
+            return board.values().stream()
+                    .filter(widget -> engagedIds.contains(widget.getId()))
+                    .collect(toList());
+        } finally {
+            createdWidgets.forEach(widget -> widget.setId(null));
+        }
+    }
+}
@@ -7,16 +7,14 @@ import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
@@ -31,6 +29,9 @@ public class WidgetServiceImplTest {
     @Mock
     private WidgetRepository widgetRepository;
 
+    @Spy
+    private WidgetMerger widgetMerger = new WidgetShiftMerger();
+
 
     @Test
     public void updateWidgetWithNullIdExceptionThrown() {
@@ -59,39 +60,22 @@ public class WidgetServiceImplTest {
     @Test
     public void filterWidgetsByArea() {
 
-        Widget widget1 = new Widget(null, 50, 50, 4, 98, 100, 99f, null, 100f, null);
-        Widget widget2 = new Widget(null, 50, 50, 1, 100, 100, 100f, null, 100f, null);
-        Widget widget3 = new Widget(null, 50, 100, 4, 100, 98, 100f, null, 99f, null);
-        Widget widget4 = new Widget(null, 50, 100, 2, 100, 100, 100f, null, 150f, null);
-        Widget widget5 = new Widget(null, 50, 100, 4, 100, 101, 100f, null, 150.5f, null);
-        Widget widget6 = new Widget(null, 50, 50, 4, 101, 100, 100.5f, null, 100f, null);
-        Widget widget7 = new Widget(null, 75, 75, 4, 100, 100, 125f, null, 125f, null);
-
-        List<Widget> existWidgets = List.of(widget1, widget2, widget3, widget4, widget5, widget6, widget7);
-
-        when(widgetRepository.findAllSortedByWidthAndHeight())
-                .thenReturn(existWidgets);
+        Widget widget1 = new Widget(null, 50, 50, 4, 98, 100, 99f, 1f, 100f, 0f);
+        Widget widget2 = new Widget(null, 50, 50, 1, 100, 100, 100f, 0f, 100f, 0f);
 
-        List<Widget> expectedWidgets = Stream.of(widget1, widget2, widget3, widget4)
-                .sorted(Comparator.comparingInt(Widget::getIndexZ))
-                .collect(toList());
+        when(widgetRepository.findAllByArea(100, 150, PageRequest.of(0, 10), 0L))
+                .thenReturn(List.of(widget2, widget1));
 
         List<Widget> filterWidgets = widgetService.findAllByArea(PageRequest.of(0, 10), 100, 150);
 
-        assertEquals(expectedWidgets, filterWidgets);
+        assertEquals(List.of(widget2, widget1), filterWidgets);
     }
 
     @Test
     public void filterWidgetsByAreaOutOfArea() {
 
-        List<Widget> existWidgets = new ArrayList<>() {{
-            add(new Widget(null, 50, 50, 1, 100, 100, 100f, null, 100f, null));
-            add(new Widget(null, 50, 100, 2, 100, 100, 100f, null, 150f, null));
-            add(new Widget(null, 100, 100, 4, 100, 100, 150f, null, 150f, null));
-        }};
-
-        when(widgetRepository.findAllSortedByWidthAndHeight())
-                .thenReturn(existWidgets);
+        when(widgetRepository.findAllByArea(10, 15, PageRequest.of(0, 10), 0L))
+                .thenReturn(emptyList());
 
         List<Widget> expectedWidgets = emptyList();
 
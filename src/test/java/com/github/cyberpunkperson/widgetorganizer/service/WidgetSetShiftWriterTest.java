@@ -0,0 +1,27 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.WidgetOrganizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.NestedExceptionUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WidgetSetShiftWriterTest {
+
+    @Test
+    public void setShiftWriterOutsideJdbcProfileFailsStartup() {
+
+        SpringApplicationBuilder application = new SpringApplicationBuilder(WidgetOrganizer.class)
+                .web(WebApplicationType.NONE);
+
+        Exception exception = assertThrows(Exception.class,
+                () -> application.run("--spring.profiles.active=compact", "--widget-organizer.writer=set-shift"));
+
+        assertThat(NestedExceptionUtils.getMostSpecificCause(exception))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("widget-organizer.writer=set-shift needs the jdbc profile");
+    }
+}
@@ -7,14 +7,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Stream;
 
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @ExtendWith(SpringExtension.class)
 @TestInstance(TestInstance.Lifecycle.PER_METHOD)
@@ -24,6 +24,10 @@ public class WidgetShiftMergerTest {
     private WidgetShiftMerger widgetShiftMerger;
 
 
+    protected WidgetMerger widgetMerger() {
+        return widgetShiftMerger;
+    }
+
     @Test
     public void mergeEngagedWidgetsWithDoubleShift() {
 
@@ -40,12 +44,82 @@ public class WidgetShiftMergerTest {
         ).sorted(comparingInt(Widget::getIndexZ))
                 .collect(toList());
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
         assertThat(mergedWidgets)
                 .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
                 .isEqualTo(expectedWidgets);
     }
 
+    @Test
+    public void mergeBatchAsSequentialMerges() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 2, 3, 4, 5f, 6f, null, null);
+
+        Widget newWidget1 = new Widget(null, 3, 4, 1, 4, 4, 5f, 6f, null, null);
+        Widget newWidget2 = new Widget(null, 3, 4, 1, 4, 4, 5f, 6f, null, null);
+        Widget updatedWidget1 = new Widget(existWidget1.getId(), 7, 8, 1, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetMerger().mergeBatch(List.of(existWidget1, existWidget2),
+                List.of(newWidget1, newWidget2, updatedWidget1));
+
+        assertThat(mergedWidgets)
+                .usingElementComparator((first, second) -> first == second ? 0 : 1)
+                .contains(newWidget1, newWidget2, updatedWidget1)
+                .doesNotContain(existWidget2);
+        assertThat(mergedWidgets)
+                .extracting(Widget::getIndexZ)
+                .containsExactlyInAnyOrder(1, 2, 3, 4);
+        assertEquals(1, updatedWidget1.getIndexZ());
+        assertEquals(2, newWidget2.getIndexZ());
+        assertEquals(3, newWidget1.getIndexZ());
+        assertThat(mergedWidgets)
+                .filteredOn(widget -> existWidget2.getId().equals(widget.getId()))
+                .extracting(Widget::getIndexZ)
+                .containsExactly(4);
+        assertEquals(2, existWidget2.getIndexZ());
+        assertNull(newWidget1.getId());
+        assertNull(newWidget2.getId());
+    }
+
+    @Test
+    public void mergeBatchMatchesSequentialMerges() {
+
+        Random random = new Random(17);
+        for (int round = 0; round < 50; round++) {
+            List<Widget> existWidgets = new ArrayList<>();
+            for (int indexZ = 0; indexZ < 300; indexZ++) {
+                if (random.nextInt(3) > 0)
+                    existWidgets.add(new Widget(UUID.randomUUID(), 5, 6, indexZ, 3, 4, 5f, 6f, null, null));
+            }
+
+            List<Widget> newWidgets = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                UUID widgetId = random.nextBoolean() ? null : existWidgets.get(random.nextInt(existWidgets.size())).getId();
+                Integer indexZ = random.nextInt(10) == 0 ? null : random.nextInt(320);
+                newWidgets.add(new Widget(widgetId, 3, 4, indexZ, 4, 4, 5f, 6f, null, null));
+            }
+
+            List<Widget> batchExistWidgets = copyWidgets(existWidgets);
+            List<Widget> batchNewWidgets = copyWidgets(newWidgets);
+            List<Widget> batchMergedWidgets = widgetMerger().mergeBatch(batchExistWidgets, batchNewWidgets);
+
+            List<Widget> sequentialExistWidgets = copyWidgets(existWidgets);
+            List<Widget> sequentialNewWidgets = copyWidgets(newWidgets);
+            List<Widget> sequentialMergedWidgets = WidgetSequentialMerges.merge(widgetMerger(), sequentialExistWidgets, sequentialNewWidgets);
+
+            assertEquals(sequentialExistWidgets, batchExistWidgets);
+            assertEquals(sequentialNewWidgets, batchNewWidgets);
+            assertThat(batchMergedWidgets).containsExactlyInAnyOrderElementsOf(sequentialMergedWidgets);
+        }
+    }
+
+    private static List<Widget> copyWidgets(List<Widget> widgets) {
+        return widgets.stream()
+                .map(widget -> widget.toBuilder().build())
+                .collect(toList());
+    }
+
     @Test
     public void mergeAllWidgetsWithDoubleShift() {
 
@@ -63,7 +137,7 @@ public class WidgetShiftMergerTest {
         ).sorted(comparingInt(Widget::getIndexZ))
                 .collect(toList());
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeAll(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeAll(List.of(existWidget1, existWidget2, existWidget3), newWidget);
         assertThat(mergedWidgets)
                 .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
                 .isEqualTo(expectedWidgets);
@@ -80,7 +154,7 @@ public class WidgetShiftMergerTest {
 
         List<Widget> expectedWidgets = Collections.singletonList(new Widget(newWidget.getId(), 3, 4, 2, 4, 4, 5f, 6f, null, null));
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
         assertThat(mergedWidgets)
                 .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
                 .isEqualTo(expectedWidgets);
@@ -101,7 +175,29 @@ public class WidgetShiftMergerTest {
         ).sorted(comparingInt(Widget::getIndexZ))
                 .collect(toList());
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        assertThat(mergedWidgets)
+                .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
+                .isEqualTo(expectedWidgets);
+    }
+
+    @Test
+    public void mergeEngagedWidgetsWithUpdateIntoRun() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 1, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 2, 3, 4, 5f, 6f, null, null);
+        Widget existWidget3 = new Widget(UUID.randomUUID(), 5, 6, 3, 3, 4, 5f, 6f, null, null);
+
+        Widget updatedWidget = new Widget(existWidget3.getId(), 7, 8, 1, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> expectedWidgets = Stream.of(
+                new Widget(existWidget3.getId(), 7, 8, 1, 3, 4, 5f, 6f, null, null),
+                new Widget(existWidget1.getId(), 5, 6, 2, 3, 4, 5f, 6f, null, null),
+                new Widget(existWidget2.getId(), 5, 6, 3, 3, 4, 5f, 6f, null, null)
+        ).sorted(comparingInt(Widget::getIndexZ))
+                .collect(toList());
+
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), updatedWidget);
         assertThat(mergedWidgets)
                 .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
                 .isEqualTo(expectedWidgets);
@@ -117,7 +213,7 @@ public class WidgetShiftMergerTest {
 
         List<Widget> expectedWidgets = Collections.singletonList(new Widget(newWidget.getId(), 3, 4, 5, 4, 4, 5f, 6f, null, null));
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), newWidget);
         assertThat(mergedWidgets)
                 .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
                 .isEqualTo(expectedWidgets);
@@ -128,7 +224,7 @@ public class WidgetShiftMergerTest {
 
         Widget newWidget = new Widget(null, 3, 4, 0, 4, 4, 5f, 6f, null, null);
 
-        List<Widget> mergedWidgets = widgetShiftMerger.mergeEngagedOnly(Collections.emptyList(), newWidget);
+        List<Widget> mergedWidgets = widgetMerger().mergeEngagedOnly(Collections.emptyList(), newWidget);
         List<Widget> expectedWidgets = Collections.singletonList(new Widget(newWidget.getId(), 3, 4, 0, 4, 4, 5f, 6f, null, null));
 
         assertThat(mergedWidgets)
@@ -0,0 +1,177 @@
+package com.github.cyberpunkperson.widgetorganizer.service;
+
+import com.github.cyberpunkperson.widgetorganizer.domain.Widget;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.*;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class WidgetSparseMergerTest {
+
+    @InjectMocks
+    private WidgetSparseMerger widgetSparseMerger;
+
+
+    @Test
+    public void mergeWithEmptyExistWidgets() {
+
+        Widget newWidget = new Widget(UUID.randomUUID(), 3, 4, 0, 4, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetSparseMerger.mergeEngagedOnly(Collections.emptyList(), newWidget);
+
+        assertEquals(List.of(newWidget), mergedWidgets);
+        assertEquals(0, widgetSparseMerger.exposeIndexZ(newWidget, () -> 0).getIndexZ());
+    }
+
+    @Test
+    public void mergeEngagedWidgetsAtBottomOfDenseStack() {
+
+        List<Widget> existWidgets = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Widget widget = new Widget(UUID.randomUUID(), 5, 6, null, 3, 4, 5f, 6f, null, null);
+            widgetSparseMerger.mergeEngagedOnly(existWidgets, widget);
+            existWidgets.add(widget);
+        }
+        Map<UUID, Integer> existKeys = new HashMap<>();
+        existWidgets.forEach(widget -> existKeys.put(widget.getId(), widget.getIndexZ()));
+
+        Widget newWidget = new Widget(UUID.randomUUID(), 3, 4, 0, 4, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetSparseMerger.mergeEngagedOnly(existWidgets, newWidget);
+
+        assertEquals(List.of(newWidget), mergedWidgets);
+        assertTrue(existWidgets.stream().allMatch(widget -> existKeys.get(widget.getId()).equals(widget.getIndexZ())));
+        assertTrue(existWidgets.stream().allMatch(widget -> newWidget.getIndexZ() < widget.getIndexZ()));
+    }
+
+    @Test
+    public void mergeEngagedWidgetsWithRelabeling() {
+
+        Random random = new Random(42);
+        Map<UUID, Widget> board = new LinkedHashMap<>();
+        List<UUID> expectedOrder = new ArrayList<>();
+        long engagedCount = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            int position = i % 3 == 0 ? 0 : random.nextInt(board.size() + 1);
+            Widget newWidget = new Widget(UUID.randomUUID(), 3, 4, position, 4, 4, 5f, 6f, null, null);
+
+            List<Widget> engagedWidgets = widgetSparseMerger.mergeEngagedOnly(new ArrayList<>(board.values()), newWidget);
+            engagedCount += engagedWidgets.size();
+            /* relabeled widgets are copies, they replace the stored ones as a repository would */
+            engagedWidgets.forEach(widget -> board.put(widget.getId(), widget));
+            board.put(newWidget.getId(), newWidget);
+            expectedOrder.add(position, newWidget.getId());
+        }
+        List<Widget> existWidgets = new ArrayList<>(board.values());
+
+        List<UUID> actualOrder = existWidgets.stream()
+                .sorted(comparingInt(Widget::getIndexZ))
+                .map(Widget::getId)
+                .collect(toList());
+
+        assertEquals(expectedOrder, actualOrder);
+        assertEquals(existWidgets.size(), existWidgets.stream().map(Widget::getIndexZ).distinct().count());
+        assertThat(engagedCount).isLessThan(existWidgets.size() * 20L);
+    }
+
+    @Test
+    public void mergeBatchMatchesSequentialMerges() {
+
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            Map<UUID, Widget> board = new LinkedHashMap<>();
+            for (int i = 0; i < 300; i++) {
+                Widget widget = new Widget(UUID.randomUUID(), 5, 6, random.nextInt(board.size() + 1), 3, 4, 5f, 6f, null, null);
+                widgetSparseMerger.mergeEngagedOnly(new ArrayList<>(board.values()), widget)
+                        .forEach(engagedWidget -> board.put(engagedWidget.getId(), engagedWidget));
+            }
+            List<Widget> existWidgets = new ArrayList<>(board.values());
+
+            List<Widget> newWidgets = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                UUID widgetId = random.nextBoolean() ? null : existWidgets.get(random.nextInt(existWidgets.size())).getId();
+                Integer indexZ = random.nextInt(10) == 0 ? null : random.nextInt(50);
+                newWidgets.add(new Widget(widgetId, 3, 4, indexZ, 4, 4, 5f, 6f, null, null));
+            }
+
+            List<Widget> batchExistWidgets = copyWidgets(existWidgets);
+            List<Widget> batchNewWidgets = copyWidgets(newWidgets);
+            List<Widget> batchMergedWidgets = widgetSparseMerger.mergeBatch(batchExistWidgets, batchNewWidgets);
+
+            List<Widget> sequentialExistWidgets = copyWidgets(existWidgets);
+            List<Widget> sequentialNewWidgets = copyWidgets(newWidgets);
+            List<Widget> sequentialMergedWidgets = WidgetSequentialMerges.merge(widgetSparseMerger, sequentialExistWidgets, sequentialNewWidgets);
+
+            assertEquals(sequentialExistWidgets, batchExistWidgets);
+            assertEquals(sequentialNewWidgets, batchNewWidgets);
+            assertThat(batchMergedWidgets).containsExactlyInAnyOrderElementsOf(sequentialMergedWidgets);
+        }
+    }
+
+    private static List<Widget> copyWidgets(List<Widget> widgets) {
+        return widgets.stream()
+                .map(widget -> widget.toBuilder().build())
+                .collect(toList());
+    }
+
+    @Test
+    public void mergeEngagedWidgetsWithUnchangedPosition() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 100, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 200, 3, 4, 5f, 6f, null, null);
+        Widget existWidget3 = new Widget(UUID.randomUUID(), 5, 6, 300, 3, 4, 5f, 6f, null, null);
+
+        Widget updatedWidget = new Widget(existWidget2.getId(), 7, 8, 1, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetSparseMerger.mergeEngagedOnly(List.of(existWidget1, existWidget2, existWidget3), updatedWidget);
+
+        assertEquals(List.of(updatedWidget), mergedWidgets);
+        assertEquals(200, updatedWidget.getIndexZ());
+    }
+
+    @Test
+    public void mergeEngagedWidgetsBeyondBoardAreClamped() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 100, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 200, 3, 4, 5f, 6f, null, null);
+        List<Widget> existWidgets = List.of(existWidget1, existWidget2);
+
+        Widget topWidget = new Widget(UUID.randomUUID(), 7, 8, 1000, 3, 4, 5f, 6f, null, null);
+        Widget bottomWidget = new Widget(UUID.randomUUID(), 7, 8, -5, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetSparseMerger.mergeBatch(existWidgets, List.of(topWidget, bottomWidget));
+
+        assertThat(mergedWidgets).containsExactlyInAnyOrder(topWidget, bottomWidget);
+        assertTrue(existWidget2.getIndexZ() < topWidget.getIndexZ());
+        assertTrue(bottomWidget.getIndexZ() >= 0 && bottomWidget.getIndexZ() < existWidget1.getIndexZ());
+        assertEquals(100, existWidget1.getIndexZ());
+        assertEquals(200, existWidget2.getIndexZ());
+    }
+
+    @Test
+    public void mergeAllWidgetsWithMove() {
+
+        Widget existWidget1 = new Widget(UUID.randomUUID(), 5, 6, 100, 3, 4, 5f, 6f, null, null);
+        Widget existWidget2 = new Widget(UUID.randomUUID(), 5, 6, 200, 3, 4, 5f, 6f, null, null);
+        Widget existWidget3 = new Widget(UUID.randomUUID(), 5, 6, 300, 3, 4, 5f, 6f, null, null);
+
+        Widget updatedWidget = new Widget(existWidget3.getId(), 7, 8, 0, 3, 4, 5f, 6f, null, null);
+
+        List<Widget> mergedWidgets = widgetSparseMerger.mergeAll(List.of(existWidget1, existWidget2, existWidget3), updatedWidget);
+
+        assertEquals(List.of(updatedWidget, existWidget1, existWidget2), mergedWidgets);
+        assertTrue(updatedWidget.getIndexZ() < existWidget1.getIndexZ());
+    }
+}